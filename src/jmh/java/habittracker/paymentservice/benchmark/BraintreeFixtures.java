@@ -0,0 +1,92 @@
+package habittracker.paymentservice.benchmark;
+
+import com.braintreegateway.Subscription;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.util.NodeWrapperFactory;
+
+/**
+ * Синтетические объекты Braintree для бенчмарков.
+ * Собираются из XML в формате ответа шлюза тем же разбором, что и настоящие ответы,
+ * поэтому геттеры ведут себя как в продакшене, без моков.
+ */
+final class BraintreeFixtures {
+
+    private static final String TRANSACTION_XML = """
+            <transaction>
+              <id>%s</id>
+              <type>sale</type>
+              <status>settled</status>
+              <amount>%s</amount>
+              <currency-iso-code>USD</currency-iso-code>
+              %s
+              <created-at type="datetime">2024-05-01T10:15:30Z</created-at>
+              <updated-at type="datetime">2024-05-02T08:00:00Z</updated-at>
+              <credit-card>
+                <token>card-token</token>
+                <bin>411111</bin>
+                <last-4>1111</last-4>
+                <card-type>Visa</card-type>
+                <expiration-month>12</expiration-month>
+                <expiration-year>2030</expiration-year>
+              </credit-card>
+              <customer>
+                <id>customer-1</id>
+                <first-name>Ivan</first-name>
+                <last-name>Petrov</last-name>
+                <email>ivan@example.com</email>
+              </customer>
+              <billing></billing>
+              <shipping></shipping>
+              <descriptor></descriptor>
+              <subscription></subscription>
+              <disbursement-details></disbursement-details>
+              <status-history type="array"></status-history>
+            </transaction>
+            """;
+
+    private static final String SUBSCRIPTION_XML = """
+            <subscription>
+              <id>%s</id>
+              <description>Monthly plan</description>
+              <merchant-account-id>merchant-account</merchant-account-id>
+              <plan-id>monthly</plan-id>
+              <status>Active</status>
+              <price>%s</price>
+              <payment-method-token>card-token</payment-method-token>
+              <number-of-billing-cycles type="integer">12</number-of-billing-cycles>
+              <current-billing-cycle type="integer">3</current-billing-cycle>
+              <next-billing-date type="date">2024-06-01</next-billing-date>
+              <first-billing-date type="date">2024-03-01</first-billing-date>
+              <billing-period-start-date type="date">2024-05-01</billing-period-start-date>
+              <billing-period-end-date type="date">2024-05-31</billing-period-end-date>
+              <created-at type="datetime">2024-03-01T09:00:00Z</created-at>
+              <updated-at type="datetime">2024-05-01T09:00:00Z</updated-at>
+              <descriptor></descriptor>
+              <add-ons type="array"></add-ons>
+              <discounts type="array"></discounts>
+              <status-history type="array"></status-history>
+              <transactions type="array"></transactions>
+            </subscription>
+            """;
+
+    private BraintreeFixtures() {
+    }
+
+    static Transaction transaction(int index) {
+        // каждая четвёртая - возврат, чтобы ветка с refundFlag тоже попадала в замер
+        String refunded = index % 4 == 0
+                ? "<refunded-transaction-id>refunded-" + index + "</refunded-transaction-id>"
+                : "<refunded-transaction-id nil=\"true\"/>";
+        String xml = TRANSACTION_XML.formatted("tx-" + index, amount(index), refunded);
+        return new Transaction(NodeWrapperFactory.instance.create(xml));
+    }
+
+    static Subscription subscription(int index) {
+        String xml = SUBSCRIPTION_XML.formatted("sub-" + index, amount(index));
+        return new Subscription(NodeWrapperFactory.instance.create(xml));
+    }
+
+    static String amount(int index) {
+        return (index % 100) + "." + String.format("%02d", index % 97);
+    }
+}
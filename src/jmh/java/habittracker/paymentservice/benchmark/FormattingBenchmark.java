@@ -0,0 +1,84 @@
+package habittracker.paymentservice.benchmark;
+
+import habittracker.paymentservice.service.util.AmountParseResult;
+import habittracker.paymentservice.service.util.DateFormatter;
+import habittracker.paymentservice.service.util.NumFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор сумм и форматирование дат - выполняются на каждую строку поиска.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormattingBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final NumFormatter numFormatter = new NumFormatter();
+
+    private String[] amounts;
+    private Date[] dates;
+    private Calendar[] calendars;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        amounts = new String[SIZE];
+        dates = new Date[SIZE];
+        calendars = new Calendar[SIZE];
+        Instant start = Instant.parse("2024-05-01T10:00:00Z");
+        for (int i = 0; i < SIZE; i++) {
+            amounts[i] = BraintreeFixtures.amount(i);
+            dates[i] = Date.from(start.plusSeconds(i * 60L));
+            calendars[i] = GregorianCalendar.from(start.plusSeconds(i * 60L).atZone(ZoneOffset.UTC));
+        }
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> parseAmount() {
+        return numFormatter.stringToNum(amounts[next()], BigDecimal.class);
+    }
+
+    @Benchmark
+    public AmountParseResult parseAmountFastPath() {
+        return numFormatter.parseAmount(amounts[next()]);
+    }
+
+    // некорректный ввод: отказ без исключения, лог не чаще раза в интервал
+    @Benchmark
+    public AmountParseResult parseMalformedAmount() {
+        return numFormatter.parseAmount("12,50");
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return DateFormatter.dateToString(dates[next()]);
+    }
+
+    @Benchmark
+    public String formatCalendar() {
+        return DateFormatter.dateToString(calendars[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (SIZE - 1);
+        return cursor;
+    }
+}
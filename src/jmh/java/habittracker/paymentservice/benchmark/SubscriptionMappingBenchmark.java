@@ -0,0 +1,44 @@
+package habittracker.paymentservice.benchmark;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
+import habittracker.paymentservice.service.util.SubscriptionInfoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscription -> SubscriptionInfoDTO, как в выгрузке подписок: шесть дат на строку.
+ * Разбор XML делается в setUp и в замер не входит.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubscriptionMappingBenchmark {
+
+    private static final int SIZE = 256;
+
+    private Subscription[] subscriptions;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        subscriptions = new Subscription[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            subscriptions[i] = BraintreeFixtures.subscription(i);
+        }
+    }
+
+    @Benchmark
+    public SubscriptionInfoDTO toInfoDTO() {
+        cursor = (cursor + 1) & (SIZE - 1);
+        return SubscriptionInfoMapper.toInfoDTO(subscriptions[cursor]);
+    }
+}
@@ -0,0 +1,44 @@
+package habittracker.paymentservice.benchmark;
+
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import habittracker.paymentservice.service.util.TransactionInfoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction -> TransactionInfoDTO, как в поиске транзакций.
+ * Разбор XML делается в setUp и в замер не входит.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionMappingBenchmark {
+
+    private static final int SIZE = 256;
+
+    private Transaction[] transactions;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = new Transaction[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            transactions[i] = BraintreeFixtures.transaction(i);
+        }
+    }
+
+    @Benchmark
+    public TransactionInfoDTO toInfoDTO() {
+        cursor = (cursor + 1) & (SIZE - 1);
+        return TransactionInfoMapper.toInfoDTO(transactions[cursor]);
+    }
+}
@@ -0,0 +1,27 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.controller.filter.AdmissionFilter;
+import habittracker.paymentservice.service.admission.AdmissionLimiter;
+import habittracker.paymentservice.service.admission.AdmissionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    // после фильтра наблюдений Spring, чтобы отказы попадали в http.server.requests, но до идемпотентности
+    private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionLimiter admissionLimiter) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(admissionLimiter));
+        registration.addUrlPatterns("/payment/*", "/api/*");
+        registration.setOrder(ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,10 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.batch.BatchProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class BatchConfig {
+}
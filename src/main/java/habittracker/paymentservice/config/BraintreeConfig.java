@@ -0,0 +1,73 @@
+package habittracker.paymentservice.config;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.Environment;
+import habittracker.paymentservice.gateway.BraintreeProperties;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Единственный на приложение BraintreeGateway.
+ * Один экземпляр держит одну SSLSocketFactory, поэтому JDK может переиспользовать
+ * keep-alive соединения и TLS-сессии между вызовами вместо нового handshake на каждый платёж.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(BraintreeProperties.class)
+public class BraintreeConfig {
+
+    @Bean
+    public BraintreeGateway braintreeGateway(BraintreeProperties properties) {
+        Dotenv dotenv = Dotenv.configure()
+                .filename(".env")
+                .ignoreIfMissing()
+                .load();
+
+        Environment environment = "sandbox".equals(valueOf(properties.getEnvironment(), dotenv, "BRAINTREE_ENV"))
+                ? Environment.SANDBOX
+                : Environment.PRODUCTION;
+
+        BraintreeGateway gateway = new BraintreeGateway(environment,
+                valueOf(properties.getMerchantId(), dotenv, "BRAINTREE_MERCHANT_ID"),
+                valueOf(properties.getPublicKey(), dotenv, "BRAINTREE_PUBLIC_KEY"),
+                valueOf(properties.getPrivateKey(), dotenv, "BRAINTREE_PRIVATE_KEY"));
+
+        BraintreeProperties.Transport transport = properties.getTransport();
+        // таймауты задаются на экземпляре gateway и не меняют HttpURLConnection остального приложения
+        gateway.getConfiguration().setConnectTimeout((int) transport.getConnectTimeout().toMillis());
+        gateway.getConfiguration().setTimeout((int) transport.getReadTimeout().toMillis());
+
+        log.info("Braintree {}: connect timeout {}, read timeout {}",
+                environment, transport.getConnectTimeout(), transport.getReadTimeout());
+        return gateway;
+    }
+
+    /**
+     * Настроенные таймауты gateway. Это значения конфигурации, а не статистика соединений:
+     * keep-alive кэш JDK, через который ходит SDK, статистики не отдаёт.
+     */
+    @Bean
+    public MeterBinder braintreeConfigMetrics(BraintreeGateway gateway) {
+        return registry -> {
+            Gauge.builder("payment.braintree.config.connect.timeout", gateway.getConfiguration(),
+                            configuration -> configuration.getConnectTimeout())
+                    .description("Настроенный таймаут соединения с Braintree")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("payment.braintree.config.read.timeout", gateway.getConfiguration(),
+                            configuration -> configuration.getTimeout())
+                    .description("Настроенный таймаут ответа Braintree")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    private static String valueOf(String configured, Dotenv dotenv, String key) {
+        return configured == null || configured.isBlank() ? dotenv.get(key) : configured;
+    }
+}
@@ -0,0 +1,11 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.cache.ClientTokenPoolProperties;
+import habittracker.paymentservice.service.cache.TransactionCacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({TransactionCacheProperties.class, ClientTokenPoolProperties.class})
+public class CacheConfig {
+}
@@ -0,0 +1,10 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.event.PaymentEventProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PaymentEventProperties.class)
+public class EventConfig {
+}
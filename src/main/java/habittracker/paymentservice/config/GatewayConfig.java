@@ -0,0 +1,10 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.gateway.GatewayProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(GatewayProperties.class)
+public class GatewayConfig {
+}
@@ -0,0 +1,23 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.controller.filter.IdempotencyFilter;
+import habittracker.paymentservice.service.idempotency.IdempotencyProperties;
+import habittracker.paymentservice.service.idempotency.IdempotencyService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyService idempotencyService,
+                                                                       IdempotencyProperties properties) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyService));
+        registration.setUrlPatterns(properties.getPaths());
+        return registration;
+    }
+}
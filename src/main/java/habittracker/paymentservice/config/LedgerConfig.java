@@ -0,0 +1,10 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.ledger.LedgerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(LedgerProperties.class)
+public class LedgerConfig {
+}
@@ -0,0 +1,10 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.projection.SubscriptionProjectionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SubscriptionProjectionProperties.class)
+public class ProjectionConfig {
+}
@@ -0,0 +1,21 @@
+package habittracker.paymentservice.config;
+
+import habittracker.paymentservice.service.sync.SyncProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(SyncProperties.class)
+public class SyncConfig {
+
+    // часы, по которым сдвигается watermark синхронизации
+    @Bean
+    @ConditionalOnMissingBean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
@@ -0,0 +1,20 @@
+package habittracker.paymentservice.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Span-ы обработчиков контроллеров и методов сервисов, помеченных {@link Observed}.
+ * Входящий контекст трассировки и span HTTP-запроса создаёт Spring MVC, вызовы Braintree - GatewayExecutorImpl.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+}
@@ -2,11 +2,13 @@ package habittracker.paymentservice.controller;
 
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import habittracker.paymentservice.service.CheckoutService;
 import habittracker.paymentservice.service.TransactionService;
 import habittracker.paymentservice.service.util.DateFormatter;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,11 +22,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.Arrays;
+import java.util.UUID;
 
 @Controller
 @Tag(name = "checkout", description = "Checkout controller")
 @RequestMapping("/payment")
 @RequiredArgsConstructor
+@Observed(name = "payment.controller")
 public class CheckoutController {
 
     private static final String REDIRECT_CHECKOUTS = "redirect:/payment/checkouts";
@@ -45,6 +49,8 @@ public class CheckoutController {
     public String checkout(Model model) {
         String clientToken = checkoutService.getNewClientToken();
         model.addAttribute("clientToken", clientToken);
+        // ключ идемпотентности формы: повторная отправка той же формы не создаст второй платёж
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "checkouts/new";
     }
@@ -78,15 +84,16 @@ public class CheckoutController {
     public String getTransaction(@PathVariable String transactionId, Model model) {
 
         try {
-            Transaction transaction = transactionService.getTransactionByBraintree(transactionId);
+            // сначала локальный журнал, Braintree - только если транзакции в нём нет
+            TransactionDetailsDTO transaction = transactionService.getTransactionDetails(transactionId);
 
             model.addAttribute("isSuccess", Arrays.asList(checkoutService.getTransactionSuccessStatuses())
                     .contains(transaction.getStatus()));
             model.addAttribute("transaction", transaction);
             model.addAttribute("creditCard", transaction.getCreditCard());
             model.addAttribute("customer", transaction.getCustomer());
-            model.addAttribute("createdAt", DateFormatter.dateToString(transaction.getCreatedAt().getTime()));
-            model.addAttribute("updatedAt", DateFormatter.dateToString(transaction.getUpdatedAt().getTime()));
+            model.addAttribute("createdAt", DateFormatter.dateToString(transaction.getCreatedAt()));
+            model.addAttribute("updatedAt", DateFormatter.dateToString(transaction.getUpdatedAt()));
         } catch (Exception e) {
             LOGGER.error("Error occurred:", e);
             return REDIRECT_CHECKOUTS;
@@ -6,6 +6,7 @@ import habittracker.paymentservice.model.dto.PlanRequestDTO;
 import habittracker.paymentservice.service.PlanService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +22,7 @@ import java.util.List;
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/plan")
+@Observed(name = "payment.controller")
 public class PlanController {
 
     private final PlanService planService;
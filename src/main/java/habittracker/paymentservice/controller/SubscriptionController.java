@@ -3,29 +3,52 @@ package habittracker.paymentservice.controller;
 import com.braintreegateway.Result;
 import com.braintreegateway.Subscription;
 import com.braintreegateway.SubscriptionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobRequestDTO;
 import habittracker.paymentservice.model.dto.SubscriptionRequestDTO;
 import habittracker.paymentservice.service.SubscriptionService;
+import habittracker.paymentservice.service.job.SubscriptionJobEngine;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Tag(name = "Subscription", description = "Subscription controller")
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/subscription")
+@Observed(name = "payment.controller")
 public class SubscriptionController {
 
+    // отдаём клиенту данные порциями по мере чтения страниц проекции
+    private static final int FLUSH_EVERY = 50;
+
     private final SubscriptionService subService;
+    private final ObjectMapper objectMapper;
+    private final SubscriptionJobEngine jobEngine;
 
     @Operation(summary = "Get all subscriptions")
     @GetMapping("/search/all")
@@ -33,10 +56,65 @@ public class SubscriptionController {
         return ResponseEntity.ok(subService.searchAll());
     }
 
+    @Operation(summary = "Stream all subscriptions as NDJSON, one subscription per line")
+    @GetMapping(value = "/search/all/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllSubscription() {
+        ObjectWriter writer = objectMapper.writerFor(SubscriptionInfoDTO.class);
+
+        StreamingResponseBody body = outputStream -> {
+            AtomicInteger written = new AtomicInteger();
+            try {
+                subService.streamAll(subscription -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(subscription));
+                        outputStream.write('\n');
+                        if (written.incrementAndGet() % FLUSH_EVERY == 0) {
+                            outputStream.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            outputStream.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @Operation(summary = "Get subscription by ID")
     @GetMapping("/search/id")
-    public ResponseEntity<Subscription> getSubscriptionById(@RequestBody String id) {
-        return ResponseEntity.ok(subService.findSubscriptionById(id));
+    public ResponseEntity<SubscriptionInfoDTO> getSubscriptionById(@RequestBody String id) {
+        return ResponseEntity.ok(subService.getSubscriptionInfo(id));
+    }
+
+    @Operation(summary = "Get subscriptions by status")
+    @GetMapping("/search/status/{status}")
+    public ResponseEntity<List<SubscriptionInfoDTO>> getSubscriptionsByStatus(
+            @PathVariable Subscription.Status status) {
+        return ResponseEntity.ok(subService.searchByStatus(status));
+    }
+
+    @Operation(summary = "Get subscriptions by plan ID")
+    @GetMapping("/search/plan/{planId}")
+    public ResponseEntity<List<SubscriptionInfoDTO>> getSubscriptionsByPlan(@PathVariable String planId) {
+        return ResponseEntity.ok(subService.searchByPlanId(planId));
+    }
+
+    @Operation(summary = "Get subscriptions with the next billing date in the range, both ends inclusive")
+    @GetMapping("/search/next-billing")
+    public ResponseEntity<List<SubscriptionInfoDTO>> getSubscriptionsByNextBillingDate(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(subService.searchByNextBillingDate(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(summary = "Get default subscription request")
@@ -82,4 +160,26 @@ public class SubscriptionController {
     public ResponseEntity<Result<Subscription>> deleteSubscription(@RequestBody Map<String, String> body) {
         return ResponseEntity.ok(subService.deleteSubscription(body.get("customerId"), body.get("id")));
     }
+
+    @Operation(summary = "Start a job that cancels or migrates every subscription of a plan and/or status")
+    @PostMapping("/jobs")
+    public ResponseEntity<SubscriptionJobDTO> submitJob(@Valid @RequestBody SubscriptionJobRequestDTO request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobEngine.submit(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get subscription job progress")
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<SubscriptionJobDTO> getJob(@PathVariable String id) {
+        return ResponseEntity.of(jobEngine.find(id));
+    }
+
+    @Operation(summary = "Stop a subscription job, already processed subscriptions stay changed")
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<SubscriptionJobDTO> cancelJob(@PathVariable String id) {
+        return ResponseEntity.of(jobEngine.cancel(id));
+    }
 }
@@ -2,31 +2,54 @@ package habittracker.paymentservice.controller;
 
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import habittracker.paymentservice.model.dto.BatchItemResultDTO;
+import habittracker.paymentservice.model.dto.BatchRequestDTO;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import habittracker.paymentservice.model.dto.TransactionPageDTO;
+import habittracker.paymentservice.model.dto.TransactionSearchCriteriaDTO;
 import habittracker.paymentservice.service.TransactionService;
+import habittracker.paymentservice.service.batch.BatchAction;
+import habittracker.paymentservice.service.batch.TransactionBatchProcessor;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/payment")
 @RequiredArgsConstructor
 @Slf4j
 @Tag(name = "Transaction", description = "Transaction controller")
+@Observed(name = "payment.controller")
 public class TransactionController {
 
+    // заголовок ответа пакетной операции: с этим batchId прерванный пакет можно продолжить
+    public static final String BATCH_ID_HEADER = "Batch-Id";
+
     private final TransactionService transactionService;
+    private final TransactionBatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/show/{transactionId}")
     @Operation(summary = "Get transaction by id from Braintree Data Base")
@@ -34,12 +57,31 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getTransactionByBraintree(transactionId));
     }
 
+    @GetMapping("/details/{transactionId}")
+    @Operation(summary = "Get transaction details from the local ledger, falling back to Braintree")
+    public ResponseEntity<TransactionDetailsDTO> getTransactionDetails(@PathVariable String transactionId) {
+        return ResponseEntity.ok(transactionService.getTransactionDetails(transactionId));
+    }
+
     @GetMapping("/search")
     @Operation(summary = "Get all transactions where a card number starting with \"4111\" from Braintree Data Base")
     public ResponseEntity<List<TransactionInfoDTO>> getTransactionsBySearchRequest() {
         return ResponseEntity.ok(transactionService.getTransactionsBySearchRequest());
     }
 
+    @GetMapping("/search/page")
+    @Operation(summary = "Search transactions by date range, status, type and amount; "
+            + "returns one page and a cursor for the next one")
+    public ResponseEntity<TransactionPageDTO> searchTransactions(
+            @Valid @ModelAttribute TransactionSearchCriteriaDTO criteria) {
+        try {
+            return ResponseEntity.ok(transactionService.searchTransactions(criteria));
+        } catch (IllegalArgumentException e) {
+            log.warn("Отклонён поиск транзакций: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/refund")
     @Operation(summary = "Make a refund of the transaction")
     public ResponseEntity<Result<Transaction>> refundTransactionByBraintree(@RequestBody Map<String, String> body) {
@@ -64,4 +106,61 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.cancelTransactionById(transactionId));
     }
 
+    @PostMapping(value = "/batch/refund", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Refund transactions in bulk; streams one NDJSON result line per transaction")
+    public ResponseEntity<StreamingResponseBody> refundTransactions(@Valid @RequestBody BatchRequestDTO request) {
+        return runBatch(BatchAction.REFUND, request);
+    }
+
+    @PostMapping(value = "/batch/void", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Void transactions in bulk; streams one NDJSON result line per transaction")
+    public ResponseEntity<StreamingResponseBody> voidTransactions(@Valid @RequestBody BatchRequestDTO request) {
+        return runBatch(BatchAction.VOID, request);
+    }
+
+    @PostMapping(value = "/batch/cancel", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Cancel transactions in bulk; streams one NDJSON result line per transaction")
+    public ResponseEntity<StreamingResponseBody> cancelTransactions(@Valid @RequestBody BatchRequestDTO request) {
+        return runBatch(BatchAction.CANCEL, request);
+    }
+
+    @GetMapping("/batch/{batchId}")
+    @Operation(summary = "Get saved results of a batch operation")
+    public ResponseEntity<List<BatchItemResultDTO>> getBatchProgress(@PathVariable String batchId) {
+        return ResponseEntity.ok(batchProcessor.progress(batchId));
+    }
+
+    private ResponseEntity<StreamingResponseBody> runBatch(BatchAction action, BatchRequestDTO request) {
+        String batchId = request.getBatchId() != null ? request.getBatchId() : UUID.randomUUID().toString();
+        try {
+            batchProcessor.validate(batchId, action, request.getIds());
+        } catch (IllegalArgumentException e) {
+            log.warn("Отклонён пакет {}: {}", batchId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("пакет {} {}: {} транзакций", batchId, action, request.getIds().size());
+        ObjectWriter writer = objectMapper.writerFor(BatchItemResultDTO.class);
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                batchProcessor.run(batchId, action, request.getIds(), result -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(result));
+                        outputStream.write('\n');
+                        // каждая строка - завершённая операция, клиент должен видеть прогресс сразу
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(BATCH_ID_HEADER, batchId)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
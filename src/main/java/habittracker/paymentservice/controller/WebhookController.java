@@ -0,0 +1,52 @@
+package habittracker.paymentservice.controller;
+
+import com.braintreegateway.exceptions.InvalidSignatureException;
+import habittracker.paymentservice.service.webhook.WebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Приём уведомлений Braintree. Ответ не ждёт обработки: после проверки подписи
+ * уведомление только ставится в очередь, поэтому время ответа не зависит от его содержимого.
+ */
+@RestController
+@RequestMapping("/api/payment/webhooks")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Webhook", description = "Braintree webhook receiver")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+
+    @PostMapping(value = "/braintree", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    @Operation(summary = "Receive a Braintree webhook notification")
+    public ResponseEntity<Void> receiveNotification(@RequestParam("bt_signature") String signature,
+                                                    @RequestParam("bt_payload") String payload) {
+        try {
+            if (webhookService.accept(signature, payload)) {
+                return ResponseEntity.ok().build();
+            }
+            // Braintree повторит доставку при ответе не 2xx
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (InvalidSignatureException e) {
+            log.warn("Отклонено уведомление с неверной подписью: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    @GetMapping("/braintree")
+    @Operation(summary = "Answer the Braintree webhook verification challenge")
+    public ResponseEntity<String> verify(@RequestParam("bt_challenge") String challenge) {
+        return ResponseEntity.ok(webhookService.verify(challenge));
+    }
+}
@@ -0,0 +1,110 @@
+package habittracker.paymentservice.controller.filter;
+
+import habittracker.paymentservice.service.admission.AdmissionLimiter;
+import habittracker.paymentservice.service.admission.EndpointClass;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Отклоняет запрос с 429, если лимит одновременных запросов его класса исчерпан,
+ * и сообщает {@link AdmissionLimiter} время выполнения допущенных запросов.
+ * Потоковый ответ (StreamingResponseBody, NDJSON) пишется после выхода из цепочки фильтров
+ * в асинхронном режиме, поэтому его слот освобождается по завершении, таймауту или ошибке
+ * асинхронной обработки, и в задержку входит вся передача тела.
+ * Асинхронные dispatch-и фильтр не проходят: слот занят один раз на весь запрос.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AdmissionLimiter admissionLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admissionLimiter.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        EndpointClass endpointClass = admissionLimiter.classify(path);
+        if (!admissionLimiter.tryAcquire(endpointClass)) {
+            log.warn("Запрос {} {} отклонён: исчерпан лимит класса {}", request.getMethod(), path, endpointClass);
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Server is overloaded, retry later");
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(endpointClass, started));
+            } else {
+                release(endpointClass, started);
+            }
+        }
+    }
+
+    private void release(EndpointClass endpointClass, long started) {
+        admissionLimiter.release(endpointClass, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    /**
+     * Освобождает слот один раз: после таймаута или ошибки контейнер ещё вызывает onComplete.
+     */
+    private final class ReleaseOnCompletion implements AsyncListener {
+
+        private final EndpointClass endpointClass;
+        private final long started;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnCompletion(EndpointClass endpointClass, long started) {
+            this.endpointClass = endpointClass;
+            this.started = started;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            releaseOnce();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            releaseOnce();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            releaseOnce();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // повторный startAsync сбрасывает слушателей: без этого слот не освободится
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void releaseOnce() {
+            if (released.compareAndSet(false, true)) {
+                release(endpointClass, started);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package habittracker.paymentservice.controller.filter;
+
+import habittracker.paymentservice.service.idempotency.IdempotencyClaim;
+import habittracker.paymentservice.service.idempotency.IdempotencyService;
+import habittracker.paymentservice.service.idempotency.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Делает POST-запросы оплаты и возврата идемпотентными.
+ * Ключ передаётся заголовком Idempotency-Key или, для HTML-формы, скрытым полем idempotency_key.
+ * Запросы без ключа обрабатываются как раньше.
+ * С ключом сохраняется отпечаток параметров и тела запроса: повтор ключа с другими данными получает 422,
+ * а не ответ на первый запрос.
+ * Ответ 5xx или исключение освобождают ключ, чтобы клиент мог повторить запрос.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String FORM_PARAMETER = "idempotency_key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = keyOf(request);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Idempotency key is too long");
+            return;
+        }
+
+        String path = request.getRequestURI();
+        // тело формы уже разобрано в параметры, остальные тела читаются заранее, чтобы войти в отпечаток
+        HttpServletRequest buffered = isForm(request)
+                ? request
+                : new CachedBodyRequest(request, StreamUtils.copyToByteArray(request.getInputStream()));
+        String hash = fingerprint(buffered);
+        IdempotencyClaim claim = idempotencyService.claim(key, path, hash);
+        switch (claim.outcome()) {
+            case REPLAY -> replay(claim.response(), response);
+            case IN_PROGRESS -> {
+                log.warn("Повтор запроса {} с ключом {}, пока первый ещё выполняется", path, key);
+                response.sendError(HttpStatus.CONFLICT.value(), "Request with this idempotency key is in progress");
+            }
+            case MISMATCH -> {
+                log.warn("Ключ идемпотентности {} уже использован для другого запроса, получен {}", key, path);
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                        "Idempotency key was used for another request");
+            }
+            case ACQUIRED -> execute(key, path, hash, buffered, response, chain);
+        }
+    }
+
+    private void execute(String key, String path, String hash, HttpServletRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyService.complete(key, new StoredResponse(path, hash, wrapper.getStatus(),
+                        wrapper.getHeader(HttpHeaders.LOCATION), wrapper.getContentType(),
+                        wrapper.getContentAsByteArray(), Instant.now()));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyService.release(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.body() != null && stored.body().length > 0) {
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private String keyOf(HttpServletRequest request) {
+        String key = request.getHeader(HEADER);
+        if (key == null || key.isBlank()) {
+            key = request.getParameter(FORM_PARAMETER);
+        }
+        return key == null || key.isBlank() ? null : key.strip();
+    }
+
+    private static boolean isForm(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && (contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                || contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE));
+    }
+
+    /**
+     * SHA-256 метода, параметров (кроме самого ключа) и тела запроса.
+     */
+    private static String fingerprint(HttpServletRequest request) {
+        MessageDigest digest = sha256();
+        update(digest, request.getMethod());
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            if (FORM_PARAMETER.equals(parameter.getKey())) {
+                continue;
+            }
+            update(digest, parameter.getKey());
+            for (String value : parameter.getValue()) {
+                update(digest, value);
+            }
+        }
+        if (request instanceof CachedBodyRequest cached) {
+            digest.update(cached.body);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // разделитель, чтобы "ab"+"c" и "a"+"bc" давали разные отпечатки
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Запрос с заранее прочитанным телом, которое контроллер может прочитать ещё раз.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Тело запроса уже прочитано");
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
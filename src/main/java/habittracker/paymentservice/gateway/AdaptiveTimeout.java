@@ -0,0 +1,65 @@
+package habittracker.paymentservice.gateway;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Таймаут ожидания ответа одной операции Braintree, следующий за её фактической задержкой:
+ * перцентиль последних windowSize вызовов, умноженный на multiplier, в пределах [min, max].
+ * Вызов, не дождавшийся ответа, записывается с задержкой, равной таймауту, поэтому при общем
+ * замедлении Braintree таймаут растёт до max, а не отрезает все вызовы.
+ */
+public class AdaptiveTimeout {
+
+    private final GatewayProperties.Timeout settings;
+    private final long[] samples;
+
+    private int next;
+    private int count;
+    // отсортированная копия окна, из неё же берётся задержка хеджирования
+    private long[] sorted = new long[0];
+    private volatile Duration current;
+
+    public AdaptiveTimeout(GatewayProperties.Timeout settings) {
+        this.settings = settings;
+        this.samples = new long[settings.getWindowSize()];
+        this.current = settings.getMax();
+    }
+
+    public Duration current() {
+        return current;
+    }
+
+    /**
+     * @return перцентиль задержки последних вызовов или null, пока вызовов меньше minSamples
+     */
+    public synchronized Duration percentile(double percentile) {
+        if (count < settings.getMinSamples()) {
+            return null;
+        }
+        return Duration.ofNanos(percentileOf(percentile));
+    }
+
+    public synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (count < settings.getMinSamples()) {
+            return;
+        }
+        sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        Duration timeout = Duration.ofNanos((long) (percentileOf(settings.getPercentile()) * settings.getMultiplier()));
+        if (timeout.compareTo(settings.getMin()) < 0) {
+            timeout = settings.getMin();
+        } else if (timeout.compareTo(settings.getMax()) > 0) {
+            timeout = settings.getMax();
+        }
+        current = timeout;
+    }
+
+    private long percentileOf(double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
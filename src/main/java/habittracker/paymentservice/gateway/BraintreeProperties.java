@@ -0,0 +1,37 @@
+package habittracker.paymentservice.gateway;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.braintree")
+public class BraintreeProperties {
+
+    // sandbox или production
+    private String environment;
+
+    // пустые ключи берутся из файла .env
+    private String merchantId;
+    private String publicKey;
+    private String privateKey;
+
+    private Transport transport = new Transport();
+
+    /**
+     * Таймауты HTTP-запросов к Braintree, задаются на экземпляре gateway.
+     * SDK ходит через HttpURLConnection, поэтому пул соединений - это keep-alive кэш JDK;
+     * его параметры общие для всей JVM и задаются при запуске (-Dhttp.maxConnections и т.п.).
+     */
+    @Getter
+    @Setter
+    public static class Transport {
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        private Duration readTimeout = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,126 @@
+package habittracker.paymentservice.gateway;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Circuit breaker одной операции Braintree.
+ * В закрытом состоянии считает отказы среди последних вызовов и при превышении порога открывается:
+ * вызовы отклоняются сразу, не дожидаясь таймаута сокета. По истечении openDuration пропускает
+ * несколько пробных вызовов (полуоткрытое состояние): успех всех закрывает breaker, любой отказ
+ * открывает его снова.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final GatewayProperties.Breaker settings;
+    private final Clock clock;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int failures;
+    private Instant openedAt;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    public CircuitBreaker(GatewayProperties.Breaker settings, Clock clock) {
+        this.settings = settings;
+        this.clock = clock;
+        this.window = new boolean[settings.getWindowSize()];
+    }
+
+    /**
+     * @return true, если вызов можно выполнять; после него обязателен один из onSuccess, onFailure, onIgnored
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(settings.getOpenDuration()))) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= settings.getHalfOpenProbes()) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probesSucceeded >= settings.getHalfOpenProbes()) {
+                close();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        record(true);
+        if (calls >= settings.getMinimumCalls() && failures >= settings.getFailureRateThreshold() * calls) {
+            open();
+        }
+    }
+
+    /**
+     * Вызов завершился, не сказав ничего о состоянии Braintree (например, прерван): освобождает пробный слот.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.instant();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,23 @@
+package habittracker.paymentservice.gateway;
+
+import java.util.function.Supplier;
+
+/**
+ * Единая точка выполнения вызовов Braintree.
+ */
+public interface GatewayExecutor {
+
+    /**
+     * Выполняет вызов в рамках лимитов указанной операции.
+     *
+     * @throws GatewayRejectedException если лимит и очередь операции заняты, её circuit breaker открыт
+     *                                   или чтение не получило ответа за адаптивный таймаут
+     */
+    <T> T execute(GatewayOperation operation, Supplier<T> call);
+
+    /**
+     * То же, что {@link #execute}, но если ответ задерживается, параллельно отправляет второй такой же
+     * запрос и возвращает первый ответ. Только для идемпотентных чтений.
+     */
+    <T> T executeHedged(GatewayOperation operation, Supplier<T> call);
+}
@@ -0,0 +1,658 @@
+package habittracker.paymentservice.gateway;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.exceptions.GatewayTimeoutException;
+import com.braintreegateway.exceptions.RequestTimeoutException;
+import com.braintreegateway.exceptions.ServerException;
+import com.braintreegateway.exceptions.ServiceUnavailableException;
+import com.braintreegateway.exceptions.TooManyRequestsException;
+import com.braintreegateway.exceptions.UnexpectedException;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет вызовы Braintree на виртуальных потоках.
+ * Для каждой операции действует отдельный лимит параллельности и ограниченная очередь ожидания,
+ * поэтому всплеск медленных поисков не отнимает слоты у продаж.
+ * Каждую операцию защищает свой {@link CircuitBreaker}: при деградации Braintree вызовы отклоняются сразу,
+ * а не держат поток до таймаута сокета. Чтения дополнительно ограничены {@link AdaptiveTimeout}.
+ * Идемпотентные чтения через {@link #executeHedged} при задержке ответа дублируются вторым запросом
+ * в пределах общего бюджета.
+ * Частоту вызовов ограничивает {@link TokenBucket}: общая квота инстанса, в которой операции
+ * с низким приоритетом не могут забрать запас продаж и возвратов, и при необходимости своя квота операции.
+ * Не получивший токена за rateWait вызов отклоняется {@link GatewayThrottledException}, не занимая слот.
+ * Каждый вызов оформляется span-ом payment.gateway.request, дочерним к span-у вызвавшего сервиса;
+ * контекст трассировки переносится и в виртуальный поток, выполняющий HTTP-запрос.
+ */
+@Slf4j
+@Component
+public class GatewayExecutorImpl implements GatewayExecutor {
+
+    // ответы, говорящие о сбое Braintree, а не об ошибке в запросе; только они открывают circuit breaker
+    private static final List<Class<? extends RuntimeException>> GATEWAY_FAILURES = List.of(
+            ServerException.class,
+            ServiceUnavailableException.class,
+            TooManyRequestsException.class,
+            GatewayTimeoutException.class,
+            RequestTimeoutException.class,
+            UnexpectedException.class);
+
+    private static final String OBSERVATION_NAME = "payment.gateway.request";
+    private static final Observation.Event HEDGE_EVENT = Observation.Event.of("hedge", "второй запрос отправлен");
+
+    // логи Braintree из виртуального потока должны нести traceId вызывающего запроса
+    private final ExecutorService executor = ContextExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor(),
+            ContextSnapshotFactory.builder().build()::captureAll);
+    private final Map<GatewayOperation, Bulkhead> bulkheads = new EnumMap<>(GatewayOperation.class);
+    private final Map<GatewayOperation, Guard> guards = new EnumMap<>(GatewayOperation.class);
+    private final Map<GatewayOperation, Throttle> throttles = new EnumMap<>(GatewayOperation.class);
+    private final GatewayProperties.Hedging hedging;
+    private final HedgeBudget hedgeBudget;
+    private final ObservationRegistry observationRegistry;
+
+    public GatewayExecutorImpl(GatewayProperties properties, MeterRegistry meterRegistry,
+                               ObservationRegistry observationRegistry) {
+        TokenBucket quota = quota(properties.getRateLimit(), meterRegistry);
+        for (GatewayOperation operation : GatewayOperation.values()) {
+            GatewayProperties.Limit limit = properties.limitFor(operation);
+            bulkheads.put(operation, new Bulkhead(operation, limit, meterRegistry));
+            guards.put(operation, new Guard(operation, limit, properties, meterRegistry));
+            double floor = quota == null ? 0 : properties.getRateLimit().floorFor(limit.getPriority());
+            throttles.put(operation, new Throttle(operation, limit, quota, floor, meterRegistry));
+        }
+        this.hedging = properties.getHedging();
+        this.hedgeBudget = new HedgeBudget(hedging.getBudgetRatio(), hedging.getBudgetBurst());
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public <T> T execute(GatewayOperation operation, Supplier<T> call) {
+        return execute(operation, call, false);
+    }
+
+    @Override
+    public <T> T executeHedged(GatewayOperation operation, Supplier<T> call) {
+        return execute(operation, call, hedging.isEnabled());
+    }
+
+    private <T> T execute(GatewayOperation operation, Supplier<T> call, boolean hedged) {
+        String tag = operation.name().toLowerCase();
+        Observation observation = Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName("braintree " + tag)
+                .lowCardinalityKeyValue("operation", tag)
+                .lowCardinalityKeyValue("hedged", String.valueOf(hedged))
+                .start();
+        // span вызова - текущий, пока вызов выполняется: от него наследуются span-ы виртуальных потоков
+        Observation.Scope scope = observation.openScope();
+        try {
+            T result = call(operation, call, hedged);
+            observation.lowCardinalityKeyValue("outcome", Outcome.of(result).tag);
+            return result;
+        } catch (RuntimeException | Error e) {
+            observation.lowCardinalityKeyValue("outcome", Outcome.EXCEPTION.tag);
+            observation.error(e);
+            throw e;
+        } finally {
+            scope.close();
+            observation.stop();
+        }
+    }
+
+    private <T> T call(GatewayOperation operation, Supplier<T> call, boolean hedged) {
+        Bulkhead bulkhead = bulkheads.get(operation);
+        Guard guard = guards.get(operation);
+        List<Attempt<T>> attempts = new ArrayList<>(2);
+        // ожидание квоты не держит слот операции
+        Throttle throttle = throttles.get(operation);
+        throttle.acquire();
+        try {
+            bulkhead.acquire();
+        } catch (GatewayRejectedException e) {
+            // вызов не состоялся: токен возвращается в квоту
+            throttle.release();
+            throw e;
+        }
+        // слот принадлежит запросу и освобождается, когда запрос завершится
+        attempts.add(new Attempt<>(bulkhead, call));
+        try {
+            guard.acquire();
+            long started = System.nanoTime();
+            Duration timeout = guard.timeout();
+            CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+            attempts.get(0).submit(completion);
+            try {
+                Future<T> first = hedged
+                        ? hedge(guard, bulkhead, call, completion, attempts, timeout)
+                        : attempts.get(0).future;
+                T result = await(operation, first, remaining(timeout, started));
+                guard.onResponse(elapsedSince(started), Outcome.of(result));
+                return result;
+            } catch (TimeoutException e) {
+                throw guard.onTimeout(elapsedSince(started));
+            } catch (GatewayRejectedException | Error e) {
+                guard.onIgnored();
+                throw e;
+            } catch (RuntimeException e) {
+                if (isGatewayFailure(e)) {
+                    guard.onFailure(elapsedSince(started));
+                } else {
+                    // Braintree ответил, ошибка в самом запросе
+                    guard.onResponse(elapsedSince(started), Outcome.EXCEPTION);
+                }
+                throw e;
+            }
+        } finally {
+            // проигравший и не дождавшийся ответа запросы больше не нужны
+            attempts.forEach(Attempt::cancel);
+        }
+    }
+
+    /**
+     * Ждёт ответа до задержки хеджирования, затем при свободном слоте и остатке бюджета
+     * отправляет второй такой же запрос.
+     *
+     * @return завершившийся запрос или первый, если второй не отправлялся
+     */
+    private <T> Future<T> hedge(Guard guard, Bulkhead bulkhead, Supplier<T> call, CompletionService<T> completion,
+                                List<Attempt<T>> attempts, Duration timeout) throws TimeoutException {
+        long started = System.nanoTime();
+        Future<T> primary = attempts.get(0).future;
+        hedgeBudget.deposit();
+        Duration delay = guard.hedgeDelay(hedging);
+        if (delay == null || (timeout != null && delay.compareTo(timeout) >= 0)) {
+            return primary;
+        }
+        Future<T> done = poll(guard.operation, completion, delay);
+        if (done != null) {
+            return done;
+        }
+        // второй запрос занимает слот операции, но не ждёт его в очереди
+        if (!bulkhead.tryAcquire()) {
+            return primary;
+        }
+        // второй запрос расходует квоту так же, как первый, но не ждёт токена
+        Throttle throttle = throttles.get(guard.operation);
+        if (!throttle.tryAcquire()) {
+            bulkhead.release();
+            return primary;
+        }
+        if (!hedgeBudget.withdraw()) {
+            throttle.release();
+            bulkhead.release();
+            return primary;
+        }
+        Attempt<T> second = new Attempt<>(bulkhead, call);
+        attempts.add(second);
+        second.submit(completion);
+        guard.onHedge();
+        Observation observation = observationRegistry.getCurrentObservation();
+        if (observation != null) {
+            observation.event(HEDGE_EVENT);
+        }
+        done = poll(guard.operation, completion, remaining(timeout, started));
+        if (done == null) {
+            throw new TimeoutException();
+        }
+        if (done != primary) {
+            guard.onHedgeWin();
+        }
+        return done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T await(GatewayOperation operation, Future<T> future, Duration timeout) throws TimeoutException {
+        try {
+            return timeout == null
+                    ? future.get()
+                    : future.get(Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayRejectedException(operation, "ожидание ответа прервано");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return первый завершившийся запрос или null, если за timeout не завершился ни один
+     */
+    private <T> Future<T> poll(GatewayOperation operation, CompletionService<T> attempts, Duration timeout) {
+        try {
+            return timeout == null
+                    ? attempts.take()
+                    : attempts.poll(Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayRejectedException(operation, "ожидание ответа прервано");
+        }
+    }
+
+    private static TokenBucket quota(GatewayProperties.RateLimit rateLimit, MeterRegistry meterRegistry) {
+        if (!rateLimit.isEnabled()) {
+            return null;
+        }
+        TokenBucket quota = new TokenBucket(rateLimit.getRatePerSecond(), rateLimit.getBurst(), Clock.systemUTC());
+        Gauge.builder("payment.gateway.rate.tokens", quota, TokenBucket::available)
+                .description("Запас общей квоты вызовов Braintree; отрицательный - вызовы ждут токенов")
+                .register(meterRegistry);
+        return quota;
+    }
+
+    private static boolean isGatewayFailure(RuntimeException e) {
+        return GATEWAY_FAILURES.stream().anyMatch(failure -> failure.isInstance(e));
+    }
+
+    private static Duration elapsedSince(long started) {
+        return Duration.ofNanos(System.nanoTime() - started);
+    }
+
+    private static Duration remaining(Duration timeout, long started) {
+        return timeout == null ? null : timeout.minus(elapsedSince(started));
+    }
+
+    /**
+     * Запрос, занявший слот операции. Слот освобождает сам запрос по завершении, а не вызывающий:
+     * HTTP-запрос Braintree не прерывается отменой и после таймаута продолжает занимать соединение.
+     * Запрос, отменённый до начала выполнения, не выполняется, и слот освобождает отмена.
+     */
+    private static final class Attempt<T> implements Callable<T> {
+
+        private final Bulkhead bulkhead;
+        private final Supplier<T> call;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Future<T> future;
+
+        Attempt(Bulkhead bulkhead, Supplier<T> call) {
+            this.bulkhead = bulkhead;
+            this.call = call;
+        }
+
+        void submit(CompletionService<T> completion) {
+            future = completion.submit(this);
+        }
+
+        @Override
+        public T call() {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new CancellationException();
+            }
+            try {
+                return call.get();
+            } finally {
+                bulkhead.release();
+            }
+        }
+
+        void cancel() {
+            if (future != null) {
+                future.cancel(true);
+            }
+            if (claimed.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private static final class Bulkhead {
+
+        private final GatewayOperation operation;
+        private final GatewayProperties.Limit limit;
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter rejected;
+
+        Bulkhead(GatewayOperation operation, GatewayProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.operation = operation;
+            this.limit = limit;
+            this.permits = new Semaphore(limit.getMaxConcurrent(), true);
+
+            String tag = operation.name().toLowerCase();
+            Gauge.builder("payment.gateway.queue.depth", waiting, AtomicInteger::get)
+                    .description("Вызовы Braintree, ожидающие свободного слота")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            Gauge.builder("payment.gateway.active", permits,
+                            semaphore -> limit.getMaxConcurrent() - semaphore.availablePermits())
+                    .description("Выполняющиеся вызовы Braintree")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("payment.gateway.rejected")
+                    .description("Вызовы Braintree, отклонённые из-за переполнения очереди")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+        }
+
+        void acquire() {
+            if (permits.tryAcquire()) {
+                return;
+            }
+            if (waiting.incrementAndGet() > limit.getMaxQueued()) {
+                waiting.decrementAndGet();
+                reject("очередь заполнена");
+            }
+            try {
+                if (!permits.tryAcquire(limit.getQueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    reject("нет свободного слота за " + limit.getQueueTimeout());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject("ожидание слота прервано");
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        boolean tryAcquire() {
+            return permits.tryAcquire();
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        private void reject(String reason) {
+            rejected.increment();
+            log.warn("Вызов Braintree {} отклонён: {}", operation, reason);
+            throw new GatewayRejectedException(operation, reason);
+        }
+    }
+
+    /**
+     * Квота вызовов операции: токен своей квоты, если она задана, и токен общей не ниже floor приоритета.
+     */
+    private static final class Throttle {
+
+        private final GatewayOperation operation;
+        private final TokenBucket own;
+        private final TokenBucket quota;
+        private final double floor;
+        private final Duration maxWait;
+        private final Counter delayed;
+        private final Counter throttled;
+
+        Throttle(GatewayOperation operation, GatewayProperties.Limit limit, TokenBucket quota, double floor,
+                 MeterRegistry meterRegistry) {
+            this.operation = operation;
+            this.own = limit.getRatePerSecond() > 0
+                    ? new TokenBucket(limit.getRatePerSecond(), Math.max(1, limit.getRatePerSecond()),
+                            Clock.systemUTC())
+                    : null;
+            this.quota = quota;
+            this.floor = floor;
+            this.maxWait = limit.getRateWait();
+
+            String tag = operation.name().toLowerCase();
+            this.delayed = Counter.builder("payment.gateway.rate.delayed")
+                    .description("Вызовы Braintree, ждавшие токена квоты")
+                    .tag("operation", tag)
+                    .tag("priority", limit.getPriority().name().toLowerCase())
+                    .register(meterRegistry);
+            this.throttled = Counter.builder("payment.gateway.rate.rejected")
+                    .description("Вызовы Braintree, отклонённые из-за исчерпанной квоты")
+                    .tag("operation", tag)
+                    .tag("priority", limit.getPriority().name().toLowerCase())
+                    .register(meterRegistry);
+        }
+
+        void acquire() {
+            Duration wait = reserve(maxWait);
+            if (wait == null) {
+                throttled.increment();
+                log.warn("Вызов Braintree {} отклонён: квота вызовов исчерпана", operation);
+                throw new GatewayThrottledException(operation, "квота вызовов исчерпана");
+            }
+            if (wait.isZero()) {
+                return;
+            }
+            delayed.increment();
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait.toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GatewayRejectedException(operation, "ожидание квоты прервано");
+            }
+        }
+
+        boolean tryAcquire() {
+            return reserve(Duration.ZERO) != null;
+        }
+
+        void release() {
+            if (own != null) {
+                own.release();
+            }
+            if (quota != null) {
+                quota.release();
+            }
+        }
+
+        /**
+         * @return ожидание до вызова, наибольшее из двух квот; null, если хотя бы одна не даст токен за maxWait
+         */
+        private Duration reserve(Duration maxWait) {
+            Duration ownWait = Duration.ZERO;
+            if (own != null) {
+                ownWait = own.reserve(0, maxWait);
+                if (ownWait == null) {
+                    return null;
+                }
+            }
+            if (quota == null) {
+                return ownWait;
+            }
+            Duration quotaWait = quota.reserve(floor, maxWait);
+            if (quotaWait == null) {
+                if (own != null) {
+                    own.release();
+                }
+                return null;
+            }
+            return quotaWait.compareTo(ownWait) > 0 ? quotaWait : ownWait;
+        }
+    }
+
+    private static final class Guard {
+
+        private final GatewayOperation operation;
+        private final CircuitBreaker circuitBreaker;
+        private final AdaptiveTimeout adaptiveTimeout;
+        private final boolean timeoutEnabled;
+        private final Counter shortCircuited;
+        private final Counter timedOut;
+        private final Counter hedges;
+        private final Counter hedgeWins;
+        private final Map<Outcome, Timer> calls = new EnumMap<>(Outcome.class);
+
+        Guard(GatewayOperation operation, GatewayProperties.Limit limit, GatewayProperties properties,
+              MeterRegistry meterRegistry) {
+            this.operation = operation;
+            this.circuitBreaker = new CircuitBreaker(properties.getCircuitBreaker(), Clock.systemUTC());
+            this.adaptiveTimeout = new AdaptiveTimeout(properties.getTimeout());
+            this.timeoutEnabled = limit.isAdaptiveTimeout();
+
+            String tag = operation.name().toLowerCase();
+            Gauge.builder("payment.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                    .description("Состояние circuit breaker: 0 - закрыт, 1 - открыт, 2 - полуоткрыт")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            if (timeoutEnabled) {
+                Gauge.builder("payment.gateway.timeout", adaptiveTimeout,
+                                timeout -> timeout.current().toNanos() / 1e9)
+                        .description("Текущий адаптивный таймаут ответа Braintree, секунды")
+                        .tag("operation", tag)
+                        .register(meterRegistry);
+            }
+            this.shortCircuited = Counter.builder("payment.gateway.short-circuited")
+                    .description("Вызовы Braintree, отклонённые открытым circuit breaker")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            this.timedOut = Counter.builder("payment.gateway.timeouts")
+                    .description("Вызовы Braintree, не дождавшиеся ответа за адаптивный таймаут")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            this.hedges = Counter.builder("payment.gateway.hedges")
+                    .description("Вторые запросы к Braintree, отправленные из-за задержки первого")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            this.hedgeWins = Counter.builder("payment.gateway.hedge.wins")
+                    .description("Вызовы Braintree, на которые второй запрос ответил раньше первого")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            for (Outcome outcome : Outcome.values()) {
+                calls.put(outcome, Timer.builder("payment.gateway.call")
+                        .description("Время ответа Braintree без ожидания слота")
+                        .tag("operation", tag)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        }
+
+        void acquire() {
+            if (!circuitBreaker.tryAcquire()) {
+                shortCircuited.increment();
+                throw new GatewayRejectedException(operation, "Braintree недоступен, вызовы временно отклоняются");
+            }
+        }
+
+        Duration timeout() {
+            return timeoutEnabled ? adaptiveTimeout.current() : null;
+        }
+
+        /**
+         * @return перцентиль задержки операции, но не меньше minDelay; null, пока задержка неизвестна
+         */
+        Duration hedgeDelay(GatewayProperties.Hedging hedging) {
+            Duration percentile = adaptiveTimeout.percentile(hedging.getPercentile());
+            if (percentile == null) {
+                return null;
+            }
+            return percentile.compareTo(hedging.getMinDelay()) < 0 ? hedging.getMinDelay() : percentile;
+        }
+
+        void onHedge() {
+            hedges.increment();
+        }
+
+        void onHedgeWin() {
+            hedgeWins.increment();
+        }
+
+        void onResponse(Duration latency, Outcome outcome) {
+            circuitBreaker.onSuccess();
+            adaptiveTimeout.record(latency);
+            calls.get(outcome).record(latency);
+        }
+
+        void onFailure(Duration latency) {
+            circuitBreaker.onFailure();
+            calls.get(Outcome.EXCEPTION).record(latency);
+        }
+
+        void onIgnored() {
+            circuitBreaker.onIgnored();
+        }
+
+        GatewayRejectedException onTimeout(Duration waited) {
+            Duration timeout = adaptiveTimeout.current();
+            // задержка не дождавшегося вызова не меньше таймаута: при общем замедлении таймаут растёт
+            adaptiveTimeout.record(waited);
+            circuitBreaker.onFailure();
+            calls.get(Outcome.EXCEPTION).record(waited);
+            timedOut.increment();
+            log.warn("Вызов Braintree {} не получил ответа за {}", operation, timeout);
+            return new GatewayRejectedException(operation, "нет ответа за " + timeout);
+        }
+    }
+
+    /**
+     * Общий для всех операций бюджет вторых запросов: каждый хеджируемый вызов пополняет его на budgetRatio,
+     * второй запрос тратит единицу. Поэтому при деградации Braintree хеджирование не умножает нагрузку.
+     */
+    private static final class HedgeBudget {
+
+        private final double ratio;
+        private final double burst;
+        private double balance;
+
+        HedgeBudget(double ratio, double burst) {
+            this.ratio = ratio;
+            this.burst = burst;
+        }
+
+        synchronized void deposit() {
+            balance = Math.min(burst, balance + ratio);
+        }
+
+        synchronized boolean withdraw() {
+            if (balance < 1) {
+                return false;
+            }
+            balance -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * Исход вызова для метрики payment.gateway.call. Отказ в валидации или отклонение платежа Braintree
+     * возвращает как неуспешный Result, а не исключением.
+     */
+    private enum Outcome {
+        SUCCESS("success"),
+        VALIDATION_ERROR("validation_error"),
+        EXCEPTION("exception");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        static Outcome of(Object result) {
+            return result instanceof Result<?> braintreeResult && !braintreeResult.isSuccess()
+                    ? VALIDATION_ERROR
+                    : SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package habittracker.paymentservice.gateway;
+
+/**
+ * Классы операций с Braintree. У каждого класса свой лимит параллельных вызовов,
+ * чтобы медленные поиски не занимали ресурсы, нужные для продаж.
+ */
+public enum GatewayOperation {
+    SALE,
+    REFUND,
+    SEARCH,
+    FIND,
+    SUBSCRIPTION,
+    PLAN,
+    CLIENT_TOKEN
+}
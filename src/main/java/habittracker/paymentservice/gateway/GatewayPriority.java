@@ -0,0 +1,11 @@
+package habittracker.paymentservice.gateway;
+
+/**
+ * Приоритет операции при разделе общей квоты вызовов Braintree.
+ * Операции ниже HIGH не могут израсходовать часть запаса, оставленную для более приоритетных.
+ */
+public enum GatewayPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,156 @@
+package habittracker.paymentservice.gateway;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.gateway")
+public class GatewayProperties {
+
+    /**
+     * Лимиты для операций, не перечисленных в limits.
+     */
+    private Limit defaults = new Limit();
+
+    private Map<GatewayOperation, Limit> limits = new EnumMap<>(GatewayOperation.class);
+
+    private Breaker circuitBreaker = new Breaker();
+
+    private Timeout timeout = new Timeout();
+
+    private Hedging hedging = new Hedging();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    public Limit limitFor(GatewayOperation operation) {
+        return limits.getOrDefault(operation, defaults);
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        // одновременно выполняемые вызовы
+        private int maxConcurrent = 16;
+
+        // вызовы, ожидающие свободного слота; сверх этого - мгновенный отказ
+        private int maxQueued = 32;
+
+        private Duration queueTimeout = Duration.ofSeconds(2);
+
+        // ждать ответ не дольше адаптивного таймаута. Только для чтений: запись, не дождавшаяся ответа,
+        // могла выполниться в Braintree, и повтор клиента её продублирует
+        private boolean adaptiveTimeout;
+
+        private GatewayPriority priority = GatewayPriority.NORMAL;
+
+        // собственная квота операции, вызовов в секунду; 0 - только общая квота
+        private double ratePerSecond;
+
+        // сколько вызов может ждать токена квоты; ноль - отказ сразу
+        private Duration rateWait = Duration.ofMillis(500);
+    }
+
+    /**
+     * Circuit breaker по последним вызовам операции: при доле отказов Braintree выше порога
+     * вызовы на время openDuration отклоняются сразу, затем несколько пробных вызовов решают,
+     * закрыть его или открыть снова.
+     */
+    @Getter
+    @Setter
+    public static class Breaker {
+
+        // доля отказов среди последних windowSize вызовов, при которой breaker открывается
+        private double failureRateThreshold = 0.5;
+
+        private int windowSize = 50;
+
+        // до стольких вызовов в окне доля отказов не считается
+        private int minimumCalls = 20;
+
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        // пробные вызовы в полуоткрытом состоянии; все должны пройти, чтобы breaker закрылся
+        private int halfOpenProbes = 3;
+    }
+
+    /**
+     * Адаптивный таймаут: перцентиль задержки последних вызовов, умноженный на multiplier,
+     * в пределах [min, max]. Пока вызовов меньше minSamples, действует max.
+     */
+    @Getter
+    @Setter
+    public static class Timeout {
+
+        private double percentile = 0.99;
+
+        private double multiplier = 2.0;
+
+        private Duration min = Duration.ofSeconds(1);
+
+        // не больше таймаута чтения HTTP-транспорта: дольше SDK всё равно не ждёт
+        private Duration max = Duration.ofSeconds(30);
+
+        private int windowSize = 200;
+
+        private int minSamples = 20;
+    }
+
+    /**
+     * Хеджирование идемпотентных чтений: если ответ не пришёл за перцентиль задержки операции,
+     * отправляется второй такой же запрос и берётся первый ответ.
+     * Вторые запросы расходуют общий бюджет, пополняемый каждым хеджируемым вызовом.
+     */
+    @Getter
+    @Setter
+    public static class Hedging {
+
+        private boolean enabled;
+
+        private double percentile = 0.95;
+
+        // раньше второй запрос не уходит: на быстрых ответах он только добавляет нагрузку
+        private Duration minDelay = Duration.ofMillis(50);
+
+        // вторых запросов не больше этой доли хеджируемых вызовов
+        private double budgetRatio = 0.05;
+
+        // запас вторых запросов, накопленный в спокойное время
+        private int budgetBurst = 10;
+    }
+
+    /**
+     * Общая квота вызовов Braintree на инстанс. Операции NORMAL и LOW не берут токены,
+     * когда запас опустился ниже их доли burst: остаток достаётся продажам и возвратам.
+     */
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        private double ratePerSecond = 50;
+
+        private int burst = 100;
+
+        // доля burst, недоступная операциям NORMAL
+        private double normalReserve = 0.2;
+
+        // доля burst, недоступная операциям LOW
+        private double lowReserve = 0.5;
+
+        public double floorFor(GatewayPriority priority) {
+            return switch (priority) {
+                case HIGH -> 0;
+                case NORMAL -> burst * normalReserve;
+                case LOW -> burst * lowReserve;
+            };
+        }
+    }
+}
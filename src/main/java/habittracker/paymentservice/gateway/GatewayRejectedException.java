@@ -0,0 +1,19 @@
+package habittracker.paymentservice.gateway;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class GatewayRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final GatewayOperation operation;
+
+    public GatewayRejectedException(GatewayOperation operation, String message) {
+        super("Вызов Braintree отклонён (" + operation + "): " + message);
+        this.operation = operation;
+    }
+}
@@ -0,0 +1,18 @@
+package habittracker.paymentservice.gateway;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Вызов не выполнен, потому что квота вызовов Braintree для его приоритета исчерпана.
+ * Braintree при этом не вызывался, запрос можно повторить позже.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class GatewayThrottledException extends GatewayRejectedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GatewayThrottledException(GatewayOperation operation, String message) {
+        super(operation, message);
+    }
+}
@@ -0,0 +1,91 @@
+package habittracker.paymentservice.gateway;
+
+import com.braintreegateway.ResourceCollection;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Постраничный обход результата поиска Braintree через {@link GatewayExecutor}.
+ * ResourceCollection догружает страницы по ходу итерации, и каждая догрузка - отдельный HTTP-запрос,
+ * который не проходил бы квоту вызовов, если обходить коллекцию внутри одного execute.
+ * Здесь поиск возвращает только id, а страницы по {@link #PAGE_SIZE} id загружаются поиском по id,
+ * каждая - своим вызовом execute: с токеном квоты, слотом операции и span-ом.
+ * Страницы загружаются лениво, поэтому между ними вызывающий не держит слот операции.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PagedSearch {
+
+    // размер страницы поиска Braintree: страница из стольких id загружается одним запросом
+    public static final int PAGE_SIZE = 50;
+
+    /**
+     * @param search поиск Braintree
+     * @param byIds  поиск по id одной страницы
+     */
+    public static <T> Iterable<T> of(GatewayExecutor executor, GatewayOperation operation,
+                                     Supplier<ResourceCollection<T>> search,
+                                     Function<List<String>, ResourceCollection<T>> byIds) {
+        return () -> new Pages<>(executor, operation, executor.execute(operation, () -> search.get().getIds()),
+                byIds);
+    }
+
+    /**
+     * Обход заранее известных id, например найденных другим поиском.
+     */
+    public static <T> Iterable<T> byIds(GatewayExecutor executor, GatewayOperation operation, List<String> ids,
+                                        Function<List<String>, ResourceCollection<T>> byIds) {
+        return () -> new Pages<>(executor, operation, ids, byIds);
+    }
+
+    private static final class Pages<T> implements Iterator<T> {
+
+        private final GatewayExecutor executor;
+        private final GatewayOperation operation;
+        private final List<String> ids;
+        private final Function<List<String>, ResourceCollection<T>> byIds;
+
+        private int loaded;
+        private Iterator<T> page = Collections.emptyIterator();
+
+        Pages(GatewayExecutor executor, GatewayOperation operation, List<String> ids,
+              Function<List<String>, ResourceCollection<T>> byIds) {
+            this.executor = executor;
+            this.operation = operation;
+            this.ids = ids;
+            this.byIds = byIds;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // id, удалённые в Braintree после поиска, могут дать пустую страницу
+            while (!page.hasNext() && loaded < ids.size()) {
+                List<String> pageIds = ids.subList(loaded, Math.min(loaded + PAGE_SIZE, ids.size()));
+                loaded += pageIds.size();
+                page = executor.execute(operation, () -> {
+                    List<T> items = new ArrayList<>(pageIds.size());
+                    for (T item : byIds.apply(pageIds)) {
+                        items.add(item);
+                    }
+                    return items;
+                }).iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+}
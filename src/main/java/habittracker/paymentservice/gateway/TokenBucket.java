@@ -0,0 +1,69 @@
+package habittracker.paymentservice.gateway;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Token bucket: пополняется со скоростью ratePerSecond до capacity, каждый вызов забирает один токен.
+ * Вызывающий может зарезервировать ещё не накопленный токен и подождать его; запас при этом уходит в минус,
+ * и следующие вызовы ждут дольше. Нижняя граница floor оставляет часть запаса более приоритетным вызовам.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final double ratePerSecond;
+    private final double capacity;
+    private final Clock clock;
+
+    private double tokens;
+    private Instant updatedAt;
+
+    public TokenBucket(double ratePerSecond, double capacity, Clock clock) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.updatedAt = clock.instant();
+    }
+
+    /**
+     * Резервирует токен, если после его списания запас не опустится ниже floor не позже чем через maxWait.
+     *
+     * @return сколько ждать до вызова; null, если за maxWait токена не будет. В этом случае ничего не списано
+     */
+    public synchronized Duration reserve(double floor, Duration maxWait) {
+        refill();
+        double missing = floor + 1 - tokens;
+        Duration wait = missing <= 0
+                ? Duration.ZERO
+                : Duration.ofNanos((long) Math.ceil(missing * NANOS_PER_SECOND / ratePerSecond));
+        if (wait.compareTo(maxWait) > 0) {
+            return null;
+        }
+        tokens -= 1;
+        return wait;
+    }
+
+    /**
+     * Возвращает зарезервированный токен, если вызов всё-таки не состоялся.
+     */
+    public synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        Instant now = clock.instant();
+        long elapsed = Duration.between(updatedAt, now).toNanos();
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * ratePerSecond / NANOS_PER_SECOND);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package habittracker.paymentservice.model.dto;
+
+import habittracker.paymentservice.service.batch.BatchAction;
+import habittracker.paymentservice.service.batch.BatchItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class BatchItemResultDTO {
+
+    private String batchId;
+
+    private String transactionId;
+
+    private BatchAction action;
+
+    private BatchItemStatus status;
+
+    private String resultTransactionId;
+
+    private String transactionStatus;
+
+    // причина отказа Braintree или ошибки
+    private String message;
+}
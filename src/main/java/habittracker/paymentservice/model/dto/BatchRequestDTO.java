@@ -0,0 +1,26 @@
+package habittracker.paymentservice.model.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class BatchRequestDTO {
+
+    // повторный запрос с тем же batchId продолжает пакет; без batchId создаётся новый
+    @Pattern(regexp = "[A-Za-z0-9_-]{1,64}", message = "Batch id must be 1-64 letters, digits, '-' or '_'")
+    private String batchId;
+
+    @NotEmpty(message = "Transaction ids must not be empty")
+    private List<String> ids;
+}
@@ -0,0 +1,44 @@
+package habittracker.paymentservice.model.dto;
+
+import habittracker.paymentservice.service.event.PaymentEventType;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Событие жизненного цикла платежа для других сервисов habit-tracker.
+ * Ключ сообщения в Kafka - resourceId, поэтому события одной транзакции или подписки идут по порядку.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class PaymentEventDTO {
+
+    // уникален для события: получатель отбрасывает повторы при доставке at-least-once
+    private String eventId;
+
+    private PaymentEventType type;
+
+    // id транзакции, подписки или плана
+    private String resourceId;
+
+    // для возврата - id возвращаемой транзакции
+    private String parentId;
+
+    private String status;
+
+    private BigDecimal amount;
+
+    private String currencyIsoCode;
+
+    private String planId;
+
+    private Instant occurredAt;
+}
@@ -2,6 +2,7 @@ package habittracker.paymentservice.model.dto;
 
 import com.braintreegateway.Subscription.Status;
 import com.braintreegateway.Transaction;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -38,6 +39,11 @@ public class SubscriptionInfoDTO {
     @NotNull(message = "Status cannot be null")
     Status status;
 
+    // Заполняется только в ответе, собранном из Braintree. Поиск подписок читает локальную проекцию,
+    // где транзакций нет, и отдаёт пустой список; карточки транзакций - через /api/payment/details
+    @Deprecated
+    @Schema(deprecated = true, description = "Filled only when the subscription is read from Braintree; "
+            + "subscription search returns an empty list. Use /api/payment/details/{transactionId} instead")
     @NotNull(message = "Transactions list cannot be null")
     List<Transaction> transactions;
 
@@ -0,0 +1,53 @@
+package habittracker.paymentservice.model.dto;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.service.job.SubscriptionJobAction;
+import habittracker.paymentservice.service.job.SubscriptionJobState;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class SubscriptionJobDTO {
+
+    private String id;
+
+    private SubscriptionJobAction action;
+
+    private String planId;
+
+    private Subscription.Status status;
+
+    private String targetPlanId;
+
+    private BigDecimal targetPrice;
+
+    private SubscriptionJobState state;
+
+    private long processed;
+
+    private long succeeded;
+
+    private long failed;
+
+    // уже в целевом состоянии, Braintree не вызывался
+    private long skipped;
+
+    private String lastError;
+
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    private Instant updatedAt;
+
+    // обработано подписок в секунду с начала выполнения
+    private double throughput;
+}
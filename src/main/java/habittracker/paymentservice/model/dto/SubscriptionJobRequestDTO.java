@@ -0,0 +1,36 @@
+package habittracker.paymentservice.model.dto;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.service.job.SubscriptionJobAction;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class SubscriptionJobRequestDTO {
+
+    @NotNull(message = "Action is required")
+    private SubscriptionJobAction action;
+
+    // выборка: подписки плана planId и/или в статусе status; хотя бы одно условие обязательно
+    private String planId;
+
+    private Subscription.Status status;
+
+    // только для MIGRATE
+    private String targetPlanId;
+
+    // для MIGRATE; если не задана, берётся цена целевого плана
+    @DecimalMin(value = "0.00", message = "Target price cannot be negative")
+    private BigDecimal targetPrice;
+}
@@ -0,0 +1,90 @@
+package habittracker.paymentservice.model.dto;
+
+import com.braintreegateway.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Карточка транзакции из локального журнала.
+ * Имена полей совпадают с геттерами Transaction, CreditCard и Customer из SDK,
+ * поэтому страница checkouts/show отображает её без изменений.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class TransactionDetailsDTO {
+
+    private String id;
+
+    private Transaction.Type type;
+
+    private Transaction.Status status;
+
+    private BigDecimal amount;
+
+    private String currencyIsoCode;
+
+    private String refundedTransactionId;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private CreditCardDetails creditCard = new CreditCardDetails();
+
+    private CustomerDetails customer = new CustomerDetails();
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class CreditCardDetails {
+
+        private String token;
+
+        private String bin;
+
+        private String last4;
+
+        private String cardType;
+
+        private String expirationDate;
+
+        private String cardholderName;
+
+        private String customerLocation;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class CustomerDetails {
+
+        private String id;
+
+        private String firstName;
+
+        private String lastName;
+
+        private String email;
+
+        private String company;
+
+        private String website;
+
+        private String phone;
+
+        private String fax;
+    }
+}
@@ -0,0 +1,22 @@
+package habittracker.paymentservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class TransactionPageDTO {
+
+    private List<TransactionInfoDTO> items;
+
+    // null, если страниц больше нет
+    private String nextCursor;
+
+    private int totalCount;
+}
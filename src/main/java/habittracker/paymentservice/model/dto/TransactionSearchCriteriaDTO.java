@@ -0,0 +1,46 @@
+package habittracker.paymentservice.model.dto;
+
+import com.braintreegateway.Transaction;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class TransactionSearchCriteriaDTO {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime createdTo;
+
+    private List<Transaction.Status> statuses;
+
+    private Transaction.Type type;
+
+    @DecimalMin(value = "0.00", message = "Minimal amount cannot be negative")
+    private BigDecimal minAmount;
+
+    @DecimalMin(value = "0.00", message = "Maximal amount cannot be negative")
+    private BigDecimal maxAmount;
+
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 50, message = "Page size must be less than or equal to 50")
+    private int pageSize = 20;
+
+    private String cursor;
+}
@@ -0,0 +1,61 @@
+package habittracker.paymentservice.model.entity;
+
+import habittracker.paymentservice.service.batch.BatchAction;
+import habittracker.paymentservice.service.batch.BatchItemStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Результат пакетной операции над одной транзакцией. По этим записям повторный запуск пакета
+ * с тем же batchId пропускает уже выполненные транзакции.
+ */
+@Entity
+@Table(name = "batch_operation_items", indexes = @Index(name = "idx_batch_operation_items_batch_id",
+        columnList = "batch_id"))
+@NoArgsConstructor
+@Getter
+@Setter
+public class BatchOperationItem {
+
+    // batchId и id транзакции через ':'
+    @Id
+    @Column(name = "id", length = 320)
+    private String id;
+
+    @Column(name = "batch_id", nullable = false, length = 64)
+    private String batchId;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 16)
+    private BatchAction action;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private BatchItemStatus status;
+
+    // транзакция из ответа Braintree; у возврата это новая транзакция
+    @Column(name = "result_transaction_id")
+    private String resultTransactionId;
+
+    @Column(name = "transaction_status", length = 64)
+    private String transactionStatus;
+
+    @Column(name = "message", length = 1024)
+    private String message;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,61 @@
+package habittracker.paymentservice.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Запрос с ключом идемпотентности и сохранённый ответ на него.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at",
+        columnList = "created_at"))
+@NoArgsConstructor
+@Getter
+@Setter
+public class IdempotencyRecord {
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    @Column(name = "request_path", nullable = false)
+    private String requestPath;
+
+    // SHA-256 метода, параметров и тела запроса
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_location", length = 2048)
+    private String responseLocation;
+
+    @Column(name = "response_content_type")
+    private String responseContentType;
+
+    @Column(name = "response_body")
+    private byte[] responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
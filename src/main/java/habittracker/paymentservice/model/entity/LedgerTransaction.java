@@ -0,0 +1,98 @@
+package habittracker.paymentservice.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Локальная копия транзакции Braintree. Пишется пачками через JDBC (TransactionLedger),
+ * читается через JPA.
+ */
+@Entity
+@Table(name = "transaction_ledger")
+@NoArgsConstructor
+@Getter
+@Setter
+public class LedgerTransaction {
+
+    @Id
+    @Column(name = "id", length = 64)
+    private String id;
+
+    @Column(name = "type", length = 16)
+    private String type;
+
+    @Column(name = "status", length = 32)
+    private String status;
+
+    @Column(name = "amount", precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "currency_iso_code", length = 3)
+    private String currencyIsoCode;
+
+    @Column(name = "refunded_transaction_id", length = 64)
+    private String refundedTransactionId;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "card_token")
+    private String cardToken;
+
+    @Column(name = "card_bin", length = 8)
+    private String cardBin;
+
+    @Column(name = "card_last4", length = 4)
+    private String cardLast4;
+
+    @Column(name = "card_type")
+    private String cardType;
+
+    @Column(name = "card_expiration_date", length = 16)
+    private String cardExpirationDate;
+
+    @Column(name = "cardholder_name")
+    private String cardholderName;
+
+    @Column(name = "card_customer_location", length = 16)
+    private String cardCustomerLocation;
+
+    @Column(name = "customer_id")
+    private String customerId;
+
+    @Column(name = "customer_first_name")
+    private String customerFirstName;
+
+    @Column(name = "customer_last_name")
+    private String customerLastName;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "customer_company")
+    private String customerCompany;
+
+    @Column(name = "customer_website")
+    private String customerWebsite;
+
+    @Column(name = "customer_phone")
+    private String customerPhone;
+
+    @Column(name = "customer_fax")
+    private String customerFax;
+
+    // когда запись последний раз обновлена из ответа Braintree
+    @Column(name = "recorded_at", nullable = false)
+    private Instant recordedAt;
+}
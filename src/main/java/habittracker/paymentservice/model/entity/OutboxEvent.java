@@ -0,0 +1,47 @@
+package habittracker.paymentservice.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Событие, ожидающее отправки в Kafka (transactional outbox).
+ * Удаляется OutboxRelay после подтверждения брокера.
+ */
+@Entity
+@Table(name = "payment_event_outbox", indexes = @Index(name = "idx_payment_event_outbox_created_at",
+        columnList = "created_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class OutboxEvent {
+
+    @Id
+    @Column(name = "event_id", length = 36)
+    private String eventId;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "event_key")
+    private String eventKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // до какого момента событие отправляет один из инстансов relay
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+}
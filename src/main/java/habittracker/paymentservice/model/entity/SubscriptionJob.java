@@ -0,0 +1,94 @@
+package habittracker.paymentservice.model.entity;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.service.job.SubscriptionJobAction;
+import habittracker.paymentservice.service.job.SubscriptionJobState;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Массовая отмена или перевод на другой план подписок, выбранных по плану и статусу.
+ * cursor - id последней обработанной подписки: после перезапуска задание продолжается с него.
+ * Прогресс и отмена пишутся с проверкой version, поэтому отмена не теряется при одновременном сохранении прогресса.
+ */
+@Entity
+@Table(name = "subscription_jobs", indexes = @Index(name = "idx_subscription_jobs_state", columnList = "state"))
+@NoArgsConstructor
+@Getter
+@Setter
+public class SubscriptionJob {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 16)
+    private SubscriptionJobAction action;
+
+    @Column(name = "plan_id", length = 64)
+    private String planId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "subscription_status", length = 16)
+    private Subscription.Status subscriptionStatus;
+
+    @Column(name = "target_plan_id", length = 64)
+    private String targetPlanId;
+
+    @Column(name = "target_price", precision = 19, scale = 2)
+    private BigDecimal targetPrice;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 16)
+    private SubscriptionJobState state;
+
+    @Column(name = "last_subscription_id", nullable = false, length = 64)
+    private String cursor;
+
+    @Column(name = "processed", nullable = false)
+    private long processed;
+
+    @Column(name = "succeeded", nullable = false)
+    private long succeeded;
+
+    @Column(name = "failed", nullable = false)
+    private long failed;
+
+    @Column(name = "skipped", nullable = false)
+    private long skipped;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+}
@@ -0,0 +1,82 @@
+package habittracker.paymentservice.model.entity;
+
+import com.braintreegateway.Subscription;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Локальная копия подписки Braintree, с которой работают чтения SubscriptionController.
+ * Пишется через JDBC (SubscriptionProjector), читается через JPA.
+ */
+@Entity
+@Table(name = "subscription_projection", indexes = {
+        @Index(name = "idx_subscription_projection_status", columnList = "status"),
+        @Index(name = "idx_subscription_projection_plan_id", columnList = "plan_id"),
+        @Index(name = "idx_subscription_projection_next_billing_date", columnList = "next_billing_date")})
+@NoArgsConstructor
+@Getter
+@Setter
+public class SubscriptionProjection {
+
+    @Id
+    @Column(name = "id", length = 64)
+    private String id;
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "merchant_account_id", length = 64)
+    private String merchantAccountId;
+
+    @Column(name = "plan_id", length = 64)
+    private String planId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16)
+    private Subscription.Status status;
+
+    @Column(name = "price", precision = 19, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "payment_method_token", length = 64)
+    private String paymentMethodToken;
+
+    @Column(name = "number_of_billing_cycles")
+    private Integer numberOfBillingCycles;
+
+    @Column(name = "current_billing_cycle")
+    private Integer currentBillingCycle;
+
+    @Column(name = "next_billing_date")
+    private Instant nextBillingDate;
+
+    @Column(name = "first_billing_date")
+    private Instant firstBillingDate;
+
+    @Column(name = "billing_period_start_date")
+    private Instant billingPeriodStartDate;
+
+    @Column(name = "billing_period_end_date")
+    private Instant billingPeriodEndDate;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    // когда запись последний раз обновлена из ответа или уведомления Braintree
+    @Column(name = "synced_at", nullable = false)
+    private Instant syncedAt;
+}
@@ -0,0 +1,35 @@
+package habittracker.paymentservice.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Отметка инкрементальной синхронизации с Braintree: изменения до watermark уже перенесены
+ * в локальные таблицы, следующий проход запрашивает только более поздние.
+ */
+@Entity
+@Table(name = "sync_watermark")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class SyncWatermark {
+
+    @Id
+    @Column(name = "resource", length = 32)
+    private String resource;
+
+    @Column(name = "watermark", nullable = false)
+    private Instant watermark;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,11 @@
+package habittracker.paymentservice.repository;
+
+import habittracker.paymentservice.model.entity.BatchOperationItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface BatchOperationItemRepository extends JpaRepository<BatchOperationItem, String> {
+
+    List<BatchOperationItem> findByBatchIdOrderByUpdatedAt(String batchId);
+}
@@ -0,0 +1,40 @@
+package habittracker.paymentservice.repository;
+
+import habittracker.paymentservice.model.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Атомарно занимает ключ. Возвращает 1, если ключ свободен, и 0, если его уже занял другой запрос.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_path, request_hash, status, created_at) "
+            + "VALUES (:key, :requestPath, :requestHash, 'IN_PROGRESS', :createdAt) "
+            + "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestPath") String requestPath,
+              @Param("requestHash") String requestHash, @Param("createdAt") Instant createdAt);
+
+    /**
+     * Перезанимает незавершённый ключ, если с момента claimedAt его никто не перезанял и не завершил.
+     * Возвращает 1, если ключ достался вызывающему.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE idempotency_keys SET created_at = :now "
+            + "WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt",
+            nativeQuery = true)
+    int takeOver(@Param("key") String key, @Param("claimedAt") Instant claimedAt, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,7 @@
+package habittracker.paymentservice.repository;
+
+import habittracker.paymentservice.model.entity.LedgerTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface LedgerTransactionRepository extends JpaRepository<LedgerTransaction, String> {
+}
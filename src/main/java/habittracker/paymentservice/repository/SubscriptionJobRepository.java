@@ -0,0 +1,31 @@
+package habittracker.paymentservice.repository;
+
+import habittracker.paymentservice.model.entity.SubscriptionJob;
+import habittracker.paymentservice.service.job.SubscriptionJobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SubscriptionJobRepository extends JpaRepository<SubscriptionJob, String> {
+
+    List<SubscriptionJob> findByStateIn(Collection<SubscriptionJobState> states);
+
+    /**
+     * Занимает незавершённое задание, если у него нет владельца или lease истёк.
+     * Возвращает 1, если задание занято этим инстансом, и 0, если его выполняет другой.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE subscription_jobs SET lease_owner = :owner, lease_until = :until, "
+            + "version = version + 1 "
+            + "WHERE id = :id AND state IN ('PENDING', 'RUNNING') "
+            + "AND (lease_until IS NULL OR lease_until < :now OR lease_owner = :owner)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("owner") String owner, @Param("now") Instant now,
+              @Param("until") Instant until);
+}
@@ -0,0 +1,36 @@
+package habittracker.paymentservice.repository;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface SubscriptionProjectionRepository extends JpaRepository<SubscriptionProjection, String> {
+
+    // постраничный обход по id без OFFSET: каждая страница читается по индексу первичного ключа
+    List<SubscriptionProjection> findByIdGreaterThan(String id, Pageable pageable);
+
+    // выборки массовых заданий, тот же обход по id
+    List<SubscriptionProjection> findByPlanIdAndIdGreaterThan(String planId, String id, Pageable pageable);
+
+    List<SubscriptionProjection> findByStatusAndIdGreaterThan(Subscription.Status status, String id,
+                                                              Pageable pageable);
+
+    List<SubscriptionProjection> findByPlanIdAndStatusAndIdGreaterThan(String planId, Subscription.Status status,
+                                                                       String id, Pageable pageable);
+
+    List<SubscriptionProjection> findByStatus(Subscription.Status status, Sort sort);
+
+    List<SubscriptionProjection> findByPlanId(String planId, Sort sort);
+
+    @Query("SELECT s FROM SubscriptionProjection s WHERE s.nextBillingDate >= :from AND s.nextBillingDate < :until "
+            + "ORDER BY s.nextBillingDate, s.id")
+    List<SubscriptionProjection> findByNextBillingDateRange(@Param("from") Instant from,
+                                                            @Param("until") Instant until);
+}
@@ -0,0 +1,7 @@
+package habittracker.paymentservice.repository;
+
+import habittracker.paymentservice.model.entity.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+}
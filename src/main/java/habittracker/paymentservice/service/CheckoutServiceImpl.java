@@ -1,32 +1,48 @@
 package habittracker.paymentservice.service;
 
+import com.braintreegateway.BraintreeGateway;
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
 import com.braintreegateway.Transaction.Status;
 import com.braintreegateway.TransactionRequest;
 import com.braintreegateway.ValidationError;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.service.cache.ClientTokenPool;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.event.PaymentEvents;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.metrics.TransactionStatusMetrics;
 import habittracker.paymentservice.service.util.NumFormatter;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.util.Arrays;
 
 @Service
 @RequiredArgsConstructor
+@Observed(name = "payment.service")
 public class CheckoutServiceImpl implements CheckoutService {
 
+    private final BraintreeGateway braintreeGateway;
     private final NumFormatter numFormatter;
+    private final GatewayExecutor gatewayExecutor;
+    private final TransactionLedger transactionLedger;
+    private final TransactionDetailsCache transactionDetailsCache;
+    private final TransactionStatusMetrics transactionStatusMetrics;
+    private final ClientTokenPool clientTokenPool;
 
     @Override
     public String getNewClientToken() {
-        return BraintreeData.gateway.clientToken().generate();
+        return clientTokenPool.take();
     }
 
     @Override
     public TransactionRequest getNewTransactionRequest(String amount, String paymentMethodNonce) {
         return new TransactionRequest()
-                .amount(numFormatter.stringToNum(amount, BigDecimal.class).orElseThrow(
+                .amount(numFormatter.parseAmount(amount).toOptional().orElseThrow(
                         () -> new NumberFormatException("Некорректный формат суммы: " + amount)
                 ))
                 .paymentMethodNonce(paymentMethodNonce)
@@ -37,7 +53,13 @@ public class CheckoutServiceImpl implements CheckoutService {
 
     @Override
     public Result<Transaction> getTransactionSale(TransactionRequest request) {
-        return BraintreeData.gateway.transaction().sale(request);
+        Result<Transaction> result = gatewayExecutor.execute(GatewayOperation.SALE,
+                () -> braintreeGateway.transaction().sale(request));
+        // страница результата откроется сразу после редиректа, кладём карточку в кэш заранее
+        transactionDetailsCache.put(transactionLedger.recordResult(result,
+                PaymentEvents.ofTransactionResult(PaymentEventType.TRANSACTION_SALE, result).orElse(null)));
+        recordStatus(result);
+        return result;
     }
 
     @Override
@@ -61,4 +83,17 @@ public class CheckoutServiceImpl implements CheckoutService {
         }
         return errorString.toString();
     }
+
+    private void recordStatus(Result<Transaction> result) {
+        if (result == null) {
+            return;
+        }
+        Transaction transaction = result.isSuccess() ? result.getTarget() : result.getTransaction();
+        if (transaction == null) {
+            transactionStatusMetrics.recordValidationError();
+            return;
+        }
+        transactionStatusMetrics.record(transaction.getStatus(),
+                Arrays.asList(getTransactionSuccessStatuses()).contains(transaction.getStatus()));
+    }
 }
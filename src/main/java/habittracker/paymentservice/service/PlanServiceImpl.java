@@ -1,21 +1,40 @@
 package habittracker.paymentservice.service;
 
+import com.braintreegateway.BraintreeGateway;
 import com.braintreegateway.Plan;
 import com.braintreegateway.PlanRequest;
 import com.braintreegateway.Result;
 import com.braintreegateway.exceptions.NotFoundException;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.GatewayRejectedException;
 import habittracker.paymentservice.model.dto.PlanRequestDTO;
+import habittracker.paymentservice.service.cache.PlanCatalog;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.event.PaymentEvents;
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
+@Slf4j
 @Service
+@RequiredArgsConstructor
+@Observed(name = "payment.service")
 public class PlanServiceImpl implements PlanService {
 
+    private final PlanCatalog planCatalog;
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final PaymentEventPublisher eventPublisher;
+
     @Override
     public PlanRequest createPlanRequest(PlanRequestDTO requestDTO) {
 
@@ -49,28 +68,44 @@ public class PlanServiceImpl implements PlanService {
 
     @Override
     public Result<Plan> createPlan(PlanRequest request) {
-        return BraintreeData.gateway.plan().create(request);
+        return updateCatalog(PaymentEventType.PLAN_CREATED,
+                planCall(() -> braintreeGateway.plan().create(request)));
     }
 
     @Override
     public Result<Plan> createDefaultPlan() {
-        return BraintreeData.gateway.plan().create(createDefaultPlanRequest());
+        PlanRequest request = createDefaultPlanRequest();
+        return updateCatalog(PaymentEventType.PLAN_CREATED,
+                planCall(() -> braintreeGateway.plan().create(request)));
     }
 
     @Override
     public List<Plan> getAllPlans() {
-        return BraintreeData.gateway.plan().all();
+        try {
+            return planCall(() -> braintreeGateway.plan().all());
+        } catch (GatewayRejectedException e) {
+            // Braintree недоступен: каталог мог отстать не больше чем на payment.plan-catalog.ttl
+            log.warn("Список планов отдаётся из каталога: {}", e.getMessage());
+            return planCatalog.all();
+        }
     }
 
     @Override
     public Optional<Plan> getPlanByName(String name) {
-        return getAllPlans().stream().filter(plan -> plan.getName().equals(name)).findFirst();
+        return planCatalog.findByName(name);
     }
 
     @Override
     public Optional<Plan> getPlanById(String id) {
+        Optional<Plan> cached = planCatalog.findById(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        // план мог быть создан в обход сервиса и ещё не попасть в каталог
         try {
-            return Optional.of(BraintreeData.gateway.plan().find(id));
+            Plan plan = gatewayExecutor.executeHedged(GatewayOperation.PLAN, () -> braintreeGateway.plan().find(id));
+            planCatalog.put(plan);
+            return Optional.of(plan);
         } catch (NotFoundException e) {
             return Optional.empty();
         }
@@ -81,11 +116,26 @@ public class PlanServiceImpl implements PlanService {
         String id = getPlanByName(name).map(Plan::getId)
                 .orElseThrow(() -> new NotFoundException("План с именем '" + name + "' не найден."));
 
-        return BraintreeData.gateway.plan().update(id, request);
+        return updateCatalog(PaymentEventType.PLAN_UPDATED,
+                planCall(() -> braintreeGateway.plan().update(id, request)));
     }
 
     @Override
     public Result<Plan> updatePlanById(String id, PlanRequest request) {
-        return BraintreeData.gateway.plan().update(id, request);
+        return updateCatalog(PaymentEventType.PLAN_UPDATED,
+                planCall(() -> braintreeGateway.plan().update(id, request)));
+    }
+
+    private <T> T planCall(Supplier<T> call) {
+        return gatewayExecutor.execute(GatewayOperation.PLAN, call);
+    }
+
+    private Result<Plan> updateCatalog(PaymentEventType type, Result<Plan> result) {
+        if (result != null && result.isSuccess()) {
+            planCatalog.put(result.getTarget());
+            planCatalog.invalidate();
+        }
+        PaymentEvents.ofPlanResult(type, result).ifPresent(eventPublisher::publish);
+        return result;
     }
 }
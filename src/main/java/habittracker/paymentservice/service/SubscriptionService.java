@@ -6,7 +6,9 @@ import com.braintreegateway.SubscriptionRequest;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
 import habittracker.paymentservice.model.dto.SubscriptionRequestDTO;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface SubscriptionService {
 
@@ -20,8 +22,24 @@ public interface SubscriptionService {
 
     List<SubscriptionInfoDTO> searchAll();
 
+    void streamAll(Consumer<SubscriptionInfoDTO> consumer);
+
     Subscription findSubscriptionById(String id);
 
+    /**
+     * Подписка из локальной проекции; при промахе читается из Braintree и записывается в проекцию.
+     */
+    SubscriptionInfoDTO getSubscriptionInfo(String id);
+
+    List<SubscriptionInfoDTO> searchByStatus(Subscription.Status status);
+
+    List<SubscriptionInfoDTO> searchByPlanId(String planId);
+
+    /**
+     * Подписки с датой следующего списания в диапазоне [from, to] включительно.
+     */
+    List<SubscriptionInfoDTO> searchByNextBillingDate(LocalDate from, LocalDate to);
+
     Result<Subscription> updateSubscription(String id, SubscriptionRequest request);
 
     Result<Subscription> cancelSubscription(String id);
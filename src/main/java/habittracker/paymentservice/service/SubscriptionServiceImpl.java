@@ -1,31 +1,51 @@
 package habittracker.paymentservice.service;
 
+import com.braintreegateway.BraintreeGateway;
 import com.braintreegateway.Plan;
-import com.braintreegateway.ResourceCollection;
 import com.braintreegateway.Result;
 import com.braintreegateway.Subscription;
 import com.braintreegateway.SubscriptionRequest;
-import com.braintreegateway.SubscriptionSearchRequest;
 import com.braintreegateway.exceptions.NotFoundException;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
 import habittracker.paymentservice.model.dto.SubscriptionRequestDTO;
-import habittracker.paymentservice.service.util.DateFormatter;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.event.PaymentEvents;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
 import habittracker.paymentservice.service.util.NumFormatter;
+import habittracker.paymentservice.service.util.SubscriptionInfoMapper;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
+@Observed(name = "payment.service")
 public class SubscriptionServiceImpl implements SubscriptionService {
 
+    private static final Sort BY_ID = Sort.by("id");
+
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final PlanServiceImpl planService;
     private final NumFormatter numFormatter;
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final SubscriptionProjector subscriptionProjector;
+    private final SubscriptionProjectionRepository projectionRepository;
+    private final PaymentEventPublisher eventPublisher;
 
     @Override
     public SubscriptionRequest createSubscriptionRequest(SubscriptionRequestDTO requestDTO) {
@@ -34,7 +54,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
         SubscriptionRequest subscriptionRequest = new SubscriptionRequest()
                 .planId(plan.getId())
-                .price(numFormatter.stringToNum(requestDTO.getStrPrice(), BigDecimal.class)
+                .price(numFormatter.parseAmount(requestDTO.getStrPrice()).toOptional()
                         .orElseGet(plan::getPrice))
                 .paymentMethodNonce(requestDTO.getNonce())
                 .numberOfBillingCycles(requestDTO.getNumOfBillingCycles())
@@ -71,79 +91,110 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     @Override
     public Result<Subscription> createSubscription(SubscriptionRequest request) {
-        return BraintreeData.gateway.subscription().create(request);
+        return recorded(PaymentEventType.SUBSCRIPTION_CREATED, null,
+                gatewayExecutor.execute(GatewayOperation.SUBSCRIPTION,
+                        () -> braintreeGateway.subscription().create(request)));
     }
 
     @Override
     public Result<Subscription> createDefaultSubscription(String nonce) {
-        return BraintreeData.gateway.subscription().create(getDefaultSubscriptionRequest(nonce));
+        SubscriptionRequest request = getDefaultSubscriptionRequest(nonce);
+        return recorded(PaymentEventType.SUBSCRIPTION_CREATED, null,
+                gatewayExecutor.execute(GatewayOperation.SUBSCRIPTION,
+                        () -> braintreeGateway.subscription().create(request)));
     }
 
     @Override
     public List<SubscriptionInfoDTO> searchAll() {
-        SubscriptionSearchRequest searchRequest = new SubscriptionSearchRequest()
-                .merchantAccountId().is("habittracker");
-
-        ResourceCollection<Subscription> collection = BraintreeData.gateway
-                .subscription()
-                .search(searchRequest);
-
-        List<SubscriptionInfoDTO> subscriptionList = new ArrayList<>();
-
-        for (Subscription subscription : collection) {
-            // Безопасное форматирование дат
-            String nextBillingDate = formatDate(subscription.getNextBillingDate());
-            String firstBillingDate = formatDate(subscription.getFirstBillingDate());
-            String createdAt = formatDate(subscription.getCreatedAt());
-            String updatedAt = formatDate(subscription.getUpdatedAt());
-            String billingPeriodStartDate = formatDate(subscription.getBillingPeriodStartDate());
-            String billingPeriodEndDate = formatDate(subscription.getBillingPeriodEndDate());
-
-            SubscriptionInfoDTO subscriptionInfo = new SubscriptionInfoDTO(
-                    subscription.getId(),
-                    subscription.getDescription(),
-                    subscription.getMerchantAccountId(),
-                    subscription.getPlanId(),
-                    subscription.getStatus(),
-                    subscription.getTransactions(),
-                    subscription.getPrice(),
-                    subscription.getPaymentMethodToken(),
-                    subscription.getNumberOfBillingCycles(),
-                    nextBillingDate,
-                    firstBillingDate,
-                    subscription.getCurrentBillingCycle(),
-                    createdAt,
-                    updatedAt,
-                    billingPeriodStartDate,
-                    billingPeriodEndDate
-            );
-            subscriptionList.add(subscriptionInfo);
-        }
+        return toInfoDTOs(projectionRepository.findAll(BY_ID));
+    }
 
-        return subscriptionList;
+    @Override
+    public void streamAll(Consumer<SubscriptionInfoDTO> consumer) {
+        // в памяти держится одна страница проекции
+        String lastId = "";
+        List<SubscriptionProjection> page;
+        do {
+            page = projectionRepository.findByIdGreaterThan(lastId, PageRequest.of(0, STREAM_PAGE_SIZE, BY_ID));
+            for (SubscriptionProjection projection : page) {
+                consumer.accept(SubscriptionInfoMapper.toInfoDTO(projection));
+                lastId = projection.getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
     }
 
     @Override
     public Subscription findSubscriptionById(String id) {
-        return BraintreeData.gateway.subscription().find(id);
+        return gatewayExecutor.executeHedged(GatewayOperation.FIND, () -> braintreeGateway.subscription().find(id));
+    }
+
+    @Override
+    public SubscriptionInfoDTO getSubscriptionInfo(String id) {
+        return projectionRepository.findById(id)
+                .map(SubscriptionInfoMapper::toInfoDTO)
+                .orElseGet(() -> {
+                    Subscription subscription = findSubscriptionById(id);
+                    subscriptionProjector.project(subscription);
+                    return SubscriptionInfoMapper.toInfoDTO(subscription);
+                });
+    }
+
+    @Override
+    public List<SubscriptionInfoDTO> searchByStatus(Subscription.Status status) {
+        return toInfoDTOs(projectionRepository.findByStatus(status, BY_ID));
+    }
+
+    @Override
+    public List<SubscriptionInfoDTO> searchByPlanId(String planId) {
+        return toInfoDTOs(projectionRepository.findByPlanId(planId, BY_ID));
+    }
+
+    @Override
+    public List<SubscriptionInfoDTO> searchByNextBillingDate(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        // Braintree передаёт даты списания без времени, SDK разбирает их как полночь UTC
+        return toInfoDTOs(projectionRepository.findByNextBillingDateRange(
+                from.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
     }
 
     @Override
     public Result<Subscription> updateSubscription(String id, SubscriptionRequest request) {
-        return BraintreeData.gateway.subscription().update(id, request);
+        return recorded(PaymentEventType.SUBSCRIPTION_UPDATED, id,
+                gatewayExecutor.execute(GatewayOperation.SUBSCRIPTION,
+                        () -> braintreeGateway.subscription().update(id, request)));
     }
 
     @Override
     public Result<Subscription> cancelSubscription(String id) {
-        return BraintreeData.gateway.subscription().cancel(id);
+        return recorded(PaymentEventType.SUBSCRIPTION_CANCELED, id,
+                gatewayExecutor.execute(GatewayOperation.SUBSCRIPTION,
+                        () -> braintreeGateway.subscription().cancel(id)));
     }
 
     @Override
     public Result<Subscription> deleteSubscription(String customerId, String id) {
-        return BraintreeData.gateway.subscription().delete(customerId, id);
+        return recorded(PaymentEventType.SUBSCRIPTION_DELETED, id,
+                gatewayExecutor.execute(GatewayOperation.SUBSCRIPTION,
+                        () -> braintreeGateway.subscription().delete(customerId, id)));
+    }
+
+    private Result<Subscription> recorded(PaymentEventType type, String subscriptionId,
+                                          Result<Subscription> result) {
+        if (result != null && result.isSuccess()) {
+            if (type == PaymentEventType.SUBSCRIPTION_DELETED) {
+                subscriptionProjector.remove(subscriptionId);
+            } else {
+                subscriptionProjector.project(result.getTarget());
+            }
+        }
+        PaymentEvents.ofSubscriptionResult(type, subscriptionId, result).ifPresent(eventPublisher::publish);
+        return result;
     }
 
-    private String formatDate(Calendar date) {
-        return date != null ? DateFormatter.dateToString(date.getTime()) : "N/A";
+    private List<SubscriptionInfoDTO> toInfoDTOs(List<SubscriptionProjection> projections) {
+        return projections.stream().map(SubscriptionInfoMapper::toInfoDTO).toList();
     }
 }
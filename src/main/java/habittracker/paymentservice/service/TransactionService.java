@@ -2,17 +2,24 @@ package habittracker.paymentservice.service;
 
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import habittracker.paymentservice.model.dto.TransactionPageDTO;
+import habittracker.paymentservice.model.dto.TransactionSearchCriteriaDTO;
 
 import java.util.List;
 
 public interface TransactionService {
     Transaction getTransactionByBraintree(String transactionId);
 
+    TransactionDetailsDTO getTransactionDetails(String transactionId);
+
     Result<Transaction> refundTransactionByBraintree(String transactionId);
 
     List<TransactionInfoDTO> getTransactionsBySearchRequest();
 
+    TransactionPageDTO searchTransactions(TransactionSearchCriteriaDTO criteria);
+
     Result<Transaction> voidTransactionById(String transactionId);
 
     Result<Transaction> cancelTransactionById(String transactionId);
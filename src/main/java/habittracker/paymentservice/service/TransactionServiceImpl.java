@@ -1,61 +1,185 @@
 package habittracker.paymentservice.service;
 
+import com.braintreegateway.BraintreeGateway;
 import com.braintreegateway.ResourceCollection;
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
 import com.braintreegateway.TransactionSearchRequest;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.PagedSearch;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
-import habittracker.paymentservice.service.util.DateFormatter;
+import habittracker.paymentservice.model.dto.TransactionPageDTO;
+import habittracker.paymentservice.model.dto.TransactionSearchCriteriaDTO;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.event.PaymentEvents;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.util.SearchCursor;
+import habittracker.paymentservice.service.util.TransactionInfoMapper;
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
+@RequiredArgsConstructor
+@Observed(name = "payment.service")
 public class TransactionServiceImpl implements TransactionService {
 
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final TransactionLedger transactionLedger;
+    private final TransactionDetailsCache transactionDetailsCache;
+
     @Override
     public Transaction getTransactionByBraintree(String transactionId) {
-        return BraintreeData.gateway.transaction().find(transactionId);
+        Transaction transaction = gatewayExecutor.executeHedged(GatewayOperation.FIND,
+                () -> braintreeGateway.transaction().find(transactionId));
+        transactionDetailsCache.put(transactionLedger.record(transaction));
+        return transaction;
+    }
+
+    @Override
+    public TransactionDetailsDTO getTransactionDetails(String transactionId) {
+        Optional<TransactionDetailsDTO> cached = transactionDetailsCache.get(transactionId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // незавершённая транзакция в журнале могла устареть так же, как в кэше
+        TransactionDetailsDTO details = transactionLedger.find(transactionId, transactionDetailsCache.pendingTtl())
+                .orElseGet(() -> transactionLedger.record(gatewayExecutor.executeHedged(GatewayOperation.FIND,
+                        () -> braintreeGateway.transaction().find(transactionId))));
+        transactionDetailsCache.put(details);
+        return details;
     }
 
     @Override
     public Result<Transaction> refundTransactionByBraintree(String transactionId) {
-        return BraintreeData.gateway.transaction().refund(transactionId);
+        return recorded(PaymentEventType.TRANSACTION_REFUND, transactionId,
+                gatewayExecutor.execute(GatewayOperation.REFUND,
+                        () -> braintreeGateway.transaction().refund(transactionId)));
     }
 
     @Override
     public List<TransactionInfoDTO> getTransactionsBySearchRequest() {
         TransactionSearchRequest request = new TransactionSearchRequest().creditCardNumber().startsWith("4111");
-        ResourceCollection<Transaction> collection = BraintreeData.gateway.transaction().search(request);
 
         List<TransactionInfoDTO> transactionList = new ArrayList<>();
-        collection.forEach(transaction -> {
-            TransactionInfoDTO transactionInfo = new TransactionInfoDTO(
-                    transaction.getId(),
-                    transaction.getCreatedAt() == null ? null : DateFormatter.dateToString(transaction.getCreatedAt()
-                            .getTime()),
-                    transaction.getType(),
-                    transaction.getAmount(),
-                    transaction.getStatus(),
-                    transaction.getRefundedTransactionId(),
-                    false);
-
-            transactionInfo.setRefundFlag(transaction.getRefundedTransactionId());
-            transactionList.add(transactionInfo);
-        });
-
+        PagedSearch.of(gatewayExecutor, GatewayOperation.SEARCH, () -> braintreeGateway.transaction().search(request),
+                        this::transactionsByIds)
+                .forEach(transaction -> transactionList.add(TransactionInfoMapper.toInfoDTO(transaction)));
         return transactionList;
     }
 
+    @Override
+    public TransactionPageDTO searchTransactions(TransactionSearchCriteriaDTO criteria) {
+        int fingerprint = fingerprint(criteria);
+        SearchCursor cursor = criteria.getCursor() == null
+                ? SearchCursor.first(fingerprint)
+                : SearchCursor.decode(criteria.getCursor(), fingerprint);
+
+        TransactionSearchRequest request = toSearchRequest(criteria, cursor.snapshot());
+
+        // Первый запрос к Braintree возвращает только список id, сами транзакции подгружаются страницами
+        List<String> ids = gatewayExecutor.execute(GatewayOperation.SEARCH,
+                () -> braintreeGateway.transaction().search(request).getIds());
+
+        int from = Math.min(cursor.offset(), ids.size());
+        int to = Math.min(from + criteria.getPageSize(), ids.size());
+        List<TransactionInfoDTO> items = fetchByIds(ids.subList(from, to));
+        String nextCursor = to < ids.size() ? cursor.next(to).encode() : null;
+
+        return new TransactionPageDTO(items, nextCursor, ids.size());
+    }
+
     @Override
     public Result<Transaction> voidTransactionById(String transactionId) {
-        return BraintreeData.gateway.transaction().voidTransaction(transactionId);
+        return recorded(PaymentEventType.TRANSACTION_VOID, transactionId,
+                gatewayExecutor.execute(GatewayOperation.REFUND,
+                        () -> braintreeGateway.transaction().voidTransaction(transactionId)));
     }
 
     @Override
     public Result<Transaction> cancelTransactionById(String transactionId) {
-        return BraintreeData.gateway.transaction().cancelRelease(transactionId);
+        return recorded(PaymentEventType.TRANSACTION_CANCEL, transactionId,
+                gatewayExecutor.execute(GatewayOperation.REFUND,
+                        () -> braintreeGateway.transaction().cancelRelease(transactionId)));
+    }
+
+    private Result<Transaction> recorded(PaymentEventType type, String transactionId, Result<Transaction> result) {
+        // статус исходной транзакции изменился; у возврата в ответе другая, новая транзакция
+        transactionDetailsCache.invalidate(transactionId);
+        // событие попадёт в outbox в одной транзакции с записью журнала
+        transactionDetailsCache.put(transactionLedger.recordResult(result,
+                PaymentEvents.ofTransactionResult(type, result).orElse(null)));
+        return result;
+    }
+
+    private List<TransactionInfoDTO> fetchByIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // размер страницы не больше страницы Braintree, поэтому это одна страница
+        Map<String, TransactionInfoDTO> found = new HashMap<>();
+        PagedSearch.byIds(gatewayExecutor, GatewayOperation.SEARCH, ids, this::transactionsByIds)
+                .forEach(transaction -> found.put(transaction.getId(), TransactionInfoMapper.toInfoDTO(transaction)));
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private ResourceCollection<Transaction> transactionsByIds(List<String> ids) {
+        return braintreeGateway.transaction().search(new TransactionSearchRequest().ids().in(ids));
+    }
+
+    private TransactionSearchRequest toSearchRequest(TransactionSearchCriteriaDTO criteria, Instant snapshot) {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+
+        Instant upper = criteria.getCreatedTo() == null || criteria.getCreatedTo().toInstant().isAfter(snapshot)
+                ? snapshot
+                : criteria.getCreatedTo().toInstant();
+        if (criteria.getCreatedFrom() != null) {
+            request.createdAt().between(toCalendar(criteria.getCreatedFrom().toInstant()), toCalendar(upper));
+        } else {
+            request.createdAt().lessThanOrEqualTo(toCalendar(upper));
+        }
+
+        if (criteria.getStatuses() != null && !criteria.getStatuses().isEmpty()) {
+            request.status().in(criteria.getStatuses());
+        }
+        if (criteria.getType() != null) {
+            request.type().is(criteria.getType());
+        }
+        if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null) {
+            request.amount().between(criteria.getMinAmount(), criteria.getMaxAmount());
+        } else if (criteria.getMinAmount() != null) {
+            request.amount().greaterThanOrEqualTo(criteria.getMinAmount());
+        } else if (criteria.getMaxAmount() != null) {
+            request.amount().lessThanOrEqualTo(criteria.getMaxAmount());
+        }
+        return request;
+    }
+
+    private int fingerprint(TransactionSearchCriteriaDTO criteria) {
+        // hashCode у enum зависит от JVM, поэтому статусы и тип берём по имени:
+        // курсор, выданный одним инстансом, должен приниматься любым другим
+        return Objects.hash(criteria.getCreatedFrom(), criteria.getCreatedTo(),
+                String.valueOf(criteria.getStatuses()), String.valueOf(criteria.getType()),
+                criteria.getMinAmount(), criteria.getMaxAmount());
+    }
+
+    private Calendar toCalendar(Instant instant) {
+        return GregorianCalendar.from(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC).toZonedDateTime());
     }
-}
\ No newline at end of file
+}
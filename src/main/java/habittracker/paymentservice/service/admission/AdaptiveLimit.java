@@ -0,0 +1,75 @@
+package habittracker.paymentservice.service.admission;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Адаптивный лимит одновременных запросов (AIMD).
+ * Каждый запрос, завершившийся без перегрузки при загрузке не меньше половины лимита, увеличивает лимит
+ * на 1/limit, то есть примерно на единицу за каждые limit запросов. Перегрузка уменьшает лимит
+ * в backoffRatio раз, но не чаще раза в backoffInterval.
+ */
+public class AdaptiveLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final Duration backoffInterval;
+    private final Clock clock;
+
+    private double limit;
+    private int inFlight;
+    private Instant backedOffAt = Instant.MIN;
+
+    public AdaptiveLimit(AdmissionProperties.ClassLimit settings, double backoffRatio, Duration backoffInterval,
+                         Clock clock) {
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.backoffRatio = backoffRatio;
+        this.backoffInterval = backoffInterval;
+        this.clock = clock;
+        this.limit = settings.getInitialLimit();
+    }
+
+    /**
+     * @return true, если запрос можно выполнять; после него обязателен {@link #release}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(boolean overloaded) {
+        inFlight = Math.max(0, inFlight - 1);
+        if (overloaded) {
+            backOff();
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Уменьшает лимит, не занимая и не освобождая слот: так более приоритетный класс
+     * сообщает о перегрузке менее приоритетным.
+     */
+    public synchronized void backOff() {
+        Instant now = clock.instant();
+        if (now.isBefore(backedOffAt.plus(backoffInterval))) {
+            return;
+        }
+        backedOffAt = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
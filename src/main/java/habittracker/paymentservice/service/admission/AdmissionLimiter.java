@@ -0,0 +1,99 @@
+package habittracker.paymentservice.service.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Допуск запросов к контроллерам по классам эндпоинтов.
+ * У каждого класса свой {@link AdaptiveLimit}: запросы сверх лимита сразу получают отказ, а не ждут потока.
+ * Ответ дольше latencyTarget класса уменьшает лимит этого класса и всех менее приоритетных,
+ * поэтому при росте задержки оплат первыми сокращаются отчёты.
+ */
+@Slf4j
+@Component
+public class AdmissionLimiter {
+
+    private final AdmissionProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<EndpointClass, AdaptiveLimit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    @Autowired
+    public AdmissionLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    public AdmissionLimiter(AdmissionProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdaptiveLimit limit = new AdaptiveLimit(properties.limitFor(endpointClass), properties.getBackoffRatio(),
+                    properties.getBackoffInterval(), clock);
+            limits.put(endpointClass, limit);
+
+            String tag = endpointClass.name().toLowerCase();
+            Gauge.builder("payment.admission.limit", limit, AdaptiveLimit::getLimit)
+                    .description("Текущий лимит одновременных запросов класса")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("payment.admission.in-flight", limit, AdaptiveLimit::getInFlight)
+                    .description("Выполняющиеся запросы класса")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rejected.put(endpointClass, Counter.builder("payment.admission.rejected")
+                    .description("Запросы, отклонённые из-за превышения лимита класса")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public EndpointClass classify(String path) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            for (String pattern : properties.limitFor(endpointClass).getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return endpointClass;
+                }
+            }
+        }
+        return EndpointClass.STANDARD;
+    }
+
+    /**
+     * @return false, если лимит класса исчерпан; иначе после запроса обязателен {@link #release}
+     */
+    public boolean tryAcquire(EndpointClass endpointClass) {
+        if (limits.get(endpointClass).tryAcquire()) {
+            return true;
+        }
+        rejected.get(endpointClass).increment();
+        return false;
+    }
+
+    public void release(EndpointClass endpointClass, Duration latency) {
+        boolean overloaded = latency.compareTo(properties.limitFor(endpointClass).getLatencyTarget()) > 0;
+        limits.get(endpointClass).release(overloaded);
+        if (!overloaded) {
+            return;
+        }
+        for (EndpointClass lower : EndpointClass.values()) {
+            if (lower.compareTo(endpointClass) > 0) {
+                limits.get(lower).backOff();
+            }
+        }
+        log.debug("Запрос класса {} выполнялся {}, лимит сокращён до {}", endpointClass, latency,
+                limits.get(endpointClass).getLimit());
+    }
+}
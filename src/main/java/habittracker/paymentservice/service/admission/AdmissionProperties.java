@@ -0,0 +1,51 @@
+package habittracker.paymentservice.service.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    // лимит не уменьшается чаще: запросы, начатые до уменьшения, ещё завершаются медленно
+    private Duration backoffInterval = Duration.ofSeconds(1);
+
+    // во сколько раз уменьшается лимит при перегрузке
+    private double backoffRatio = 0.9;
+
+    /**
+     * Настройки классов; запрос, не подошедший ни под один шаблон, относится к STANDARD.
+     */
+    private Map<EndpointClass, ClassLimit> classes = new EnumMap<>(EndpointClass.class);
+
+    public ClassLimit limitFor(EndpointClass endpointClass) {
+        return classes.getOrDefault(endpointClass, new ClassLimit());
+    }
+
+    @Getter
+    @Setter
+    public static class ClassLimit {
+
+        // Ant-шаблоны путей класса
+        private List<String> paths = new ArrayList<>();
+
+        private int initialLimit = 50;
+
+        private int minLimit = 5;
+
+        private int maxLimit = 200;
+
+        // ответ дольше этого считается признаком перегрузки
+        private Duration latencyTarget = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,13 @@
+package habittracker.paymentservice.service.admission;
+
+/**
+ * Классы эндпоинтов в порядке убывания приоритета. При перегрузке класса сокращаются лимиты
+ * и всех менее приоритетных, поэтому отчёты начинают получать 429 раньше, чем оплаты.
+ */
+public enum EndpointClass {
+    // оплата и операции с деньгами клиента
+    CRITICAL,
+    STANDARD,
+    // тяжёлые выборки и отчёты
+    REPORTING
+}
@@ -0,0 +1,27 @@
+package habittracker.paymentservice.service.batch;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.service.TransactionService;
+
+import java.util.function.BiFunction;
+
+/**
+ * Операции над транзакциями, доступные пакетом. Выполняются через {@link TransactionService},
+ * поэтому журнал, кэш и события обновляются так же, как при одиночном вызове.
+ */
+public enum BatchAction {
+    REFUND(TransactionService::refundTransactionByBraintree),
+    VOID(TransactionService::voidTransactionById),
+    CANCEL(TransactionService::cancelTransactionById);
+
+    private final BiFunction<TransactionService, String, Result<Transaction>> operation;
+
+    BatchAction(BiFunction<TransactionService, String, Result<Transaction>> operation) {
+        this.operation = operation;
+    }
+
+    public Result<Transaction> apply(TransactionService transactionService, String transactionId) {
+        return operation.apply(transactionService, transactionId);
+    }
+}
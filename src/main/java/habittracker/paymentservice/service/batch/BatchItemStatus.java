@@ -0,0 +1,8 @@
+package habittracker.paymentservice.service.batch;
+
+public enum BatchItemStatus {
+    SUCCEEDED,
+    FAILED,
+    // выполнено предыдущим запуском пакета, Braintree не вызывался
+    ALREADY_DONE
+}
@@ -0,0 +1,17 @@
+package habittracker.paymentservice.service.batch;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.batch")
+public class BatchProperties {
+
+    // одновременных вызовов Braintree на пакет; меньше лимита REFUND, чтобы одиночным возвратам оставались слоты
+    private int parallelism = 4;
+
+    // транзакций в одном запросе
+    private int maxItems = 1000;
+}
@@ -0,0 +1,199 @@
+package habittracker.paymentservice.service.batch;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.BatchItemResultDTO;
+import habittracker.paymentservice.model.entity.BatchOperationItem;
+import habittracker.paymentservice.repository.BatchOperationItemRepository;
+import habittracker.paymentservice.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Пакетные возвраты, аннулирования и отмены транзакций.
+ * Транзакции обрабатываются параллельно, не больше parallelism вызовов Braintree на пакет,
+ * результат каждой передаётся вызывающему сразу по завершении. Ошибка по одной транзакции не останавливает пакет.
+ * Результаты сохраняются в batch_operation_items: повторный запуск с тем же batchId не повторяет
+ * успешные операции, а выполняет только неудавшиеся и не начатые.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionBatchProcessor {
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private final TransactionService transactionService;
+    private final BatchOperationItemRepository repository;
+    private final BatchProperties properties;
+
+    /**
+     * Проверяет пакет до начала выполнения, чтобы ошибку запроса можно было вернуть статусом ответа.
+     *
+     * @throws IllegalArgumentException если пакет больше maxItems или batchId уже использован для другой операции
+     */
+    public void validate(String batchId, BatchAction action, List<String> ids) {
+        if (ids.size() > properties.getMaxItems()) {
+            throw new IllegalArgumentException("В пакете " + ids.size() + " транзакций, допустимо не больше "
+                    + properties.getMaxItems());
+        }
+        previousItems(batchId, action);
+    }
+
+    /**
+     * Выполняет action для каждой транзакции пакета. sink вызывается в потоке вызывающего, по одному результату
+     * в порядке завершения. Исключение из sink (клиент отключился) останавливает пакет: уже начатые вызовы
+     * Braintree завершаются и сохраняются, новые не начинаются.
+     */
+    public void run(String batchId, BatchAction action, List<String> ids, Consumer<BatchItemResultDTO> sink) {
+        Map<String, BatchOperationItem> previous = previousItems(batchId, action);
+        List<String> pending = new ArrayList<>();
+        for (String id : unique(ids)) {
+            BatchOperationItem done = previous.get(id);
+            if (done != null && done.getStatus() == BatchItemStatus.SUCCEEDED) {
+                BatchItemResultDTO skipped = toDto(done);
+                skipped.setStatus(BatchItemStatus.ALREADY_DONE);
+                sink.accept(skipped);
+            } else {
+                pending.add(id);
+            }
+        }
+
+        BlockingQueue<BatchItemResultDTO> results = new LinkedBlockingQueue<>();
+        Semaphore permits = new Semaphore(properties.getParallelism());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String id : pending) {
+                executor.execute(() -> process(new Item(batchId, action, id), permits, cancelled, results));
+            }
+            try {
+                for (int i = 0; i < pending.size(); i++) {
+                    sink.accept(results.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+                throw new IllegalStateException("Пакет " + batchId + " прерван", e);
+            } catch (RuntimeException e) {
+                cancelled.set(true);
+                log.warn("Пакет {} остановлен, результаты выполненных операций сохранены", batchId);
+                throw e;
+            }
+        }
+    }
+
+    public List<BatchItemResultDTO> progress(String batchId) {
+        return repository.findByBatchIdOrderByUpdatedAt(batchId).stream()
+                .map(TransactionBatchProcessor::toDto)
+                .toList();
+    }
+
+    private void process(Item item, Semaphore permits, AtomicBoolean cancelled,
+                         BlockingQueue<BatchItemResultDTO> results) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.add(new BatchItemResultDTO(item.batchId(), item.transactionId(), item.action(),
+                    BatchItemStatus.FAILED, null, null, "прервано до начала"));
+            return;
+        }
+        try {
+            if (!cancelled.get()) {
+                results.add(toDto(save(execute(item))));
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private BatchOperationItem execute(Item item) {
+        BatchOperationItem result = new BatchOperationItem();
+        result.setId(item.batchId() + ':' + item.transactionId());
+        result.setBatchId(item.batchId());
+        result.setTransactionId(item.transactionId());
+        result.setAction(item.action());
+        result.setStatus(BatchItemStatus.FAILED);
+        try {
+            Result<Transaction> response = item.action().apply(transactionService, item.transactionId());
+            Transaction transaction = response.isSuccess() ? response.getTarget() : response.getTransaction();
+            if (transaction != null) {
+                result.setResultTransactionId(transaction.getId());
+                result.setTransactionStatus(String.valueOf(transaction.getStatus()));
+            }
+            if (response.isSuccess()) {
+                result.setStatus(BatchItemStatus.SUCCEEDED);
+            } else {
+                result.setMessage(truncate(response.getMessage()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Пакет {}: {} транзакции {} не выполнен", item.batchId(), item.action(), item.transactionId(), e);
+            result.setMessage(truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        }
+        result.setUpdatedAt(Instant.now());
+        return result;
+    }
+
+    private BatchOperationItem save(BatchOperationItem item) {
+        try {
+            repository.save(item);
+        } catch (RuntimeException e) {
+            // результат всё равно отдаётся клиенту; повтор пакета выполнит операцию ещё раз,
+            // и Braintree отклонит повторный возврат или аннулирование
+            log.warn("Пакет {}: не сохранён результат по транзакции {}", item.getBatchId(),
+                    item.getTransactionId(), e);
+        }
+        return item;
+    }
+
+    private Map<String, BatchOperationItem> previousItems(String batchId, BatchAction action) {
+        Map<String, BatchOperationItem> previous = new HashMap<>();
+        for (BatchOperationItem item : repository.findByBatchIdOrderByUpdatedAt(batchId)) {
+            if (item.getAction() != action) {
+                throw new IllegalArgumentException("Пакет " + batchId + " уже используется для " + item.getAction());
+            }
+            previous.put(item.getTransactionId(), item);
+        }
+        return previous;
+    }
+
+    private static Set<String> unique(List<String> ids) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) {
+                unique.add(id.trim());
+            }
+        }
+        return unique;
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= MAX_MESSAGE_LENGTH
+                ? message
+                : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    private static BatchItemResultDTO toDto(BatchOperationItem item) {
+        return new BatchItemResultDTO(item.getBatchId(), item.getTransactionId(), item.getAction(),
+                item.getStatus(), item.getResultTransactionId(), item.getTransactionStatus(), item.getMessage());
+    }
+
+    private record Item(String batchId, BatchAction action, String transactionId) {
+    }
+}
@@ -0,0 +1,132 @@
+package habittracker.paymentservice.service.cache;
+
+import com.braintreegateway.BraintreeGateway;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пул заранее сгенерированных клиентских токенов Braintree для формы оплаты.
+ * Токен выдаётся один раз, пул пополняется в фоне после каждой выдачи, поэтому страница оплаты
+ * обычно рендерится без обращения к Braintree. Токен старше ttl из пула не выдаётся и заменяется новым.
+ * Если пул пуст, токен генерируется синхронно, как без пула.
+ */
+@Slf4j
+@Component
+public class ClientTokenPool {
+
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final ClientTokenPoolProperties properties;
+    private final Clock clock;
+    private final Deque<Entry> tokens = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+
+    @Autowired
+    public ClientTokenPool(BraintreeGateway braintreeGateway, GatewayExecutor gatewayExecutor,
+                           ClientTokenPoolProperties properties, MeterRegistry meterRegistry) {
+        this(braintreeGateway, gatewayExecutor, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    public ClientTokenPool(BraintreeGateway braintreeGateway, GatewayExecutor gatewayExecutor,
+                           ClientTokenPoolProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.braintreeGateway = braintreeGateway;
+        this.gatewayExecutor = gatewayExecutor;
+        this.properties = properties;
+        this.clock = clock;
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.expired = Counter.builder("payment.client-token.pool.expired")
+                .description("Клиентские токены, вытесненные из пула по сроку")
+                .register(meterRegistry);
+        Gauge.builder("payment.client-token.pool.size", tokens, Deque::size)
+                .description("Клиентские токены, готовые к выдаче")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return непросроченный токен из пула или, если пул пуст, сгенерированный сейчас
+     */
+    public String take() {
+        if (!properties.isEnabled()) {
+            return generate();
+        }
+        Instant now = clock.instant();
+        for (Entry entry = tokens.pollFirst(); entry != null; entry = tokens.pollFirst()) {
+            if (entry.expiresAt().isAfter(now)) {
+                hits.increment();
+                refillAsync();
+                return entry.token();
+            }
+            expired.increment();
+        }
+        misses.increment();
+        refillAsync();
+        return generate();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.client-token-pool.refill-interval:PT30S}")
+    public void refill() {
+        if (!properties.isEnabled() || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictExpired();
+            while (tokens.size() < properties.getSize()) {
+                tokens.offerLast(new Entry(generate(), clock.instant().plus(properties.getTtl())));
+            }
+        } catch (RuntimeException e) {
+            // пул догенерирует токены на следующей проверке, до тех пор промахи генерируются синхронно
+            log.warn("Не удалось пополнить пул клиентских токенов, в пуле {}", tokens.size(), e);
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private void refillAsync() {
+        if (!refilling.get()) {
+            Thread.ofVirtual().name("client-token-refill").start(this::refill);
+        }
+    }
+
+    // токены добавляются в конец, поэтому самые старые всегда в начале очереди
+    private void evictExpired() {
+        Instant now = clock.instant();
+        for (Entry entry = tokens.peekFirst(); entry != null && !entry.expiresAt().isAfter(now);
+             entry = tokens.peekFirst()) {
+            if (tokens.removeFirstOccurrence(entry)) {
+                expired.increment();
+            }
+        }
+    }
+
+    private String generate() {
+        return gatewayExecutor.execute(GatewayOperation.CLIENT_TOKEN,
+                () -> braintreeGateway.clientToken().generate());
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("payment.client-token.pool.requests")
+                .description("Запросы клиентского токена: hit - выдан из пула, miss - сгенерирован синхронно")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(String token, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,24 @@
+package habittracker.paymentservice.service.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.client-token-pool")
+public class ClientTokenPoolProperties {
+
+    private boolean enabled = true;
+
+    // сколько токенов держать готовыми к выдаче
+    private int size = 20;
+
+    // срок хранения в пуле; Braintree принимает токен сутки, запас остаётся на открытую страницу оплаты
+    private Duration ttl = Duration.ofHours(1);
+
+    // период проверки: вытеснение истёкших токенов и пополнение после простоя или ошибок
+    private Duration refillInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,186 @@
+package habittracker.paymentservice.service.cache;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.Plan;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Локальный каталог планов подписки с индексами по id и по имени.
+ * Поиск идёт только по памяти, обновление - фоном по расписанию
+ * (payment.plan-catalog.ttl) и сразу после изменения планов.
+ * Список, загруженный до {@link #put}, каталог не заменяет: такое обновление перечитывает планы заново.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PlanCatalog {
+
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // invalidate пришёл после начала идущего фонового обновления: каталог нужно перечитать ещё раз
+    private final AtomicBoolean stale = new AtomicBoolean();
+    // число вызовов put: обновление, во время загрузки которого оно изменилось, не применяется
+    private final AtomicLong generation = new AtomicLong();
+    // не synchronized: первая загрузка ждёт Braintree, а монитор закрепил бы виртуальный поток за носителем
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public Optional<Plan> findByName(String name) {
+        return Optional.ofNullable(current().byName().get(name));
+    }
+
+    public Optional<Plan> findById(String id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+
+    public List<Plan> all() {
+        return List.copyOf(current().byId().values());
+    }
+
+    /**
+     * Кладёт план в каталог, не дожидаясь следующего обновления.
+     * Старое имя плана (если план переименован) из индекса удаляется.
+     */
+    public void put(Plan plan) {
+        if (plan == null || plan.getId() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            putLocked(plan);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocked(Plan plan) {
+        Snapshot current = current();
+        generation.incrementAndGet();
+        Map<String, Plan> byId = new HashMap<>(current.byId());
+        Map<String, Plan> byName = new HashMap<>(current.byName());
+
+        Plan previous = byId.put(plan.getId(), plan);
+        if (previous != null && previous.getName() != null) {
+            byName.remove(previous.getName(), previous);
+        }
+        if (plan.getName() != null) {
+            byName.put(plan.getName(), plan);
+        }
+        snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byName));
+    }
+
+    /**
+     * Помечает каталог устаревшим и перечитывает его фоном.
+     * Вызовы во время идущего обновления схлопываются в одно повторное обновление после него:
+     * список, загруженный до изменения, не остаётся в каталоге.
+     */
+    public void invalidate() {
+        stale.set(true);
+        if (refreshing.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("plan-catalog-refresh").start(this::refreshWhileStale);
+        }
+    }
+
+    private void refreshWhileStale() {
+        try {
+            while (stale.getAndSet(false)) {
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить каталог планов после изменения, используется предыдущая версия", e);
+        } finally {
+            refreshing.set(false);
+        }
+        // invalidate между последней проверкой флага и снятием refreshing не запустил своё обновление
+        if (stale.get()) {
+            invalidate();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.plan-catalog.ttl:PT5M}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить каталог планов, используется предыдущая версия", e);
+        }
+    }
+
+    public void refresh() {
+        long loadedAt;
+        Collection<Plan> plans;
+        do {
+            loadedAt = generation.get();
+            plans = gatewayExecutor.execute(GatewayOperation.PLAN, () -> braintreeGateway.plan().all());
+        } while (!replace(plans, loadedAt));
+    }
+
+    /**
+     * @return false, если после начала загрузки план был изменён через put и список мог устареть
+     */
+    private boolean replace(Collection<Plan> plans, long loadedAt) {
+        lock.lock();
+        try {
+            if (generation.get() != loadedAt) {
+                log.debug("Каталог планов изменён во время обновления, список загружается заново");
+                return false;
+            }
+            replaceLocked(plans);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replaceLocked(Collection<Plan> plans) {
+        Map<String, Plan> byId = new HashMap<>();
+        Map<String, Plan> byName = new HashMap<>();
+        for (Plan plan : plans) {
+            if (plan.getId() == null) {
+                continue;
+            }
+            byId.put(plan.getId(), plan);
+            // как и прежний линейный поиск, при совпадении имён берём первый план
+            if (plan.getName() != null) {
+                byName.putIfAbsent(plan.getName(), plan);
+            }
+        }
+        snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byName));
+        log.debug("Каталог планов обновлён: {} планов", byId.size());
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(Map<String, Plan> byId, Map<String, Plan> byName) {
+    }
+}
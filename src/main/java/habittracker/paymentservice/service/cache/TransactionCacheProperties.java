@@ -0,0 +1,22 @@
+package habittracker.paymentservice.service.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.transaction-cache")
+public class TransactionCacheProperties {
+
+    // сверх этого вытесняются давно не читавшиеся транзакции
+    private int maxSize = 10_000;
+
+    // для транзакций, статус которых больше не изменится
+    private Duration terminalTtl = Duration.ofHours(1);
+
+    // для транзакций в процессе: авторизация, расчёт
+    private Duration pendingTtl = Duration.ofSeconds(30);
+}
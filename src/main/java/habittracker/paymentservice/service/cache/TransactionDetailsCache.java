@@ -0,0 +1,103 @@
+package habittracker.paymentservice.service.cache;
+
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Ограниченный по размеру кэш карточек транзакций перед журналом и Braintree.
+ * Срок жизни зависит от статуса: завершённая транзакция уже не изменится и хранится долго,
+ * транзакция в процессе - недолго, чтобы страница не показывала устаревший статус.
+ */
+@Component
+public class TransactionDetailsCache {
+
+    private static final Set<Transaction.Status> TERMINAL_STATUSES = EnumSet.of(
+            Transaction.Status.AUTHORIZATION_EXPIRED,
+            Transaction.Status.FAILED,
+            Transaction.Status.GATEWAY_REJECTED,
+            Transaction.Status.PROCESSOR_DECLINED,
+            Transaction.Status.SETTLED,
+            Transaction.Status.SETTLEMENT_DECLINED,
+            Transaction.Status.VOIDED);
+
+    private final TransactionCacheProperties properties;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+
+    @Autowired
+    public TransactionDetailsCache(TransactionCacheProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public TransactionDetailsCache(TransactionCacheProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > properties.getMaxSize();
+            }
+        };
+    }
+
+    public Optional<TransactionDetailsDTO> get(String id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.expiresAt().isBefore(clock.instant())) {
+                entries.remove(id);
+                return Optional.empty();
+            }
+            return Optional.of(entry.details());
+        }
+    }
+
+    public void put(TransactionDetailsDTO details) {
+        if (details == null || details.getId() == null) {
+            return;
+        }
+        Entry entry = new Entry(details, clock.instant().plus(ttlFor(details.getStatus())));
+        synchronized (entries) {
+            entries.put(details.getId(), entry);
+        }
+    }
+
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Сколько можно доверять карточке транзакции, статус которой ещё может измениться.
+     */
+    public Duration pendingTtl() {
+        return properties.getPendingTtl();
+    }
+
+    public static boolean isTerminal(Transaction.Status status) {
+        return status != null && TERMINAL_STATUSES.contains(status);
+    }
+
+    private Duration ttlFor(Transaction.Status status) {
+        return isTerminal(status)
+                ? properties.getTerminalTtl()
+                : properties.getPendingTtl();
+    }
+
+    private record Entry(TransactionDetailsDTO details, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,135 @@
+package habittracker.paymentservice.service.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переносит события из payment_event_outbox в Kafka.
+ * Пачка закрепляется за инстансом короткой транзакцией: строки выбираются с FOR UPDATE SKIP LOCKED
+ * и помечаются locked_until, поэтому несколько инстансов разбирают outbox параллельно.
+ * Отправка и ожидание брокера идут вне транзакции и не держат блокировки строк.
+ * Подтверждённые строки удаляются, остальные освобождаются для следующего запуска;
+ * пачку упавшего инстанса забирают после истечения claimTimeout.
+ * При сбое событие будет отправлено повторно (at-least-once), получатель отбрасывает повторы по eventId.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String CLAIM_BATCH = "WITH batch AS (SELECT event_id FROM payment_event_outbox "
+            + "WHERE locked_until IS NULL OR locked_until < ? ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "claimed AS (UPDATE payment_event_outbox o SET locked_until = ? FROM batch "
+            + "WHERE o.event_id = batch.event_id RETURNING o.event_id, o.topic, o.event_key, o.payload, o.created_at) "
+            + "SELECT event_id, topic, event_key, payload FROM claimed ORDER BY created_at";
+
+    private static final String DELETE = "DELETE FROM payment_event_outbox WHERE event_id = ?";
+
+    private static final String RELEASE = "UPDATE payment_event_outbox SET locked_until = NULL WHERE event_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final PaymentEventProperties properties;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                       KafkaTemplate<String, String> kafkaTemplate, PaymentEventProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.events.relay-interval:PT0.5S}")
+    public void relay() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // полная пачка - вероятно, в outbox есть ещё; неполная или ошибка - ждём следующего запуска
+        int delivered;
+        do {
+            delivered = relayBatch();
+        } while (delivered == properties.getBatchSize());
+    }
+
+    private int relayBatch() {
+        List<Entry> batch = claim();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // отправляем всю пачку сразу, продюсер сам соберёт её в запросы к брокеру
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            sends.add(send(entry));
+        }
+
+        long deadline = System.nanoTime() + properties.getSendTimeout().toNanos();
+        List<String> delivered = new ArrayList<>(batch.size());
+        List<String> undelivered = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            (await(sends.get(i), deadline) ? delivered : undelivered).add(batch.get(i).eventId());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            update(DELETE, delivered);
+            update(RELEASE, undelivered);
+        });
+        if (!undelivered.isEmpty()) {
+            log.warn("Kafka не подтвердила {} из {} событий, они останутся в outbox",
+                    undelivered.size(), batch.size());
+        }
+        return delivered.size();
+    }
+
+    private List<Entry> claim() {
+        Instant now = Instant.now();
+        List<Entry> batch = transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_BATCH,
+                (rs, rowNum) -> new Entry(rs.getString("event_id"), rs.getString("topic"),
+                        rs.getString("event_key"), rs.getString("payload")),
+                Timestamp.from(now), properties.getBatchSize(),
+                Timestamp.from(now.plus(properties.getClaimTimeout()))));
+        return batch == null ? List.of() : batch;
+    }
+
+    private void update(String sql, List<String> eventIds) {
+        if (!eventIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, eventIds, eventIds.size(), (ps, eventId) -> ps.setString(1, eventId));
+        }
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(Entry entry) {
+        try {
+            return kafkaTemplate.send(entry.topic(), entry.key(), entry.payload());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean await(CompletableFuture<SendResult<String, String>> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private record Entry(String eventId, String topic, String key, String payload) {
+    }
+}
@@ -0,0 +1,58 @@
+package habittracker.paymentservice.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.model.entity.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пишет события в payment_event_outbox пачкой в текущей транзакции вызывающего.
+ * Повторная запись того же eventId игнорируется.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private static final String INSERT = "INSERT INTO payment_event_outbox "
+            + "(event_id, topic, event_key, payload, created_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (event_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PaymentEventProperties properties;
+
+    public void insert(List<PaymentEventDTO> events) {
+        if (!properties.isEnabled() || events.isEmpty()) {
+            return;
+        }
+        Instant createdAt = Instant.now();
+        List<OutboxEvent> entries = new ArrayList<>(events.size());
+        for (PaymentEventDTO event : events) {
+            entries.add(new OutboxEvent(event.getEventId(), properties.getTopic(), event.getResourceId(),
+                    toJson(event), createdAt, null));
+        }
+        jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getEventId());
+            ps.setString(2, entry.getTopic());
+            ps.setString(3, entry.getEventKey());
+            ps.setString(4, entry.getPayload());
+            ps.setTimestamp(5, Timestamp.from(entry.getCreatedAt()));
+        });
+    }
+
+    private String toJson(PaymentEventDTO event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + event.getEventId(), e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package habittracker.paymentservice.service.event;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.events")
+public class PaymentEventProperties {
+
+    // false - события не публикуются, например, в окружении без Kafka
+    private boolean enabled = true;
+
+    private String topic = "payment-events";
+
+    // события, ожидающие повторной записи в outbox после ошибки базы; сверх этого теряются
+    private int queueCapacity = 10_000;
+
+    // размер пачки при записи в outbox и при отправке из него
+    private int batchSize = 500;
+
+    // как часто повторяется запись в outbox событий, не записанных сразу
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    // как часто relay проверяет outbox
+    private Duration relayInterval = Duration.ofMillis(500);
+
+    // ожидание подтверждения брокера для пачки; неподтверждённые события остаются в outbox
+    private Duration sendTimeout = Duration.ofSeconds(5);
+
+    // на сколько пачка закрепляется за инстансом relay; должно быть больше sendTimeout
+    private Duration claimTimeout = Duration.ofSeconds(30);
+}
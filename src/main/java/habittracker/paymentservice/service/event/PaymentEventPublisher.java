@@ -0,0 +1,11 @@
+package habittracker.paymentservice.service.event;
+
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+
+public interface PaymentEventPublisher {
+
+    /**
+     * Пишет событие в outbox сразу; если база недоступна, событие ставится в очередь повторной записи.
+     */
+    void publish(PaymentEventDTO event);
+}
@@ -0,0 +1,95 @@
+package habittracker.paymentservice.service.event;
+
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Публикация событий без обращения к Kafka в потоке запроса.
+ * Событие сразу пишется в payment_event_outbox, откуда его в Kafka переносит {@link OutboxRelay}.
+ * Публикация вызывается после успешного изменения в Braintree и никогда не выбрасывает исключение:
+ * при любой ошибке записи событие ставится в очередь, и планировщик повторяет запись,
+ * пока она не пройдёт. Ошибка базы не теряет событие, пока в очереди есть место;
+ * событие, которое не записывается и по одному, отбрасывается с ошибкой в логе.
+ * События по транзакциям пишутся в outbox вместе с журналом транзакций и сюда попадают только при его ошибке.
+ */
+@Slf4j
+@Component
+public class PaymentEventPublisherImpl implements PaymentEventPublisher {
+
+    private final OutboxWriter outboxWriter;
+    private final PaymentEventProperties properties;
+    private final BlockingQueue<PaymentEventDTO> retries;
+
+    public PaymentEventPublisherImpl(OutboxWriter outboxWriter, PaymentEventProperties properties) {
+        this.outboxWriter = outboxWriter;
+        this.properties = properties;
+        this.retries = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @Override
+    public void publish(PaymentEventDTO event) {
+        if (!properties.isEnabled() || event == null) {
+            return;
+        }
+        try {
+            outboxWriter.insert(List.of(event));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать в outbox событие {} {}, запись будет повторена",
+                    event.getType(), event.getResourceId(), e);
+            retryLater(List.of(event));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.events.flush-interval:PT0.05S}")
+    public void flush() {
+        while (!retries.isEmpty()) {
+            List<PaymentEventDTO> batch = new ArrayList<>(properties.getBatchSize());
+            retries.drainTo(batch, properties.getBatchSize());
+            try {
+                outboxWriter.insert(batch);
+            } catch (DataAccessException | TransactionException e) {
+                // база всё ещё недоступна: возвращаем пачку в очередь до следующего запуска
+                log.error("Повторная запись в outbox {} событий не удалась", batch.size(), e);
+                retryLater(batch);
+                return;
+            } catch (RuntimeException e) {
+                // ошибка не в базе, а в каком-то событии: пишем по одному, чтобы оно не держало остальные
+                batch.forEach(this::insertOrDrop);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void insertOrDrop(PaymentEventDTO event) {
+        try {
+            outboxWriter.insert(List.of(event));
+        } catch (DataAccessException | TransactionException e) {
+            retryLater(List.of(event));
+        } catch (RuntimeException e) {
+            log.error("Событие {} {} не записывается в outbox и отброшено", event.getType(), event.getResourceId(), e);
+        }
+    }
+
+    private void retryLater(List<PaymentEventDTO> events) {
+        for (PaymentEventDTO event : events) {
+            if (!retries.offer(event)) {
+                log.error("Очередь повторной записи событий заполнена, событие {} {} потеряно",
+                        event.getType(), event.getResourceId());
+            }
+        }
+    }
+}
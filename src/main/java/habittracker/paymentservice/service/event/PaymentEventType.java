@@ -0,0 +1,23 @@
+package habittracker.paymentservice.service.event;
+
+public enum PaymentEventType {
+    TRANSACTION_SALE,
+    TRANSACTION_REFUND,
+    TRANSACTION_VOID,
+    TRANSACTION_CANCEL,
+    TRANSACTION_SETTLED,
+    TRANSACTION_SETTLEMENT_DECLINED,
+    TRANSACTION_DISPUTED,
+    SUBSCRIPTION_CREATED,
+    SUBSCRIPTION_UPDATED,
+    SUBSCRIPTION_CANCELED,
+    SUBSCRIPTION_DELETED,
+    SUBSCRIPTION_CHARGED,
+    SUBSCRIPTION_CHARGE_FAILED,
+    SUBSCRIPTION_ACTIVATED,
+    SUBSCRIPTION_PAST_DUE,
+    SUBSCRIPTION_EXPIRED,
+    SUBSCRIPTION_TRIAL_ENDED,
+    PLAN_CREATED,
+    PLAN_UPDATED
+}
@@ -0,0 +1,118 @@
+package habittracker.paymentservice.service.event;
+
+import com.braintreegateway.Dispute;
+import com.braintreegateway.Plan;
+import com.braintreegateway.Result;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.WebhookNotification;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Сборка событий из ответов Braintree.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PaymentEvents {
+
+    /**
+     * Событие по транзакции из ответа: успешной или отклонённой, если Braintree её создал.
+     */
+    public static Optional<PaymentEventDTO> ofTransactionResult(PaymentEventType type, Result<Transaction> result) {
+        if (result == null) {
+            return Optional.empty();
+        }
+        Transaction transaction = result.isSuccess() ? result.getTarget() : result.getTransaction();
+        if (transaction == null || transaction.getId() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(transactionEvent(newEventId(), type, transaction, Instant.now()));
+    }
+
+    /**
+     * Событие по подписке, только для успешного ответа.
+     * У удаления в ответе может не быть подписки, поэтому id передаётся отдельно.
+     */
+    public static Optional<PaymentEventDTO> ofSubscriptionResult(PaymentEventType type, String subscriptionId,
+                                                                 Result<Subscription> result) {
+        if (result == null || !result.isSuccess()) {
+            return Optional.empty();
+        }
+        Subscription subscription = result.getTarget();
+        if (subscription == null) {
+            return Optional.ofNullable(subscriptionId).map(id -> new PaymentEventDTO(newEventId(), type, id,
+                    null, null, null, null, null, Instant.now()));
+        }
+        return Optional.of(subscriptionEvent(newEventId(), type, subscription, Instant.now()));
+    }
+
+    /**
+     * Событие из уведомления Braintree.
+     * id события выводится из вида уведомления, ресурса и времени отправки, поэтому повторная доставка
+     * того же уведомления не создаёт в outbox второе событие.
+     */
+    public static Optional<PaymentEventDTO> ofWebhook(PaymentEventType type, WebhookNotification notification) {
+        Instant occurredAt = notification.getTimestamp() == null
+                ? Instant.now()
+                : notification.getTimestamp().toInstant();
+        Dispute dispute = notification.getDispute();
+        if (dispute != null && dispute.getTransaction() != null) {
+            String transactionId = dispute.getTransaction().getId();
+            return Optional.of(new PaymentEventDTO(webhookEventId(notification, dispute.getId()), type,
+                    transactionId, null, dispute.getStatus() == null ? null : dispute.getStatus().name(),
+                    dispute.getDisputedAmount(), dispute.getCurrencyIsoCode(), null, occurredAt));
+        }
+        Transaction transaction = notification.getTransaction();
+        if (transaction != null && transaction.getId() != null) {
+            return Optional.of(transactionEvent(webhookEventId(notification, transaction.getId()), type,
+                    transaction, occurredAt));
+        }
+        Subscription subscription = notification.getSubscription();
+        if (subscription != null && subscription.getId() != null) {
+            return Optional.of(subscriptionEvent(webhookEventId(notification, subscription.getId()), type,
+                    subscription, occurredAt));
+        }
+        return Optional.empty();
+    }
+
+    public static Optional<PaymentEventDTO> ofPlanResult(PaymentEventType type, Result<Plan> result) {
+        if (result == null || !result.isSuccess() || result.getTarget() == null) {
+            return Optional.empty();
+        }
+        Plan plan = result.getTarget();
+        return Optional.of(new PaymentEventDTO(newEventId(), type, plan.getId(), null, null,
+                plan.getPrice(), plan.getCurrencyIsoCode(), plan.getId(), Instant.now()));
+    }
+
+    private static PaymentEventDTO transactionEvent(String eventId, PaymentEventType type, Transaction transaction,
+                                                    Instant occurredAt) {
+        return new PaymentEventDTO(eventId, type, transaction.getId(), transaction.getRefundedTransactionId(),
+                transaction.getStatus() == null ? null : transaction.getStatus().name(),
+                transaction.getAmount(), transaction.getCurrencyIsoCode(), transaction.getPlanId(), occurredAt);
+    }
+
+    private static PaymentEventDTO subscriptionEvent(String eventId, PaymentEventType type,
+                                                     Subscription subscription, Instant occurredAt) {
+        return new PaymentEventDTO(eventId, type, subscription.getId(), null,
+                subscription.getStatus() == null ? null : subscription.getStatus().name(),
+                subscription.getPrice(), null, subscription.getPlanId(), occurredAt);
+    }
+
+    private static String newEventId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static String webhookEventId(WebhookNotification notification, String resourceId) {
+        String timestamp = notification.getTimestamp() == null
+                ? ""
+                : String.valueOf(notification.getTimestamp().getTimeInMillis());
+        String source = notification.getKind() + ":" + resourceId + ":" + timestamp;
+        return UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,37 @@
+package habittracker.paymentservice.service.idempotency;
+
+/**
+ * Итог попытки занять ключ идемпотентности.
+ *
+ * @param outcome  что делать с запросом
+ * @param response сохранённый ответ, только для REPLAY
+ */
+public record IdempotencyClaim(Outcome outcome, StoredResponse response) {
+
+    public enum Outcome {
+        // ключ свободен, запрос выполняется
+        ACQUIRED,
+        // запрос уже выполнен, отдаём сохранённый ответ
+        REPLAY,
+        // запрос с этим ключом ещё выполняется
+        IN_PROGRESS,
+        // ключ уже использован для другого запроса
+        MISMATCH
+    }
+
+    public static IdempotencyClaim acquired() {
+        return new IdempotencyClaim(Outcome.ACQUIRED, null);
+    }
+
+    public static IdempotencyClaim replay(StoredResponse response) {
+        return new IdempotencyClaim(Outcome.REPLAY, response);
+    }
+
+    public static IdempotencyClaim inProgress() {
+        return new IdempotencyClaim(Outcome.IN_PROGRESS, null);
+    }
+
+    public static IdempotencyClaim mismatch() {
+        return new IdempotencyClaim(Outcome.MISMATCH, null);
+    }
+}
@@ -0,0 +1,34 @@
+package habittracker.paymentservice.service.idempotency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.idempotency")
+public class IdempotencyProperties {
+
+    // POST-запросы по этим путям принимают ключ идемпотентности
+    private List<String> paths = List.of(
+            "/payment/checkouts",
+            "/api/payment/refund",
+            "/api/payment/void",
+            "/api/payment/cancel");
+
+    // сколько завершённых ответов держать в памяти
+    private int cacheSize = 10_000;
+
+    // ключ, занятый дольше этого и не завершённый, считается брошенным упавшим инстансом и выдаётся повтору;
+    // должен быть больше самого долгого запроса с учётом очередей и таймаутов Braintree
+    private Duration inProgressLease = Duration.ofMinutes(2);
+
+    // сколько хранится ключ; повтор после этого срока выполнится заново
+    private Duration ttl = Duration.ofHours(24);
+
+    // как часто удалять просроченные ключи
+    private Duration cleanupInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,13 @@
+package habittracker.paymentservice.service.idempotency;
+
+public interface IdempotencyService {
+
+    /**
+     * @param requestHash отпечаток метода, параметров и тела запроса; тот же ключ с другим отпечатком отклоняется
+     */
+    IdempotencyClaim claim(String key, String requestPath, String requestHash);
+
+    void complete(String key, StoredResponse response);
+
+    void release(String key);
+}
@@ -0,0 +1,132 @@
+package habittracker.paymentservice.service.idempotency;
+
+import habittracker.paymentservice.model.entity.IdempotencyRecord;
+import habittracker.paymentservice.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Хранит ключи идемпотентности в Postgres, а завершённые ответы дополнительно - в LRU-кэше в памяти:
+ * повтор недавнего запроса не доходит ни до базы, ни до Braintree.
+ * Ключ занимается одним INSERT ... ON CONFLICT DO NOTHING, поэтому два одновременных запроса
+ * с одним ключом не выполнятся оба даже на разных инстансах.
+ * Вместе с ключом хранится отпечаток запроса: тот же ключ с другими параметрами или телом отклоняется.
+ * Незавершённый ключ старше inProgressLease считается брошенным упавшим инстансом и выдаётся повтору.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private final IdempotencyRecordRepository repository;
+    private final IdempotencyProperties properties;
+    private final Map<String, StoredResponse> completed;
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository repository, IdempotencyProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+        this.completed = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > properties.getCacheSize();
+            }
+        };
+    }
+
+    @Override
+    public IdempotencyClaim claim(String key, String requestPath, String requestHash) {
+        StoredResponse cached = cached(key);
+        if (cached != null) {
+            return isSameRequest(cached.requestPath(), cached.requestHash(), requestPath, requestHash)
+                    ? IdempotencyClaim.replay(cached)
+                    : IdempotencyClaim.mismatch();
+        }
+
+        Instant now = Instant.now();
+        if (repository.claim(key, requestPath, requestHash, now) == 1) {
+            return IdempotencyClaim.acquired();
+        }
+
+        IdempotencyRecord record = repository.findById(key).orElse(null);
+        if (record == null) {
+            // ключ освободили между INSERT и SELECT: клиент повторит запрос
+            return IdempotencyClaim.inProgress();
+        }
+        if (!isSameRequest(record.getRequestPath(), record.getRequestHash(), requestPath, requestHash)) {
+            return IdempotencyClaim.mismatch();
+        }
+        if (record.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+            return isAbandoned(record, now) && repository.takeOver(key, record.getCreatedAt(), now) == 1
+                    ? takenOver(key)
+                    : IdempotencyClaim.inProgress();
+        }
+
+        StoredResponse stored = new StoredResponse(record.getRequestPath(), record.getRequestHash(),
+                record.getResponseStatus(), record.getResponseLocation(), record.getResponseContentType(),
+                record.getResponseBody(), record.getCreatedAt());
+        cache(key, stored);
+        return IdempotencyClaim.replay(stored);
+    }
+
+    @Override
+    @Transactional
+    public void complete(String key, StoredResponse response) {
+        repository.findById(key).ifPresent(record -> {
+            record.setStatus(IdempotencyRecord.Status.COMPLETED);
+            record.setResponseStatus(response.status());
+            record.setResponseLocation(response.location());
+            record.setResponseContentType(response.contentType());
+            record.setResponseBody(response.body());
+        });
+        cache(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+        repository.deleteById(key);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.cleanup-interval:PT1H}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(properties.getTtl());
+        synchronized (completed) {
+            completed.values().removeIf(response -> response.createdAt().isBefore(cutoff));
+        }
+        int deleted = repository.deleteCreatedBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Удалено просроченных ключей идемпотентности: {}", deleted);
+        }
+    }
+
+    private boolean isAbandoned(IdempotencyRecord record, Instant now) {
+        return record.getCreatedAt().isBefore(now.minus(properties.getInProgressLease()));
+    }
+
+    private IdempotencyClaim takenOver(String key) {
+        log.warn("Ключ идемпотентности {} не завершён за {}, запрос выполняется заново", key,
+                properties.getInProgressLease());
+        return IdempotencyClaim.acquired();
+    }
+
+    private static boolean isSameRequest(String storedPath, String storedHash, String path, String hash) {
+        return storedPath.equals(path) && Objects.equals(storedHash, hash);
+    }
+
+    private StoredResponse cached(String key) {
+        synchronized (completed) {
+            return completed.get(key);
+        }
+    }
+
+    private void cache(String key, StoredResponse response) {
+        synchronized (completed) {
+            completed.put(key, response);
+        }
+    }
+}
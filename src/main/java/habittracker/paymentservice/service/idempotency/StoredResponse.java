@@ -0,0 +1,15 @@
+package habittracker.paymentservice.service.idempotency;
+
+import java.time.Instant;
+
+/**
+ * Ответ на запрос с ключом идемпотентности, который отдаётся повторно без вызова Braintree.
+ */
+public record StoredResponse(String requestPath,
+                             String requestHash,
+                             int status,
+                             String location,
+                             String contentType,
+                             byte[] body,
+                             Instant createdAt) {
+}
@@ -0,0 +1,7 @@
+package habittracker.paymentservice.service.job;
+
+public enum SubscriptionJobAction {
+    CANCEL,
+    // перевод на другой план: planId и цена подписки меняются на целевые
+    MIGRATE
+}
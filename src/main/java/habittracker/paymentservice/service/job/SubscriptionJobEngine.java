@@ -0,0 +1,370 @@
+package habittracker.paymentservice.service.job;
+
+import com.braintreegateway.Plan;
+import com.braintreegateway.Result;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.SubscriptionRequest;
+import habittracker.paymentservice.model.dto.SubscriptionJobDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobRequestDTO;
+import habittracker.paymentservice.model.entity.SubscriptionJob;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import habittracker.paymentservice.repository.SubscriptionJobRepository;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
+import habittracker.paymentservice.service.PlanService;
+import habittracker.paymentservice.service.SubscriptionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Массовые задания над подписками: отмена или перевод на другой план всех подписок выборки.
+ * Подписки выбираются из локальной проекции страницами по id и обрабатываются параллельно,
+ * не больше parallelism одновременно и ratePerSecond в секунду. После каждой страницы прогресс
+ * сохраняется в subscription_jobs; после перезапуска задание продолжается с последней сохранённой страницы.
+ * Подписка, уже находящаяся в целевом состоянии, пропускается, поэтому повтор страницы безопасен.
+ * Задание выполняет один инстанс: владелец продлевает lease при каждом сохранении прогресса.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SubscriptionJobEngine {
+
+    private static final Set<SubscriptionJobState> ACTIVE_STATES =
+            EnumSet.of(SubscriptionJobState.PENDING, SubscriptionJobState.RUNNING);
+    private static final Set<Subscription.Status> CANCELLED_STATUSES =
+            EnumSet.of(Subscription.Status.CANCELED, Subscription.Status.EXPIRED);
+    private static final Sort BY_ID = Sort.by("id");
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final int CANCEL_ATTEMPTS = 3;
+
+    private final SubscriptionService subscriptionService;
+    private final PlanService planService;
+    private final SubscriptionJobRepository jobRepository;
+    private final SubscriptionProjectionRepository projectionRepository;
+    private final SubscriptionJobProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopping;
+
+    /**
+     * Сохраняет задание и сразу запускает его на этом инстансе.
+     *
+     * @throws IllegalArgumentException если выборка пуста или целевой план не найден
+     */
+    public SubscriptionJobDTO submit(SubscriptionJobRequestDTO request) {
+        if (request.getPlanId() == null && request.getStatus() == null) {
+            throw new IllegalArgumentException("Задание должно выбирать подписки по плану или статусу");
+        }
+        SubscriptionJob job = new SubscriptionJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setAction(request.getAction());
+        job.setPlanId(request.getPlanId());
+        job.setSubscriptionStatus(request.getStatus());
+        if (request.getAction() == SubscriptionJobAction.MIGRATE) {
+            if (request.getTargetPlanId() == null) {
+                throw new IllegalArgumentException("Для перевода подписок нужен целевой план");
+            }
+            Plan target = planService.getPlanById(request.getTargetPlanId()).orElseThrow(
+                    () -> new IllegalArgumentException("План " + request.getTargetPlanId() + " не найден"));
+            job.setTargetPlanId(target.getId());
+            job.setTargetPrice(request.getTargetPrice() != null ? request.getTargetPrice() : target.getPrice());
+        }
+        job.setState(SubscriptionJobState.PENDING);
+        job.setCursor("");
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job = jobRepository.save(job);
+        log.info("Создано задание {} {} для плана {} и статуса {}", job.getId(), job.getAction(), job.getPlanId(),
+                job.getSubscriptionStatus());
+        start(job.getId());
+        return toDto(job);
+    }
+
+    public Optional<SubscriptionJobDTO> find(String id) {
+        return jobRepository.findById(id).map(SubscriptionJobEngine::toDto);
+    }
+
+    /**
+     * Останавливает задание. Уже выполняемые вызовы Braintree завершаются, следующая страница не начинается.
+     */
+    public Optional<SubscriptionJobDTO> cancel(String id) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<SubscriptionJob> found = jobRepository.findById(id);
+            if (found.isEmpty() || !ACTIVE_STATES.contains(found.get().getState())) {
+                return found.map(SubscriptionJobEngine::toDto);
+            }
+            SubscriptionJob job = found.get();
+            job.setState(SubscriptionJobState.CANCELLED);
+            job.setLeaseUntil(null);
+            job.setUpdatedAt(Instant.now());
+            try {
+                return Optional.of(toDto(jobRepository.save(job)));
+            } catch (OptimisticLockingFailureException e) {
+                // задание как раз сохранило прогресс, перечитываем
+                if (attempt == CANCEL_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.subscription-jobs.poll-interval:PT30S}")
+    public void resume() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        jobRepository.findByStateIn(ACTIVE_STATES).forEach(job -> start(job.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // начатая страница не сохраняется и после перезапуска обработается заново
+        stopping = true;
+    }
+
+    private void start(String id) {
+        if (!properties.isEnabled() || stopping || running.contains(id)) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (jobRepository.claim(id, instanceId, now, now.plus(properties.getLease())) == 0 || !running.add(id)) {
+            return;
+        }
+        Thread.ofVirtual().name("subscription-job-" + id).start(() -> {
+            try {
+                run(id);
+            } catch (RuntimeException e) {
+                log.warn("Задание {} прервано, его продолжит следующая проверка после истечения lease", id, e);
+            } finally {
+                running.remove(id);
+            }
+        });
+    }
+
+    private void run(String id) {
+        SubscriptionJob job = jobRepository.findById(id).orElseThrow();
+        if (job.getState() == SubscriptionJobState.PENDING) {
+            job.setState(SubscriptionJobState.RUNNING);
+            job.setStartedAt(Instant.now());
+        }
+        Pacer pacer = new Pacer(properties.getRatePerSecond());
+        while (job.getState() == SubscriptionJobState.RUNNING) {
+            List<SubscriptionProjection> page = nextPage(job);
+            if (page.isEmpty()) {
+                job.setState(SubscriptionJobState.COMPLETED);
+                job.setLeaseUntil(null);
+            } else if (process(job, page, pacer)) {
+                job.setCursor(page.get(page.size() - 1).getId());
+                job.setLeaseUntil(Instant.now().plus(properties.getLease()));
+            } else {
+                return;
+            }
+            job.setUpdatedAt(Instant.now());
+            try {
+                job = jobRepository.save(job);
+            } catch (OptimisticLockingFailureException e) {
+                log.info("Задание {} отменено или перешло к другому инстансу", id);
+                return;
+            }
+        }
+        log.info("Задание {} завершено: обработано {}, успешно {}, с ошибкой {}, пропущено {}", id,
+                job.getProcessed(), job.getSucceeded(), job.getFailed(), job.getSkipped());
+    }
+
+    private List<SubscriptionProjection> nextPage(SubscriptionJob job) {
+        PageRequest page = PageRequest.of(0, properties.getPageSize(), BY_ID);
+        if (job.getPlanId() != null && job.getSubscriptionStatus() != null) {
+            return projectionRepository.findByPlanIdAndStatusAndIdGreaterThan(job.getPlanId(),
+                    job.getSubscriptionStatus(), job.getCursor(), page);
+        }
+        if (job.getPlanId() != null) {
+            return projectionRepository.findByPlanIdAndIdGreaterThan(job.getPlanId(), job.getCursor(), page);
+        }
+        return projectionRepository.findByStatusAndIdGreaterThan(job.getSubscriptionStatus(), job.getCursor(), page);
+    }
+
+    /**
+     * @return false, если приложение останавливается и страница обработана не целиком
+     */
+    private boolean process(SubscriptionJob job, List<SubscriptionProjection> page, Pacer pacer) {
+        Semaphore permits = new Semaphore(properties.getParallelism());
+        PageOutcome outcome = new PageOutcome();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SubscriptionProjection subscription : page) {
+                executor.execute(() -> outcome.add(apply(job, subscription, permits, pacer)));
+            }
+        }
+        outcome.addTo(job);
+        return !outcome.interrupted;
+    }
+
+    private ItemResult apply(SubscriptionJob job, SubscriptionProjection subscription, Semaphore permits,
+                             Pacer pacer) {
+        if (isDone(job, subscription)) {
+            return count(job, new ItemResult(ItemOutcome.SKIPPED, null));
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ItemResult(ItemOutcome.NOT_STARTED, null);
+        }
+        try {
+            if (stopping || !pacer.acquire()) {
+                return new ItemResult(ItemOutcome.NOT_STARTED, null);
+            }
+            Result<Subscription> result = job.getAction() == SubscriptionJobAction.CANCEL
+                    ? subscriptionService.cancelSubscription(subscription.getId())
+                    : subscriptionService.updateSubscription(subscription.getId(), new SubscriptionRequest()
+                            .planId(job.getTargetPlanId())
+                            .price(job.getTargetPrice()));
+            return count(job, result.isSuccess()
+                    ? new ItemResult(ItemOutcome.SUCCEEDED, null)
+                    : new ItemResult(ItemOutcome.FAILED, subscription.getId() + ": " + result.getMessage()));
+        } catch (RuntimeException e) {
+            log.warn("Задание {}: подписка {} не обработана", job.getId(), subscription.getId(), e);
+            return count(job, new ItemResult(ItemOutcome.FAILED, subscription.getId() + ": " + e.getMessage()));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isDone(SubscriptionJob job, SubscriptionProjection subscription) {
+        if (job.getAction() == SubscriptionJobAction.CANCEL) {
+            return CANCELLED_STATUSES.contains(subscription.getStatus());
+        }
+        return job.getTargetPlanId().equals(subscription.getPlanId())
+                && subscription.getPrice() != null
+                && subscription.getPrice().compareTo(job.getTargetPrice()) == 0;
+    }
+
+    private ItemResult count(SubscriptionJob job, ItemResult result) {
+        meterRegistry.counter("payment.subscription.job.items",
+                "action", job.getAction().name().toLowerCase(),
+                "outcome", result.outcome().name().toLowerCase()).increment();
+        return result;
+    }
+
+    private static SubscriptionJobDTO toDto(SubscriptionJob job) {
+        SubscriptionJobDTO dto = new SubscriptionJobDTO();
+        dto.setId(job.getId());
+        dto.setAction(job.getAction());
+        dto.setPlanId(job.getPlanId());
+        dto.setStatus(job.getSubscriptionStatus());
+        dto.setTargetPlanId(job.getTargetPlanId());
+        dto.setTargetPrice(job.getTargetPrice());
+        dto.setState(job.getState());
+        dto.setProcessed(job.getProcessed());
+        dto.setSucceeded(job.getSucceeded());
+        dto.setFailed(job.getFailed());
+        dto.setSkipped(job.getSkipped());
+        dto.setLastError(job.getLastError());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        if (job.getStartedAt() != null && job.getProcessed() > 0) {
+            long millis = Math.max(1, Duration.between(job.getStartedAt(), job.getUpdatedAt()).toMillis());
+            dto.setThroughput((double) job.getProcessed() * TimeUnit.SECONDS.toMillis(1) / millis);
+        }
+        return dto;
+    }
+
+    private enum ItemOutcome {
+        SUCCEEDED,
+        FAILED,
+        SKIPPED,
+        // приложение останавливается, подписка будет обработана после перезапуска
+        NOT_STARTED
+    }
+
+    private record ItemResult(ItemOutcome outcome, String error) {
+    }
+
+    private static final class PageOutcome {
+
+        private long succeeded;
+        private long failed;
+        private long skipped;
+        private String lastError;
+        private boolean interrupted;
+
+        synchronized void add(ItemResult result) {
+            switch (result.outcome()) {
+                case SUCCEEDED -> succeeded++;
+                case SKIPPED -> skipped++;
+                case FAILED -> {
+                    failed++;
+                    lastError = result.error();
+                }
+                default -> interrupted = true;
+            }
+        }
+
+        synchronized void addTo(SubscriptionJob job) {
+            job.setSucceeded(job.getSucceeded() + succeeded);
+            job.setFailed(job.getFailed() + failed);
+            job.setSkipped(job.getSkipped() + skipped);
+            job.setProcessed(job.getProcessed() + succeeded + failed + skipped);
+            if (lastError != null) {
+                job.setLastError(lastError.length() <= MAX_ERROR_LENGTH
+                        ? lastError
+                        : lastError.substring(0, MAX_ERROR_LENGTH));
+            }
+        }
+    }
+
+    /**
+     * Равномерно распределяет вызовы задания во времени: не больше ratePerSecond в секунду.
+     */
+    private static final class Pacer {
+
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        Pacer(double ratePerSecond) {
+            this.intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+        }
+
+        /**
+         * @return false, если ожидание прервано
+         */
+        boolean acquire() {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, next);
+                next = slot + intervalNanos;
+                wait = slot - now;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package habittracker.paymentservice.service.job;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.subscription-jobs")
+public class SubscriptionJobProperties {
+
+    private boolean enabled = true;
+
+    // одновременных вызовов Braintree на задание
+    private int parallelism = 4;
+
+    // вызовов Braintree в секунду на задание, чтобы массовая операция не съедала квоту продаж
+    private double ratePerSecond = 5;
+
+    // подписок между сохранениями прогресса
+    private int pageSize = 100;
+
+    // период поиска заданий без владельца: новых и оставшихся от остановленного инстанса
+    private Duration pollInterval = Duration.ofSeconds(30);
+
+    // задание, не сохранявшее прогресс дольше lease, подхватывает другой инстанс
+    private Duration lease = Duration.ofMinutes(2);
+}
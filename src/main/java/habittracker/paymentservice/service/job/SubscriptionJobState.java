@@ -0,0 +1,8 @@
+package habittracker.paymentservice.service.job;
+
+public enum SubscriptionJobState {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    CANCELLED
+}
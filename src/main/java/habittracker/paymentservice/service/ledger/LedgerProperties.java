@@ -0,0 +1,22 @@
+package habittracker.paymentservice.service.ledger;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.ledger")
+public class LedgerProperties {
+
+    // записи, ожидающие сброса в базу; сверх этого новые записи отбрасываются
+    private int queueCapacity = 10_000;
+
+    // строк в одном JDBC batch
+    private int batchSize = 100;
+
+    // как часто сбрасывать очередь
+    private Duration flushInterval = Duration.ofMillis(200);
+}
@@ -0,0 +1,307 @@
+package habittracker.paymentservice.service.ledger;
+
+import com.braintreegateway.CreditCard;
+import com.braintreegateway.Customer;
+import com.braintreegateway.Result;
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
+import habittracker.paymentservice.model.entity.LedgerTransaction;
+import habittracker.paymentservice.repository.LedgerTransactionRepository;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.OutboxWriter;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Локальный журнал транзакций.
+ * Транзакции, прочитанные из Braintree, складываются в очередь и пишутся в transaction_ledger
+ * пачками (write-behind), не задерживая ответ клиенту.
+ * Ещё не сброшенные записи видны при чтении, поэтому страница транзакции сразу после оплаты
+ * открывается без обращения к Braintree.
+ * Изменение транзакции с событием пишется сразу: запись журнала и событие в outbox - одной локальной
+ * транзакцией, чтобы падение инстанса не потеряло событие вместе с очередью.
+ */
+@Slf4j
+@Component
+public class TransactionLedger {
+
+    private static final String UPSERT = "INSERT INTO transaction_ledger (id, type, status, amount, "
+            + "currency_iso_code, refunded_transaction_id, created_at, updated_at, card_token, card_bin, "
+            + "card_last4, card_type, card_expiration_date, cardholder_name, card_customer_location, customer_id, "
+            + "customer_first_name, customer_last_name, customer_email, customer_company, customer_website, "
+            + "customer_phone, customer_fax, recorded_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET type = EXCLUDED.type, status = EXCLUDED.status, "
+            + "amount = EXCLUDED.amount, currency_iso_code = EXCLUDED.currency_iso_code, "
+            + "refunded_transaction_id = EXCLUDED.refunded_transaction_id, created_at = EXCLUDED.created_at, "
+            + "updated_at = EXCLUDED.updated_at, card_token = EXCLUDED.card_token, card_bin = EXCLUDED.card_bin, "
+            + "card_last4 = EXCLUDED.card_last4, card_type = EXCLUDED.card_type, "
+            + "card_expiration_date = EXCLUDED.card_expiration_date, cardholder_name = EXCLUDED.cardholder_name, "
+            + "card_customer_location = EXCLUDED.card_customer_location, customer_id = EXCLUDED.customer_id, "
+            + "customer_first_name = EXCLUDED.customer_first_name, customer_last_name = EXCLUDED.customer_last_name, "
+            + "customer_email = EXCLUDED.customer_email, customer_company = EXCLUDED.customer_company, "
+            + "customer_website = EXCLUDED.customer_website, customer_phone = EXCLUDED.customer_phone, "
+            + "customer_fax = EXCLUDED.customer_fax, recorded_at = EXCLUDED.recorded_at "
+            // более старый снимок, сброшенный позже нового, не откатывает статус
+            + "WHERE transaction_ledger.updated_at IS NULL OR EXCLUDED.updated_at IS NULL "
+            + "OR EXCLUDED.updated_at >= transaction_ledger.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxWriter outboxWriter;
+    private final PaymentEventPublisher eventPublisher;
+    private final LedgerTransactionRepository repository;
+    private final LedgerProperties properties;
+    private final BlockingQueue<TransactionDetailsDTO> queue;
+    private final Map<String, TransactionDetailsDTO> pending = new ConcurrentHashMap<>();
+
+    public TransactionLedger(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             OutboxWriter outboxWriter, PaymentEventPublisher eventPublisher,
+                             LedgerTransactionRepository repository, LedgerProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxWriter = outboxWriter;
+        this.eventPublisher = eventPublisher;
+        this.repository = repository;
+        this.properties = properties;
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    public Optional<TransactionDetailsDTO> find(String id) {
+        TransactionDetailsDTO unflushed = pending.get(id);
+        if (unflushed != null) {
+            return Optional.of(unflushed);
+        }
+        return repository.findById(id).map(this::toDetails);
+    }
+
+    /**
+     * То же, что {@link #find(String)}, но запись о незавершённой транзакции, обновлённая раньше
+     * maxPendingAge назад, не возвращается: её статус мог измениться, и карточку нужно перечитать из Braintree.
+     */
+    public Optional<TransactionDetailsDTO> find(String id, Duration maxPendingAge) {
+        TransactionDetailsDTO unflushed = pending.get(id);
+        if (unflushed != null) {
+            return Optional.of(unflushed);
+        }
+        Instant staleBefore = Instant.now().minus(maxPendingAge);
+        return repository.findById(id)
+                .filter(entry -> isTerminal(entry) || !entry.getRecordedAt().isBefore(staleBefore))
+                .map(this::toDetails);
+    }
+
+    /**
+     * Записывает транзакцию из ответа Braintree: успешную или отклонённую, если она создана.
+     *
+     * @return записанная карточка или null, если транзакция не создавалась
+     */
+    public TransactionDetailsDTO recordResult(Result<Transaction> result) {
+        return recordResult(result, null);
+    }
+
+    /**
+     * То же, что {@link #recordResult(Result)}, и событие об изменении транзакции для outbox.
+     *
+     * @param event событие или null
+     */
+    public TransactionDetailsDTO recordResult(Result<Transaction> result, PaymentEventDTO event) {
+        if (result == null) {
+            return null;
+        }
+        return record(result.isSuccess() ? result.getTarget() : result.getTransaction(), event);
+    }
+
+    public TransactionDetailsDTO record(Transaction transaction) {
+        return record(transaction, null);
+    }
+
+    /**
+     * Записывает транзакцию в журнал, а событие - в outbox в той же локальной транзакции.
+     * Без события запись ставится в очередь write-behind.
+     *
+     * @param event событие или null
+     */
+    public TransactionDetailsDTO record(Transaction transaction, PaymentEventDTO event) {
+        if (transaction == null) {
+            return null;
+        }
+        TransactionDetailsDTO details = toDetails(transaction);
+        if (details.getId() == null) {
+            if (event != null) {
+                eventPublisher.publish(event);
+            }
+            return details;
+        }
+        if (event != null) {
+            writeWithEvent(details, event);
+            return details;
+        }
+        pending.put(details.getId(), details);
+        if (!queue.offer(details)) {
+            pending.remove(details.getId(), details);
+            // журнал восстановится при следующем чтении из Braintree
+            log.warn("Очередь журнала транзакций заполнена, транзакция {} не записана", details.getId());
+        }
+        return details;
+    }
+
+    /**
+     * Записывает пачку транзакций сразу, минуя очередь: вызывающий узнаёт об ошибке базы
+     * и может повторить пачку. Используется синхронизацией с Braintree.
+     */
+    public void recordAll(List<Transaction> transactions) {
+        List<TransactionDetailsDTO> details = transactions.stream()
+                .map(this::toDetails)
+                .filter(row -> row.getId() != null)
+                .toList();
+        if (details.isEmpty()) {
+            return;
+        }
+        Instant recordedAt = Instant.now();
+        jdbcTemplate.batchUpdate(UPSERT, details, details.size(), (ps, row) -> bind(ps, row, recordedAt));
+    }
+
+    @Scheduled(fixedDelayString = "${payment.ledger.flush-interval:PT0.2S}")
+    public void flush() {
+        List<TransactionDetailsDTO> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<TransactionDetailsDTO> batch) {
+        Instant recordedAt = Instant.now();
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, batch, batch.size(), (ps, row) -> bind(ps, row, recordedAt));
+        } catch (DataAccessException e) {
+            // журнал - копия данных Braintree: потерянная запись восстановится при следующем чтении
+            log.error("Не удалось записать в журнал {} транзакций", batch.size(), e);
+        } finally {
+            batch.forEach(row -> pending.remove(row.getId(), row));
+        }
+    }
+
+    private void writeWithEvent(TransactionDetailsDTO details, PaymentEventDTO event) {
+        Instant recordedAt = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(UPSERT, ps -> bind(ps, details, recordedAt));
+                outboxWriter.insert(List.of(event));
+            });
+        } catch (RuntimeException e) {
+            // изменение в Braintree уже прошло: ошибка здесь не должна вернуть клиенту 5xx и повтор операции.
+            // Событие восстановить неоткуда, публикатор повторит его запись, когда база вернётся
+            log.error("Не удалось записать в журнал транзакцию {}", details.getId(), e);
+            eventPublisher.publish(event);
+        }
+    }
+
+    private boolean isTerminal(LedgerTransaction entry) {
+        return entry.getStatus() != null
+                && TransactionDetailsCache.isTerminal(Transaction.Status.valueOf(entry.getStatus()));
+    }
+
+    private void bind(PreparedStatement ps, TransactionDetailsDTO details, Instant recordedAt) throws SQLException {
+        TransactionDetailsDTO.CreditCardDetails card = details.getCreditCard();
+        TransactionDetailsDTO.CustomerDetails customer = details.getCustomer();
+        int i = 1;
+        ps.setString(i++, details.getId());
+        ps.setString(i++, details.getType() == null ? null : details.getType().name());
+        ps.setString(i++, details.getStatus() == null ? null : details.getStatus().name());
+        ps.setBigDecimal(i++, details.getAmount());
+        ps.setString(i++, details.getCurrencyIsoCode());
+        ps.setString(i++, details.getRefundedTransactionId());
+        setInstant(ps, i++, details.getCreatedAt());
+        setInstant(ps, i++, details.getUpdatedAt());
+        ps.setString(i++, card.getToken());
+        ps.setString(i++, card.getBin());
+        ps.setString(i++, card.getLast4());
+        ps.setString(i++, card.getCardType());
+        ps.setString(i++, card.getExpirationDate());
+        ps.setString(i++, card.getCardholderName());
+        ps.setString(i++, card.getCustomerLocation());
+        ps.setString(i++, customer.getId());
+        ps.setString(i++, customer.getFirstName());
+        ps.setString(i++, customer.getLastName());
+        ps.setString(i++, customer.getEmail());
+        ps.setString(i++, customer.getCompany());
+        ps.setString(i++, customer.getWebsite());
+        ps.setString(i++, customer.getPhone());
+        ps.setString(i++, customer.getFax());
+        setInstant(ps, i, recordedAt);
+    }
+
+    private void setInstant(PreparedStatement ps, int index, Instant instant) throws SQLException {
+        ps.setObject(index, instant == null ? null : OffsetDateTime.ofInstant(instant, ZoneOffset.UTC),
+                Types.TIMESTAMP_WITH_TIMEZONE);
+    }
+
+    private TransactionDetailsDTO toDetails(Transaction transaction) {
+        TransactionDetailsDTO.CreditCardDetails card = new TransactionDetailsDTO.CreditCardDetails();
+        CreditCard creditCard = transaction.getCreditCard();
+        if (creditCard != null) {
+            card = new TransactionDetailsDTO.CreditCardDetails(creditCard.getToken(), creditCard.getBin(),
+                    creditCard.getLast4(), creditCard.getCardType(), creditCard.getExpirationDate(),
+                    creditCard.getCardholderName(), creditCard.getCustomerLocation());
+        }
+
+        TransactionDetailsDTO.CustomerDetails customerDetails = new TransactionDetailsDTO.CustomerDetails();
+        Customer customer = transaction.getCustomer();
+        if (customer != null) {
+            customerDetails = new TransactionDetailsDTO.CustomerDetails(customer.getId(), customer.getFirstName(),
+                    customer.getLastName(), customer.getEmail(), customer.getCompany(), customer.getWebsite(),
+                    customer.getPhone(), customer.getFax());
+        }
+
+        return new TransactionDetailsDTO(transaction.getId(), transaction.getType(), transaction.getStatus(),
+                transaction.getAmount(), transaction.getCurrencyIsoCode(), transaction.getRefundedTransactionId(),
+                toInstant(transaction.getCreatedAt()), toInstant(transaction.getUpdatedAt()), card, customerDetails);
+    }
+
+    private TransactionDetailsDTO toDetails(LedgerTransaction entry) {
+        return new TransactionDetailsDTO(entry.getId(),
+                entry.getType() == null ? null : Transaction.Type.valueOf(entry.getType()),
+                entry.getStatus() == null ? null : Transaction.Status.valueOf(entry.getStatus()),
+                entry.getAmount(), entry.getCurrencyIsoCode(), entry.getRefundedTransactionId(),
+                entry.getCreatedAt(), entry.getUpdatedAt(),
+                new TransactionDetailsDTO.CreditCardDetails(entry.getCardToken(), entry.getCardBin(),
+                        entry.getCardLast4(), entry.getCardType(), entry.getCardExpirationDate(),
+                        entry.getCardholderName(), entry.getCardCustomerLocation()),
+                new TransactionDetailsDTO.CustomerDetails(entry.getCustomerId(), entry.getCustomerFirstName(),
+                        entry.getCustomerLastName(), entry.getCustomerEmail(), entry.getCustomerCompany(),
+                        entry.getCustomerWebsite(), entry.getCustomerPhone(), entry.getCustomerFax()));
+    }
+
+    private Instant toInstant(Calendar calendar) {
+        return calendar == null ? null : calendar.toInstant();
+    }
+}
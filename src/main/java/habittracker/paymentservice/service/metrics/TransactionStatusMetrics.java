@@ -0,0 +1,42 @@
+package habittracker.paymentservice.service.metrics;
+
+import com.braintreegateway.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счётчик payment.transaction.status: статусы транзакций, созданных оплатой, с их классификацией
+ * (outcome=success для статусов из CheckoutService.getTransactionSuccessStatuses, иначе failure).
+ * Продажа, отклонённая валидацией без создания транзакции, считается со статусом validation_error.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionStatusMetrics {
+
+    private static final String VALIDATION_ERROR = "validation_error";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public void record(Transaction.Status status, boolean success) {
+        counter(status == null ? "unknown" : status.name().toLowerCase(), success).increment();
+    }
+
+    public void recordValidationError() {
+        counter(VALIDATION_ERROR, false).increment();
+    }
+
+    private Counter counter(String status, boolean success) {
+        String outcome = success ? "success" : "failure";
+        return counters.computeIfAbsent(status + ':' + outcome, key -> Counter.builder("payment.transaction.status")
+                .description("Транзакции оплаты по статусу")
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,20 @@
+package habittracker.paymentservice.service.projection;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.subscription-projection")
+public class SubscriptionProjectionProperties {
+
+    // подписки этого merchant account попадают в проекцию
+    private String merchantAccountId = "habittracker";
+
+    // строк в одном JDBC batch при заполнении проекции
+    private int batchSize = 200;
+
+    // заполнить пустую проекцию полным обходом Braintree при старте
+    private boolean rebuildOnStartup = true;
+}
@@ -0,0 +1,161 @@
+package habittracker.paymentservice.service.projection;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.SubscriptionSearchRequest;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.PagedSearch;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Поддерживает subscription_projection в актуальном состоянии.
+ * Подписка записывается после каждого изменения через сервис и по уведомлениям Braintree,
+ * пустая проекция при старте заполняется полным обходом поиска Braintree.
+ * Ошибка записи не прерывает запрос: проекция - копия данных Braintree и догонит их при синхронизации.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SubscriptionProjector {
+
+    private static final String UPSERT = "INSERT INTO subscription_projection (id, description, "
+            + "merchant_account_id, plan_id, status, price, payment_method_token, number_of_billing_cycles, "
+            + "current_billing_cycle, next_billing_date, first_billing_date, billing_period_start_date, "
+            + "billing_period_end_date, created_at, updated_at, synced_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET description = EXCLUDED.description, "
+            + "merchant_account_id = EXCLUDED.merchant_account_id, plan_id = EXCLUDED.plan_id, "
+            + "status = EXCLUDED.status, price = EXCLUDED.price, payment_method_token = EXCLUDED.payment_method_token, "
+            + "number_of_billing_cycles = EXCLUDED.number_of_billing_cycles, "
+            + "current_billing_cycle = EXCLUDED.current_billing_cycle, next_billing_date = EXCLUDED.next_billing_date, "
+            + "first_billing_date = EXCLUDED.first_billing_date, "
+            + "billing_period_start_date = EXCLUDED.billing_period_start_date, "
+            + "billing_period_end_date = EXCLUDED.billing_period_end_date, created_at = EXCLUDED.created_at, "
+            + "updated_at = EXCLUDED.updated_at, synced_at = EXCLUDED.synced_at "
+            // уведомление, пришедшее позже ответа сервиса, но описывающее более старое состояние, не откатывает его
+            + "WHERE subscription_projection.updated_at IS NULL OR EXCLUDED.updated_at IS NULL "
+            + "OR EXCLUDED.updated_at >= subscription_projection.updated_at";
+
+    private static final String DELETE = "DELETE FROM subscription_projection WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final SubscriptionProjectionRepository repository;
+    private final SubscriptionProjectionProperties properties;
+
+    public void project(Subscription subscription) {
+        if (subscription == null || subscription.getId() == null) {
+            return;
+        }
+        try {
+            projectAll(List.of(subscription));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось обновить проекцию подписки {}", subscription.getId(), e);
+        }
+    }
+
+    public void projectAll(List<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        Instant syncedAt = Instant.now();
+        jdbcTemplate.batchUpdate(UPSERT, subscriptions, subscriptions.size(),
+                (ps, subscription) -> bind(ps, subscription, syncedAt));
+    }
+
+    public void remove(String id) {
+        if (id == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(DELETE, id);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось удалить подписку {} из проекции", id, e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!properties.isRebuildOnStartup() || repository.count() > 0) {
+            return;
+        }
+        Thread.ofVirtual().name("subscription-projection-rebuild").start(() -> {
+            try {
+                log.info("Проекция подписок заполнена: {} подписок", rebuild());
+            } catch (RuntimeException e) {
+                log.error("Не удалось заполнить проекцию подписок", e);
+            }
+        });
+    }
+
+    /**
+     * Полный обход подписок Braintree с записью в проекцию пачками по batchSize.
+     *
+     * @return число записанных подписок
+     */
+    public int rebuild() {
+        SubscriptionSearchRequest searchRequest = new SubscriptionSearchRequest()
+                .merchantAccountId().is(properties.getMerchantAccountId());
+
+        // каждая страница загружается отдельным вызовом SEARCH со своим токеном квоты
+        Iterable<Subscription> subscriptions = PagedSearch.of(gatewayExecutor, GatewayOperation.SEARCH,
+                () -> braintreeGateway.subscription().search(searchRequest),
+                ids -> braintreeGateway.subscription().search(new SubscriptionSearchRequest().ids().in(ids)));
+        List<Subscription> batch = new ArrayList<>(properties.getBatchSize());
+        int written = 0;
+        for (Subscription subscription : subscriptions) {
+            batch.add(subscription);
+            if (batch.size() == properties.getBatchSize()) {
+                projectAll(batch);
+                written += batch.size();
+                batch.clear();
+            }
+        }
+        projectAll(batch);
+        return written + batch.size();
+    }
+
+    private void bind(PreparedStatement ps, Subscription subscription, Instant syncedAt) throws SQLException {
+        int i = 1;
+        ps.setString(i++, subscription.getId());
+        ps.setString(i++, subscription.getDescription());
+        ps.setString(i++, subscription.getMerchantAccountId());
+        ps.setString(i++, subscription.getPlanId());
+        ps.setString(i++, subscription.getStatus() == null ? null : subscription.getStatus().name());
+        ps.setBigDecimal(i++, subscription.getPrice());
+        ps.setString(i++, subscription.getPaymentMethodToken());
+        ps.setObject(i++, subscription.getNumberOfBillingCycles(), Types.INTEGER);
+        ps.setObject(i++, subscription.getCurrentBillingCycle(), Types.INTEGER);
+        setCalendar(ps, i++, subscription.getNextBillingDate());
+        setCalendar(ps, i++, subscription.getFirstBillingDate());
+        setCalendar(ps, i++, subscription.getBillingPeriodStartDate());
+        setCalendar(ps, i++, subscription.getBillingPeriodEndDate());
+        setCalendar(ps, i++, subscription.getCreatedAt());
+        setCalendar(ps, i++, subscription.getUpdatedAt());
+        ps.setObject(i, OffsetDateTime.ofInstant(syncedAt, ZoneOffset.UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+    }
+
+    private void setCalendar(PreparedStatement ps, int index, Calendar calendar) throws SQLException {
+        ps.setObject(index, calendar == null ? null : OffsetDateTime.ofInstant(calendar.toInstant(), ZoneOffset.UTC),
+                Types.TIMESTAMP_WITH_TIMEZONE);
+    }
+}
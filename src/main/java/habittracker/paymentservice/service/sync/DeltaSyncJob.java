@@ -0,0 +1,175 @@
+package habittracker.paymentservice.service.sync;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.ResourceCollection;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.SubscriptionSearchRequest;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.TransactionSearchRequest;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.PagedSearch;
+import habittracker.paymentservice.model.entity.SyncWatermark;
+import habittracker.paymentservice.repository.SyncWatermarkRepository;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.projection.SubscriptionProjectionProperties;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Инкрементальная синхронизация журнала транзакций и проекции подписок с Braintree.
+ * Для каждого ресурса в sync_watermark хранится момент начала последнего успешного прохода,
+ * следующий проход запрашивает у Braintree только записи, изменившиеся после него,
+ * поэтому стоимость прохода зависит от числа изменений, а не от объёма истории.
+ * Watermark сдвигается только после записи всех изменений; при ошибке проход повторится с того же места.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeltaSyncJob {
+
+    // поиск Braintree не фильтрует по updatedAt, поэтому изменение транзакции ищется по моменту
+    // каждого перехода статуса; одна транзакция может попасть в несколько поисков
+    private static final List<Function<Calendar, TransactionSearchRequest>> TRANSACTION_CHANGES = List.of(
+            from -> new TransactionSearchRequest().createdAt().greaterThanOrEqualTo(from),
+            from -> new TransactionSearchRequest().submittedForSettlementAt().greaterThanOrEqualTo(from),
+            from -> new TransactionSearchRequest().settledAt().greaterThanOrEqualTo(from),
+            from -> new TransactionSearchRequest().voidedAt().greaterThanOrEqualTo(from),
+            from -> new TransactionSearchRequest().authorizationExpiredAt().greaterThanOrEqualTo(from));
+
+    private final BraintreeGateway braintreeGateway;
+    private final GatewayExecutor gatewayExecutor;
+    private final TransactionLedger transactionLedger;
+    private final TransactionDetailsCache transactionDetailsCache;
+    private final SubscriptionProjector subscriptionProjector;
+    private final SyncWatermarkRepository watermarkRepository;
+    private final SubscriptionProjectionProperties projectionProperties;
+    private final SyncProperties properties;
+    private final Clock clock;
+
+    @Scheduled(fixedDelayString = "${payment.sync.interval:PT1M}", initialDelayString = "${payment.sync.interval:PT1M}")
+    public void sync() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        sync(SyncResource.TRANSACTIONS, this::syncTransactions);
+        sync(SyncResource.SUBSCRIPTIONS, this::syncSubscriptions);
+    }
+
+    private void sync(SyncResource resource, ToIntFunction<Calendar> changesSince) {
+        Instant startedAt = clock.instant();
+        // изменения попадают в поиск Braintree с задержкой, поэтому окно перед watermark читается повторно;
+        // повторная запись безопасна: upsert не откатывает более новое состояние
+        Instant from = watermarkRepository.findById(resource.name())
+                .map(SyncWatermark::getWatermark)
+                .orElseGet(() -> startedAt.minus(properties.getInitialLookback()))
+                .minus(properties.getOverlap());
+        try {
+            int written = changesSince.applyAsInt(toCalendar(from));
+            watermarkRepository.save(new SyncWatermark(resource.name(), startedAt, clock.instant()));
+            log.debug("Синхронизация {}: записано {} изменений с {}", resource, written, from);
+        } catch (RuntimeException e) {
+            log.warn("Синхронизация {} не удалась, watermark остаётся {}", resource, from, e);
+        }
+    }
+
+    private int syncTransactions(Calendar from) {
+        Set<String> seen = new HashSet<>();
+        int written = 0;
+        for (Function<Calendar, TransactionSearchRequest> changedSince : TRANSACTION_CHANGES) {
+            TransactionSearchRequest request = changedSince.apply(from);
+            written += writeInBatches(transactions(() -> braintreeGateway.transaction().search(request)),
+                    Transaction::getId, seen, this::writeTransactions);
+        }
+        return written;
+    }
+
+    /**
+     * Поиск подписок Braintree не фильтрует по updatedAt, поэтому изменившейся считается подписка,
+     * созданная после watermark или имеющая списание после него: продление, отказ в оплате и
+     * переход в past due оставляют recurring-транзакцию. Отмену из панели Braintree доставляет вебхук.
+     */
+    private int syncSubscriptions(Calendar from) {
+        Set<String> seen = new HashSet<>();
+        SubscriptionSearchRequest created = new SubscriptionSearchRequest()
+                .merchantAccountId().is(projectionProperties.getMerchantAccountId())
+                .createdAt().greaterThanOrEqualTo(from);
+        int written = writeInBatches(PagedSearch.of(gatewayExecutor, GatewayOperation.SEARCH,
+                        () -> braintreeGateway.subscription().search(created), this::subscriptionsByIds),
+                Subscription::getId, seen, subscriptionProjector::projectAll);
+
+        TransactionSearchRequest charges = new TransactionSearchRequest()
+                .source().is(Transaction.Source.RECURRING)
+                .createdAt().greaterThanOrEqualTo(from);
+        Set<String> charged = new LinkedHashSet<>();
+        for (Transaction transaction : transactions(() -> braintreeGateway.transaction().search(charges))) {
+            if (transaction.getSubscriptionId() != null && !seen.contains(transaction.getSubscriptionId())) {
+                charged.add(transaction.getSubscriptionId());
+            }
+        }
+
+        return written + writeInBatches(PagedSearch.byIds(gatewayExecutor, GatewayOperation.SEARCH,
+                        new ArrayList<>(charged), this::subscriptionsByIds),
+                Subscription::getId, seen, subscriptionProjector::projectAll);
+    }
+
+    private Iterable<Transaction> transactions(Supplier<ResourceCollection<Transaction>> search) {
+        return PagedSearch.of(gatewayExecutor, GatewayOperation.SEARCH, search,
+                ids -> braintreeGateway.transaction().search(new TransactionSearchRequest().ids().in(ids)));
+    }
+
+    private ResourceCollection<Subscription> subscriptionsByIds(List<String> ids) {
+        return braintreeGateway.subscription().search(new SubscriptionSearchRequest().ids().in(ids));
+    }
+
+    private void writeTransactions(List<Transaction> batch) {
+        transactionLedger.recordAll(batch);
+        // кэш не должен пережить запись журнала со старым статусом
+        batch.forEach(transaction -> transactionDetailsCache.invalidate(transaction.getId()));
+    }
+
+    private <T> int writeInBatches(Iterable<T> changes, Function<T, String> idOf, Set<String> seen,
+                                   Consumer<List<T>> writer) {
+        List<T> batch = new ArrayList<>(properties.getBatchSize());
+        int written = 0;
+        for (T change : changes) {
+            if (!seen.add(idOf.apply(change))) {
+                continue;
+            }
+            batch.add(change);
+            if (batch.size() == properties.getBatchSize()) {
+                writer.accept(batch);
+                written += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writer.accept(batch);
+        }
+        return written + batch.size();
+    }
+
+    private Calendar toCalendar(Instant instant) {
+        return GregorianCalendar.from(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC).toZonedDateTime());
+    }
+}
@@ -0,0 +1,27 @@
+package habittracker.paymentservice.service.sync;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.sync")
+public class SyncProperties {
+
+    private boolean enabled = true;
+
+    // пауза между проходами синхронизации
+    private Duration interval = Duration.ofMinutes(1);
+
+    // окно повторного чтения перед watermark: изменения, проиндексированные поиском Braintree с задержкой
+    private Duration overlap = Duration.ofMinutes(5);
+
+    // глубина первого прохода, когда watermark ещё не сохранён
+    private Duration initialLookback = Duration.ofDays(1);
+
+    // записей в одном JDBC batch и id в одном поиске подписок
+    private int batchSize = 200;
+}
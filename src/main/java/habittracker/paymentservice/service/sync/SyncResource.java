@@ -0,0 +1,9 @@
+package habittracker.paymentservice.service.sync;
+
+/**
+ * Ресурсы Braintree, которые синхронизируются инкрементально. Имя - ключ строки в sync_watermark.
+ */
+public enum SyncResource {
+    TRANSACTIONS,
+    SUBSCRIPTIONS
+}
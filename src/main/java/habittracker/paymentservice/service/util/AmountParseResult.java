@@ -0,0 +1,54 @@
+package habittracker.paymentservice.service.util;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Итог разбора денежной суммы.
+ *
+ * @param amount разобранная сумма, только для OK
+ * @param status результат разбора
+ */
+public record AmountParseResult(BigDecimal amount, Status status) {
+
+    public enum Status {
+        OK,
+        // null или строка из пробелов
+        EMPTY,
+        // посторонний символ, знак, лишняя точка, нет цифр до или после точки
+        MALFORMED,
+        // больше двух знаков после точки
+        TOO_MANY_FRACTION_DIGITS,
+        // целая часть длиннее MAX_INTEGER_DIGITS
+        TOO_LARGE
+    }
+
+    private static final AmountParseResult EMPTY = new AmountParseResult(null, Status.EMPTY);
+    private static final AmountParseResult MALFORMED = new AmountParseResult(null, Status.MALFORMED);
+    private static final AmountParseResult TOO_MANY_FRACTION_DIGITS =
+            new AmountParseResult(null, Status.TOO_MANY_FRACTION_DIGITS);
+    private static final AmountParseResult TOO_LARGE = new AmountParseResult(null, Status.TOO_LARGE);
+
+    public static AmountParseResult ok(BigDecimal amount) {
+        return new AmountParseResult(amount, Status.OK);
+    }
+
+    // неуспешные результаты не несут данных, поэтому не создаются на каждый вызов
+    public static AmountParseResult failed(Status status) {
+        return switch (status) {
+            case EMPTY -> EMPTY;
+            case MALFORMED -> MALFORMED;
+            case TOO_MANY_FRACTION_DIGITS -> TOO_MANY_FRACTION_DIGITS;
+            case TOO_LARGE -> TOO_LARGE;
+            case OK -> throw new IllegalArgumentException("Для успешного разбора нужна сумма");
+        };
+    }
+
+    public boolean isValid() {
+        return status == Status.OK;
+    }
+
+    public Optional<BigDecimal> toOptional() {
+        return Optional.ofNullable(amount);
+    }
+}
@@ -4,14 +4,67 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Форматирование дат в виде "yyyy-MM-dd HH:mm:ss Z".
+ * DateTimeFormatter неизменяем и потокобезопасен, поэтому создаётся один раз,
+ * а его копии с привязкой к поясу кэшируются - вместо SimpleDateFormat на каждый вызов.
+ */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class DateFormatter {
 
     private static final String DEFAULT_PATTERN = "yyyy-MM-dd HH:mm:ss Z";
 
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DEFAULT_PATTERN);
+
+    private static final Map<ZoneId, DateTimeFormatter> ZONED_FORMATTERS = new ConcurrentHashMap<>();
+
+    // вне этого диапазона java.util и java.time расходятся: юлианский календарь до 1582 года,
+    // местное среднее время до 1900-х, знак перед годом из пяти цифр - там форматируем как раньше
+    private static final long JAVA_TIME_FROM_MILLIS = Instant.parse("1900-01-01T00:00:00Z").toEpochMilli();
+    private static final long JAVA_TIME_UNTIL_MILLIS = Instant.parse("+10000-01-01T00:00:00Z").toEpochMilli();
+
     public static String dateToString(Date date) {
-        return new SimpleDateFormat(DEFAULT_PATTERN).format(date);
+        Objects.requireNonNull(date, "date must not be null");
+        return formatMillis(date.getTime());
+    }
+
+    /**
+     * Форматирует момент календаря в поясе JVM по умолчанию - так же, как dateToString(calendar.getTime()).
+     */
+    public static String dateToString(Calendar calendar) {
+        Objects.requireNonNull(calendar, "calendar must not be null");
+        return formatMillis(calendar.getTimeInMillis());
+    }
+
+    public static String dateToString(Instant instant) {
+        return dateToString(instant, ZoneId.systemDefault());
+    }
+
+    public static String dateToString(Instant instant, ZoneId zone) {
+        Objects.requireNonNull(instant, "instant must not be null");
+        Objects.requireNonNull(zone, "zone must not be null");
+        return ZONED_FORMATTERS.computeIfAbsent(zone, FORMATTER::withZone).format(instant);
+    }
+
+    public static String dateToString(ZonedDateTime dateTime) {
+        Objects.requireNonNull(dateTime, "dateTime must not be null");
+        return FORMATTER.format(dateTime);
+    }
+
+    private static String formatMillis(long millis) {
+        if (millis < JAVA_TIME_FROM_MILLIS || millis >= JAVA_TIME_UNTIL_MILLIS) {
+            return new SimpleDateFormat(DEFAULT_PATTERN).format(new Date(millis));
+        }
+        return dateToString(Instant.ofEpochMilli(millis));
     }
 }
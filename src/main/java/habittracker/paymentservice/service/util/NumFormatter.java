@@ -7,6 +7,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 @Slf4j
@@ -14,6 +16,16 @@ import java.util.function.Function;
 public class NumFormatter {
     private static final Map<Class<? extends Number>, Function<String, ? extends Number>> NUMBER_PARSERS;
 
+    // 15 цифр целой части и 2 после точки умещаются в long без переполнения
+    private static final int MAX_INTEGER_DIGITS = 15;
+    private static final int MAX_FRACTION_DIGITS = 2;
+
+    // не чаще одного предупреждения о некорректном вводе за интервал, остальные только считаются
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong nextWarnAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressedWarnings = new AtomicLong();
+
     static {
         NUMBER_PARSERS = Map.of(
                 Byte.class, Byte::valueOf,
@@ -36,7 +48,10 @@ public class NumFormatter {
      */
     public <T extends Number> Optional<T> stringToNum(String numberString, Class<T> targetType) {
         if (isBlank(numberString)) {
-            log.warn("Передана пустая строка или null: '{}'", numberString);
+            long suppressed = acquireWarnPermit();
+            if (suppressed >= 0) {
+                log.warn("Передана пустая строка или null (пропущено похожих предупреждений: {})", suppressed);
+            }
             return Optional.empty();
         }
 
@@ -49,11 +64,88 @@ public class NumFormatter {
         try {
             return Optional.ofNullable(targetType.cast(parser.apply(numberString.trim())));
         } catch (NumberFormatException e) {
-            log.warn("Ошибка преобразования '{}' в {}", numberString, targetType.getSimpleName(), e);
+            long suppressed = acquireWarnPermit();
+            if (suppressed >= 0) {
+                // ни строку, ни сообщение исключения с ней не пишем: она приходит от клиента
+                log.warn("Ошибка преобразования строки длины {} в {} (пропущено похожих предупреждений: {})",
+                        numberString.length(), targetType.getSimpleName(), suppressed);
+            }
             return Optional.empty();
         }
     }
 
+    /**
+     * Разбирает денежную сумму вида "123" или "123.45" за один проход, без исключений.
+     * Допускаются пробелы по краям, не больше двух знаков после точки; знак и экспонента не допускаются.
+     * Масштаб результата равен числу знаков после точки, как у new BigDecimal(String).
+     *
+     * @param value строка от клиента
+     * @return результат разбора: сумма или причина отказа
+     */
+    public AmountParseResult parseAmount(String value) {
+        if (value == null) {
+            return AmountParseResult.failed(AmountParseResult.Status.EMPTY);
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return AmountParseResult.failed(AmountParseResult.Status.EMPTY);
+        }
+
+        long unscaled = 0;
+        int integerDigits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (point) {
+                    if (++fractionDigits > MAX_FRACTION_DIGITS) {
+                        return rejected(AmountParseResult.Status.TOO_MANY_FRACTION_DIGITS, end - start);
+                    }
+                } else if (++integerDigits > MAX_INTEGER_DIGITS) {
+                    return rejected(AmountParseResult.Status.TOO_LARGE, end - start);
+                }
+                unscaled = unscaled * 10 + (c - '0');
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return rejected(AmountParseResult.Status.MALFORMED, end - start);
+            }
+        }
+        if (integerDigits == 0 || point && fractionDigits == 0) {
+            return rejected(AmountParseResult.Status.MALFORMED, end - start);
+        }
+        return AmountParseResult.ok(BigDecimal.valueOf(unscaled, fractionDigits));
+    }
+
+    private AmountParseResult rejected(AmountParseResult.Status status, int length) {
+        long suppressed = acquireWarnPermit();
+        if (suppressed >= 0) {
+            // саму строку не пишем: она приходит от клиента и может быть сколь угодно длинной
+            log.warn("Некорректная сумма: {}, длина {} (пропущено похожих предупреждений: {})",
+                    status, length, suppressed);
+        }
+        return AmountParseResult.failed(status);
+    }
+
+    // число пропущенных с прошлого раза предупреждений или -1, если сейчас писать в лог нельзя
+    private long acquireWarnPermit() {
+        long now = System.nanoTime();
+        long next = nextWarnAt.get();
+        if (now - next < 0 || !nextWarnAt.compareAndSet(next, now + WARN_INTERVAL_NANOS)) {
+            suppressedWarnings.incrementAndGet();
+            return -1;
+        }
+        return suppressedWarnings.getAndSet(0);
+    }
+
     private boolean isBlank(String value) {
         return value == null || value.trim().isEmpty();
     }
@@ -0,0 +1,55 @@
+package habittracker.paymentservice.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Токен продолжения постраничного поиска.
+ * Хранит момент первого запроса (верхняя граница createdAt, чтобы новые записи не сдвигали страницы),
+ * смещение следующей страницы и отпечаток фильтров, с которыми курсор был выдан.
+ */
+public record SearchCursor(Instant snapshot, int offset, int fingerprint) {
+
+    private static final String VERSION = "v1";
+
+    public static SearchCursor first(int fingerprint) {
+        return new SearchCursor(Instant.now(), 0, fingerprint);
+    }
+
+    public SearchCursor next(int nextOffset) {
+        return new SearchCursor(snapshot, nextOffset, fingerprint);
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + snapshot.toEpochMilli() + ":" + offset + ":" + fingerprint;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает токен и проверяет, что он выдан для тех же фильтров.
+     *
+     * @throws IllegalArgumentException если токен повреждён или относится к другому запросу
+     */
+    public static SearchCursor decode(String token, int expectedFingerprint) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + token, e);
+        }
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Некорректный курсор: " + token);
+        }
+        try {
+            SearchCursor cursor = new SearchCursor(Instant.ofEpochMilli(Long.parseLong(parts[1])),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+            if (cursor.offset() < 0 || cursor.fingerprint() != expectedFingerprint) {
+                throw new IllegalArgumentException("Курсор выдан для другого запроса");
+            }
+            return cursor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + token, e);
+        }
+    }
+}
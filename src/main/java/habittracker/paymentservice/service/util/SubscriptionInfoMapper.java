@@ -0,0 +1,76 @@
+package habittracker.paymentservice.service.util;
+
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Преобразование подписки Braintree или её локальной проекции в DTO для поиска.
+ * Вызывается на каждую строку результата, поэтому покрыто бенчмарком в src/jmh.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SubscriptionInfoMapper {
+
+    private static final String NO_DATE = "N/A";
+
+    public static SubscriptionInfoDTO toInfoDTO(Subscription subscription) {
+        // Безопасное форматирование дат
+        return new SubscriptionInfoDTO(
+                subscription.getId(),
+                subscription.getDescription(),
+                subscription.getMerchantAccountId(),
+                subscription.getPlanId(),
+                subscription.getStatus(),
+                subscription.getTransactions(),
+                subscription.getPrice(),
+                subscription.getPaymentMethodToken(),
+                subscription.getNumberOfBillingCycles(),
+                formatDate(subscription.getNextBillingDate()),
+                formatDate(subscription.getFirstBillingDate()),
+                subscription.getCurrentBillingCycle(),
+                formatDate(subscription.getCreatedAt()),
+                formatDate(subscription.getUpdatedAt()),
+                formatDate(subscription.getBillingPeriodStartDate()),
+                formatDate(subscription.getBillingPeriodEndDate())
+        );
+    }
+
+    /**
+     * То же из локальной проекции. Транзакции подписки в проекции не хранятся, поэтому список пуст,
+     * а поле transactions помечено в API устаревшим; карточки транзакций доступны через журнал транзакций.
+     */
+    public static SubscriptionInfoDTO toInfoDTO(SubscriptionProjection projection) {
+        return new SubscriptionInfoDTO(
+                projection.getId(),
+                projection.getDescription(),
+                projection.getMerchantAccountId(),
+                projection.getPlanId(),
+                projection.getStatus(),
+                List.of(),
+                projection.getPrice(),
+                projection.getPaymentMethodToken(),
+                projection.getNumberOfBillingCycles(),
+                formatDate(projection.getNextBillingDate()),
+                formatDate(projection.getFirstBillingDate()),
+                projection.getCurrentBillingCycle(),
+                formatDate(projection.getCreatedAt()),
+                formatDate(projection.getUpdatedAt()),
+                formatDate(projection.getBillingPeriodStartDate()),
+                formatDate(projection.getBillingPeriodEndDate())
+        );
+    }
+
+    private static String formatDate(Calendar date) {
+        return date != null ? DateFormatter.dateToString(date) : NO_DATE;
+    }
+
+    private static String formatDate(Instant date) {
+        return date != null ? DateFormatter.dateToString(date) : NO_DATE;
+    }
+}
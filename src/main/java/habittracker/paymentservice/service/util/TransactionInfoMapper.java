@@ -0,0 +1,28 @@
+package habittracker.paymentservice.service.util;
+
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Преобразование транзакции Braintree в DTO для поиска.
+ * Вызывается на каждую строку результата, поэтому покрыто бенчмарком в src/jmh.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionInfoMapper {
+
+    public static TransactionInfoDTO toInfoDTO(Transaction transaction) {
+        TransactionInfoDTO transactionInfo = new TransactionInfoDTO(
+                transaction.getId(),
+                transaction.getCreatedAt() == null ? null : DateFormatter.dateToString(transaction.getCreatedAt()),
+                transaction.getType(),
+                transaction.getAmount(),
+                transaction.getStatus(),
+                transaction.getRefundedTransactionId(),
+                false);
+
+        transactionInfo.setRefundFlag(transaction.getRefundedTransactionId());
+        return transactionInfo;
+    }
+}
@@ -0,0 +1,136 @@
+package habittracker.paymentservice.service.webhook;
+
+import com.braintreegateway.Dispute;
+import com.braintreegateway.WebhookNotification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограниченный конвейер обработки уведомлений Braintree.
+ * Уведомления раскладываются по обработчикам по id подписки или транзакции: разные ресурсы обрабатываются
+ * параллельно, а уведомления по одному ресурсу - строго в порядке получения.
+ * Переполненная очередь не блокирует приём: уведомление отклоняется, и Braintree доставит его повторно.
+ */
+@Slf4j
+@Component
+public class WebhookDispatcher {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final WebhookNotificationHandler handler;
+    private final WebhookProperties properties;
+    private final List<BlockingQueue<WebhookNotification>> queues;
+    private final List<Thread> workers;
+    private final Counter rejected;
+
+    private volatile boolean running = true;
+
+    public WebhookDispatcher(WebhookNotificationHandler handler, WebhookProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.handler = handler;
+        this.properties = properties;
+        this.queues = new ArrayList<>(properties.getPartitions());
+        this.workers = new ArrayList<>(properties.getPartitions());
+        for (int i = 0; i < properties.getPartitions(); i++) {
+            BlockingQueue<WebhookNotification> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            queues.add(queue);
+            workers.add(Thread.ofVirtual().name("webhook-worker-" + i).start(() -> work(queue)));
+        }
+
+        Gauge.builder("payment.webhook.queue.depth", queues,
+                        all -> all.stream().mapToInt(BlockingQueue::size).sum())
+                .description("Уведомления Braintree, ожидающие обработки")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("payment.webhook.rejected")
+                .description("Уведомления Braintree, отклонённые из-за переполнения очереди")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит уведомление в очередь своего обработчика, не дожидаясь обработки.
+     *
+     * @return false, если очередь заполнена или приложение останавливается
+     */
+    public boolean submit(WebhookNotification notification) {
+        String key = partitionKey(notification);
+        BlockingQueue<WebhookNotification> queue = queues.get(Math.floorMod(key.hashCode(), queues.size()));
+        if (!running || !queue.offer(notification)) {
+            rejected.increment();
+            log.warn("Очередь уведомлений заполнена, {} по {} отклонено", notification.getKind(), key);
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        long deadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        for (Thread worker : workers) {
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0 || !worker.join(Duration.ofMillis(remaining))) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                worker.interrupt();
+            }
+        }
+        int dropped = queues.stream().mapToInt(BlockingQueue::size).sum();
+        if (dropped > 0) {
+            log.warn("Остановка: {} уведомлений не обработано, их восстановит синхронизация с Braintree", dropped);
+        }
+    }
+
+    private void work(BlockingQueue<WebhookNotification> queue) {
+        while (running || !queue.isEmpty()) {
+            WebhookNotification notification;
+            try {
+                notification = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (notification != null) {
+                handle(notification);
+            }
+        }
+    }
+
+    private void handle(WebhookNotification notification) {
+        try {
+            handler.handle(notification);
+        } catch (RuntimeException e) {
+            // Braintree уже получил ответ 200, повторной доставки не будет
+            log.error("Не удалось обработать уведомление {} по {}",
+                    notification.getKind(), partitionKey(notification), e);
+        }
+    }
+
+    private static String partitionKey(WebhookNotification notification) {
+        // спор относится к транзакции и должен обрабатываться в одной очереди с её расчётом
+        Dispute dispute = notification.getDispute();
+        if (dispute != null && dispute.getTransaction() != null && dispute.getTransaction().getId() != null) {
+            return dispute.getTransaction().getId();
+        }
+        if (notification.getTransaction() != null && notification.getTransaction().getId() != null) {
+            return notification.getTransaction().getId();
+        }
+        if (notification.getSubscription() != null && notification.getSubscription().getId() != null) {
+            return notification.getSubscription().getId();
+        }
+        return String.valueOf(notification.getKind());
+    }
+}
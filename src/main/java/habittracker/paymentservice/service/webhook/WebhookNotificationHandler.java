@@ -0,0 +1,82 @@
+package habittracker.paymentservice.service.webhook;
+
+import com.braintreegateway.Subscription;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.WebhookNotification;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.event.PaymentEvents;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Обновляет локальное состояние по уведомлению Braintree вместо опроса поиском.
+ * Подписка из уведомления записывается в проекцию, транзакция - в журнал, событие - в outbox вместе с ней;
+ * если транзакции в уведомлении нет, событие публикуется отдельно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WebhookNotificationHandler {
+
+    private final TransactionLedger transactionLedger;
+    private final TransactionDetailsCache transactionDetailsCache;
+    private final PaymentEventPublisher eventPublisher;
+    private final SubscriptionProjector subscriptionProjector;
+
+    public void handle(WebhookNotification notification) {
+        PaymentEventType type = eventTypeOf(notification.getKind());
+        if (type == null) {
+            log.debug("Уведомление {} не обрабатывается", notification.getKind());
+            return;
+        }
+        PaymentEventDTO event = PaymentEvents.ofWebhook(type, notification).orElse(null);
+        subscriptionProjector.project(notification.getSubscription());
+
+        Transaction transaction = transactionOf(notification);
+        if (transaction != null && transaction.getId() != null) {
+            transactionDetailsCache.put(transactionLedger.record(transaction, event));
+        } else if (event != null) {
+            eventPublisher.publish(event);
+        }
+    }
+
+    private Transaction transactionOf(WebhookNotification notification) {
+        if (notification.getTransaction() != null) {
+            return notification.getTransaction();
+        }
+        // в уведомлении о подписке Braintree передаёт её транзакции, последняя - первой
+        Subscription subscription = notification.getSubscription();
+        if (subscription != null) {
+            List<Transaction> transactions = subscription.getTransactions();
+            return transactions == null || transactions.isEmpty() ? null : transactions.get(0);
+        }
+        return null;
+    }
+
+    private PaymentEventType eventTypeOf(WebhookNotification.Kind kind) {
+        if (kind == null) {
+            return null;
+        }
+        return switch (kind) {
+            case TRANSACTION_SETTLED -> PaymentEventType.TRANSACTION_SETTLED;
+            case TRANSACTION_SETTLEMENT_DECLINED -> PaymentEventType.TRANSACTION_SETTLEMENT_DECLINED;
+            case DISPUTE_OPENED, DISPUTE_LOST, DISPUTE_WON -> PaymentEventType.TRANSACTION_DISPUTED;
+            case SUBSCRIPTION_CANCELED -> PaymentEventType.SUBSCRIPTION_CANCELED;
+            case SUBSCRIPTION_CHARGED_SUCCESSFULLY -> PaymentEventType.SUBSCRIPTION_CHARGED;
+            case SUBSCRIPTION_CHARGED_UNSUCCESSFULLY -> PaymentEventType.SUBSCRIPTION_CHARGE_FAILED;
+            case SUBSCRIPTION_EXPIRED -> PaymentEventType.SUBSCRIPTION_EXPIRED;
+            case SUBSCRIPTION_TRIAL_ENDED -> PaymentEventType.SUBSCRIPTION_TRIAL_ENDED;
+            case SUBSCRIPTION_WENT_ACTIVE -> PaymentEventType.SUBSCRIPTION_ACTIVATED;
+            case SUBSCRIPTION_WENT_PAST_DUE -> PaymentEventType.SUBSCRIPTION_PAST_DUE;
+            default -> null;
+        };
+    }
+}
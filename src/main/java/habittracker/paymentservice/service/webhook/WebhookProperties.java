@@ -0,0 +1,22 @@
+package habittracker.paymentservice.service.webhook;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.webhooks")
+public class WebhookProperties {
+
+    // число обработчиков; уведомления по одной подписке или транзакции всегда попадают в один
+    private int partitions = 8;
+
+    // уведомления, ожидающие обработки, на один обработчик; сверх этого Braintree получает 503 и повторит доставку
+    private int queueCapacity = 1_000;
+
+    // сколько ждать разбора очередей при остановке приложения
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,17 @@
+package habittracker.paymentservice.service.webhook;
+
+public interface WebhookService {
+
+    /**
+     * Проверяет подпись уведомления Braintree и ставит его в очередь обработки.
+     *
+     * @return false, если очередь заполнена и уведомление нужно доставить повторно
+     * @throws com.braintreegateway.exceptions.InvalidSignatureException если подпись не сходится
+     */
+    boolean accept(String signature, String payload);
+
+    /**
+     * Ответ на проверочный запрос Braintree при регистрации адреса уведомлений.
+     */
+    String verify(String challenge);
+}
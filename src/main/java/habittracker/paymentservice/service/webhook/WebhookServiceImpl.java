@@ -0,0 +1,27 @@
+package habittracker.paymentservice.service.webhook;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.WebhookNotification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class WebhookServiceImpl implements WebhookService {
+
+    private final BraintreeGateway braintreeGateway;
+    private final WebhookDispatcher webhookDispatcher;
+
+    @Override
+    public boolean accept(String signature, String payload) {
+        // подпись проверяется и payload разбирается локально, без обращения к Braintree,
+        // поэтому слот GatewayExecutor здесь не нужен
+        WebhookNotification notification = braintreeGateway.webhookNotification().parse(signature, payload);
+        return webhookDispatcher.submit(notification);
+    }
+
+    @Override
+    public String verify(String challenge) {
+        return braintreeGateway.webhookNotification().verify(challenge);
+    }
+}
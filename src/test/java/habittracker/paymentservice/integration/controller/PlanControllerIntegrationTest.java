@@ -6,7 +6,6 @@ import com.braintreegateway.PlanGateway;
 import com.braintreegateway.PlanRequest;
 import com.braintreegateway.Result;
 import com.braintreegateway.exceptions.NotFoundException;
-import habittracker.paymentservice.model.BraintreeData;
 import habittracker.paymentservice.model.dto.PlanRequestDTO;
 import habittracker.paymentservice.service.PlanService;
 import io.github.cdimascio.dotenv.Dotenv;
@@ -95,9 +94,6 @@ class PlanControllerIntegrationTest {
         when(plan.getName()).thenReturn("Basic");
         when(plan.getCurrencyIsoCode()).thenReturn("USD");
         when(plan.getPrice()).thenReturn(new BigDecimal("9.99"));
-
-        // Сохраняем мок в статическое поле, чтобы он использовался в сервисах
-        BraintreeData.setGateway(braintreeGateway);
     }
 
     @Test
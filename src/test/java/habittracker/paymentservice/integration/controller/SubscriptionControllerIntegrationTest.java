@@ -118,8 +118,10 @@ class SubscriptionControllerIntegrationTest {
 
     @Test
     void testGetSubscriptionById() throws Exception {
-        Subscription mockSubscription = Mockito.mock(Subscription.class);
-        when(subscriptionService.findSubscriptionById("1")).thenReturn(mockSubscription);
+        SubscriptionInfoDTO mockSubscription = new SubscriptionInfoDTO("1", "Test Description", "Merchant123",
+                "PlanA", Subscription.Status.ACTIVE, List.of(), BigDecimal.valueOf(100.0), "Token123", 12,
+                "2023-01-01", "2023-01-01", 1, "2023-01-01", "2023-01-01", "2023-01-01", "2023-01-01");
+        when(subscriptionService.getSubscriptionInfo("1")).thenReturn(mockSubscription);
 
         mockMvc.perform(get("/api/subscription/search/id")
                         .contentType(MediaType.APPLICATION_JSON)
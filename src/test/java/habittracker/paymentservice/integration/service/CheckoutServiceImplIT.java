@@ -13,7 +13,6 @@ import com.braintreegateway.TransactionRequest;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
-import habittracker.paymentservice.model.BraintreeData;
 import habittracker.paymentservice.service.CheckoutServiceImpl;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.junit.jupiter.api.AfterAll;
@@ -23,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.transaction.annotation.Transactional;
@@ -55,6 +55,9 @@ class CheckoutServiceImplIT {
     @Autowired
     private CheckoutServiceImpl checkoutService;
 
+    @MockBean
+    private BraintreeGateway braintreeGateway;
+
     @Mock
     private ClientTokenGateway clientTokenGateway;
 
@@ -67,9 +70,7 @@ class CheckoutServiceImplIT {
 
     @BeforeEach
     public void setUp() {
-        // Инициализация мока BraintreeData.gateway для теста
-        BraintreeData.setGateway(mock(BraintreeGateway.class));
-        when(BraintreeData.gateway.clientToken()).thenReturn(clientTokenGateway);
+        when(braintreeGateway.clientToken()).thenReturn(clientTokenGateway);
     }
 
     @BeforeAll
@@ -96,7 +97,7 @@ class CheckoutServiceImplIT {
     @Test
     void testGetNewClientToken() {
         String expectedToken = "testClientToken";
-        when(BraintreeData.gateway.clientToken().generate()).thenReturn(expectedToken);
+        when(braintreeGateway.clientToken().generate()).thenReturn(expectedToken);
         String result = checkoutService.getNewClientToken();
         assertEquals(expectedToken, result);
         verify(clientTokenGateway, times(1)).generate();
@@ -152,7 +153,7 @@ class CheckoutServiceImplIT {
         when(result.getTarget()).thenReturn(testTransaction);
 
         TransactionGateway transactionGateway = mock(TransactionGateway.class);
-        when(BraintreeData.gateway.transaction()).thenReturn(transactionGateway);
+        when(braintreeGateway.transaction()).thenReturn(transactionGateway);
         when(transactionGateway.sale(request)).thenReturn(result);
 
         Result<Transaction> transactionResult = checkoutService.getTransactionSale(request);
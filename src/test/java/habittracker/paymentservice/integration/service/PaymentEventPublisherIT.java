@@ -0,0 +1,93 @@
+package habittracker.paymentservice.integration.service;
+
+import com.braintreegateway.BraintreeGateway;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.service.event.OutboxRelay;
+import habittracker.paymentservice.service.event.PaymentEventPublisherImpl;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("local")
+@EmbeddedKafka(partitions = 1, topics = "payment-events", bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class PaymentEventPublisherIT {
+
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("testdb")
+            .withUsername("postgres")
+            .withPassword("password");
+
+    @Autowired
+    private PaymentEventPublisherImpl eventPublisher;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @MockBean
+    private BraintreeGateway braintreeGateway;
+
+    @DynamicPropertySource
+    static void dynamicProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.auth-service-db.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.auth-service-db.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.auth-service-db.password", postgresContainer::getPassword);
+    }
+
+    @BeforeAll
+    static void loadEnv() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(System.getProperty("user.dir"))
+                .filename(".env.local")
+                .load();
+        dotenv.entries().forEach(entry -> System.setProperty(entry.getKey(), entry.getValue()));
+    }
+
+    @Test
+    void publishedEventShouldReachTopicThroughOutbox() {
+        PaymentEventDTO event = new PaymentEventDTO("e1", PaymentEventType.TRANSACTION_REFUND, "refund1", "tx1",
+                "SUBMITTED_FOR_SETTLEMENT", new BigDecimal("10.00"), "USD", null, Instant.now());
+
+        eventPublisher.publish(event);
+        eventPublisher.flush();
+        outboxRelay.relay();
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("payment-events-it", "false", embeddedKafka);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "payment-events");
+            ConsumerRecord<String, String> consumed = KafkaTestUtils.getSingleRecord(consumer, "payment-events",
+                    Duration.ofSeconds(10));
+
+            assertThat(consumed.key()).isEqualTo("refund1");
+            assertThat(consumed.value()).contains("\"type\":\"TRANSACTION_REFUND\"", "\"parentId\":\"tx1\"");
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.braintreegateway.BraintreeGateway;
 import com.braintreegateway.Plan;
 import com.braintreegateway.PlanGateway;
 import com.braintreegateway.Result;
-import habittracker.paymentservice.model.BraintreeData;
 import habittracker.paymentservice.service.PlanService;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.junit.jupiter.api.BeforeAll;
@@ -14,6 +13,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -42,6 +42,10 @@ class PlanServiceImplIT {
     @Autowired
     private PlanService planService;
 
+    // Мокируем Braintree Gateway
+    @MockBean
+    private BraintreeGateway braintreeGateway;
+
     @DynamicPropertySource
     static void dynamicProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.datasource.auth-service-db.url", postgresContainer::getJdbcUrl);
@@ -51,12 +55,10 @@ class PlanServiceImplIT {
 
     @BeforeEach
     void setUp() {
-        // Мокируем Braintree Gateway
-        BraintreeGateway mockGateway = mock(BraintreeGateway.class);
         PlanGateway mockPlanGateway = mock(PlanGateway.class);  // Мокируем PlanGateway
 
         // Настроим метод plan() так, чтобы он возвращал mockPlanGateway
-        when(mockGateway.plan()).thenReturn(mockPlanGateway);
+        when(braintreeGateway.plan()).thenReturn(mockPlanGateway);
 
         // Создаем мок для метода create() в PlanGateway
         Plan mockPlan = mock(Plan.class);
@@ -67,9 +69,6 @@ class PlanServiceImplIT {
         when(mockPlan.getCurrencyIsoCode()).thenReturn("USD");
 
         when(mockPlanGateway.create(any(PlanRequest.class))).thenReturn(new Result<>(mockPlan));
-
-        // Сохраняем мок в статическое поле, чтобы он использовался в сервисах
-        BraintreeData.setGateway(mockGateway);
     }
 
     @BeforeAll
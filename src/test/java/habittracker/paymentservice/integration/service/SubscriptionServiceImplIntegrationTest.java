@@ -9,7 +9,6 @@ import com.braintreegateway.CustomerRequest;
 import com.braintreegateway.Environment;
 import com.braintreegateway.PlanRequest;
 import com.braintreegateway.exceptions.NotFoundException;
-import habittracker.paymentservice.model.BraintreeData;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
 import habittracker.paymentservice.model.dto.SubscriptionRequestDTO;
 import habittracker.paymentservice.service.PlanService;
@@ -62,6 +61,9 @@ class SubscriptionServiceImplIntegrationTest {
     private static final int TEST_CYCLES = 1;
     private static final String NON_EXISTING_ID = "non_existing_id_123xyz";
 
+    // отдельный клиент для подготовки данных: @BeforeAll выполняется до поднятия контекста
+    private static BraintreeGateway sandboxGateway;
+
     private static final String DEFAULT_PLAN_NAME = "Default";
     private static final String DEFAULT_PRICE = "10.00";
     private static final boolean DEFAULT_TRIAL_PERIOD = false;
@@ -91,25 +93,25 @@ class SubscriptionServiceImplIntegrationTest {
 
         dotenv.entries().forEach(entry -> System.setProperty(entry.getKey(), entry.getValue()));
 
-        BraintreeData.setGateway(new BraintreeGateway(
+        sandboxGateway = new BraintreeGateway(
                 Environment.SANDBOX,
                 System.getProperty("BRAINTREE_MERCHANT_ID"),
                 System.getProperty("BRAINTREE_PUBLIC_KEY"),
                 System.getProperty("BRAINTREE_PRIVATE_KEY")
-        ));
+        );
 
-        BraintreeData.gateway.customer()
+        sandboxGateway.customer()
                 .create(new CustomerRequest().id("TestCustomer")
                         .paymentMethodNonce(TEST_NONCE).creditCard().token("Valid-token").done());
 
-        BraintreeData.gateway.plan()
+        sandboxGateway.plan()
                 .create(new PlanRequest().id(TEST_PLAN_ID)
                         .name(TEST_PLAN_NAME).price(new BigDecimal(TEST_PRICE)).numberOfBillingCycles(TEST_CYCLES));
     }
 
     @AfterAll
     static void tearDown() {
-        BraintreeData.gateway.customer().delete("TestCustomer");
+        sandboxGateway.customer().delete("TestCustomer");
     }
 
     @Nested
@@ -229,7 +231,7 @@ class SubscriptionServiceImplIntegrationTest {
         }
 
         String getValidPaymentNonce() {
-            return BraintreeData.gateway.paymentMethodNonce()
+            return sandboxGateway.paymentMethodNonce()
                     .create("Valid-token")
                     .getTarget()
                     .getNonce();
@@ -306,6 +308,18 @@ class SubscriptionServiceImplIntegrationTest {
             assertThat(subscription).usingRecursiveComparison().isEqualTo(testSubscription);
         }
 
+        @Test
+        void givenCreatedSubscriptionWhenGetInfoThenServedFromProjection() {
+            SubscriptionInfoDTO info = subscriptionService.getSubscriptionInfo(testSubscription.getId());
+
+            assertThat(info.getId()).isEqualTo(testSubscription.getId());
+            assertThat(info.getPlanId()).isEqualTo(testSubscription.getPlanId());
+            assertThat(info.getPrice()).isEqualByComparingTo(testSubscription.getPrice());
+            assertThat(subscriptionService.searchByPlanId(TEST_PLAN_ID))
+                    .extracting(SubscriptionInfoDTO::getId)
+                    .contains(testSubscription.getId());
+        }
+
         @Test
         void givenValidUpdateRequestWhenUpdateSubscriptionThenSuccess() {
             SubscriptionRequest request = new SubscriptionRequest().price(new BigDecimal("15.00"));
@@ -8,9 +8,11 @@ import com.braintreegateway.TransactionGateway;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayExecutor;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
 import habittracker.paymentservice.service.TransactionServiceImpl;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -18,6 +20,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -55,6 +58,18 @@ class TransactionServiceImplIT {
     @Autowired
     private TransactionServiceImpl transactionService;
 
+    @Autowired
+    private GatewayExecutor gatewayExecutor;
+
+    @Autowired
+    private TransactionLedger transactionLedger;
+
+    @Autowired
+    private TransactionDetailsCache transactionDetailsCache;
+
+    @MockBean
+    private BraintreeGateway braintreeGateway;
+
     @DynamicPropertySource
     static void dynamicProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.datasource.auth-service-db.url", postgresContainer::getJdbcUrl);
@@ -65,10 +80,8 @@ class TransactionServiceImplIT {
     @BeforeEach
     void setUp() {
 
-        BraintreeGateway mockGateway = mock(BraintreeGateway.class);
         TransactionGateway mockTransactionGateway = mock(TransactionGateway.class);
-        when(mockGateway.transaction()).thenReturn(mockTransactionGateway);
-        BraintreeData.setGateway(mockGateway);
+        when(braintreeGateway.transaction()).thenReturn(mockTransactionGateway);
     }
 
     @BeforeAll
@@ -94,29 +107,29 @@ class TransactionServiceImplIT {
     @Test
     void testGetTransactionByBraintree() {
         Transaction mockTransaction = mock(Transaction.class);
-        when(BraintreeData.gateway.transaction().find("123")).thenReturn(mockTransaction);
+        when(braintreeGateway.transaction().find("123")).thenReturn(mockTransaction);
 
         Transaction result = transactionService.getTransactionByBraintree("123");
 
         assertNotNull(result, "Transaction should not be null");
-        verify(BraintreeData.gateway.transaction()).find("123");
+        verify(braintreeGateway.transaction()).find("123");
     }
 
     @Test
     void testRefundTransactionByBraintree() {
         Result<Transaction> mockResult = mock(Result.class);
-        when(BraintreeData.gateway.transaction().refund("123")).thenReturn(mockResult);
+        when(braintreeGateway.transaction().refund("123")).thenReturn(mockResult);
 
         Result<Transaction> result = transactionService.refundTransactionByBraintree("123");
 
         assertNotNull(result, "Refund result should not be null");
-        verify(BraintreeData.gateway.transaction()).refund("123");
+        verify(braintreeGateway.transaction()).refund("123");
     }
 
     @Test
     void testGetTransactionsBySearchRequest() {
         // 1. Настройка mock Gateway с динамическим портом WireMock
-        BraintreeGateway mockGateway = new BraintreeGateway(
+        BraintreeGateway wireMockGateway = new BraintreeGateway(
                 new Environment(
                         "http://localhost:" + wireMockServer.port(),
                         "http://localhost:" + wireMockServer.port(),
@@ -127,7 +140,8 @@ class TransactionServiceImplIT {
                 "fake_public_key",
                 "fake_private_key"
         );
-        BraintreeData.setGateway(mockGateway);
+        TransactionServiceImpl wireMockService = new TransactionServiceImpl(wireMockGateway, gatewayExecutor,
+                transactionLedger, transactionDetailsCache);
 
         // 2. Настройка заглушек для аутентификации
         stubFor(post(urlPathMatching("/merchants/.*/transactions/advanced_search_ids"))
@@ -160,7 +174,7 @@ class TransactionServiceImplIT {
                         )));
 
         // 3. Вызов тестируемого метода
-        List<TransactionInfoDTO> transactions = transactionService.getTransactionsBySearchRequest();
+        List<TransactionInfoDTO> transactions = wireMockService.getTransactionsBySearchRequest();
 
         // 4. Проверки
         assertNotNull(transactions, "Transactions list should not be null");
@@ -175,23 +189,23 @@ class TransactionServiceImplIT {
     @Test
     void testVoidTransactionById() {
         Result<Transaction> mockResult = mock(Result.class);
-        when(BraintreeData.gateway.transaction().voidTransaction("123")).thenReturn(mockResult);
+        when(braintreeGateway.transaction().voidTransaction("123")).thenReturn(mockResult);
 
         Result<Transaction> result = transactionService.voidTransactionById("123");
 
         assertNotNull(result, "Void transaction result should not be null");
-        verify(BraintreeData.gateway.transaction()).voidTransaction("123");
+        verify(braintreeGateway.transaction()).voidTransaction("123");
     }
 
     @Test
     void testCancelTransactionById() {
         Result<Transaction> mockResult = mock(Result.class);
-        when(BraintreeData.gateway.transaction().cancelRelease("123")).thenReturn(mockResult);
+        when(braintreeGateway.transaction().cancelRelease("123")).thenReturn(mockResult);
 
         Result<Transaction> result = transactionService.cancelTransactionById("123");
 
         assertNotNull(result, "Cancel transaction result should not be null");
-        verify(BraintreeData.gateway.transaction()).cancelRelease("123");
+        verify(braintreeGateway.transaction()).cancelRelease("123");
     }
 
 }
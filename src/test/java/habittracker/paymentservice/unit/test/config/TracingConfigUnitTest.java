@@ -0,0 +1,95 @@
+package habittracker.paymentservice.unit.test.config;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.ClientTokenGateway;
+import habittracker.paymentservice.config.TracingConfig;
+import habittracker.paymentservice.gateway.GatewayExecutorImpl;
+import habittracker.paymentservice.gateway.GatewayProperties;
+import habittracker.paymentservice.service.CheckoutService;
+import habittracker.paymentservice.service.CheckoutServiceImpl;
+import habittracker.paymentservice.service.cache.ClientTokenPool;
+import habittracker.paymentservice.service.cache.ClientTokenPoolProperties;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.metrics.TransactionStatusMetrics;
+import habittracker.paymentservice.service.util.NumFormatter;
+import habittracker.paymentservice.unit.test.support.InMemoryTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TracingConfigUnitTest {
+
+    @Mock
+    private BraintreeGateway braintreeGateway;
+
+    @Mock
+    private ClientTokenGateway clientTokenGateway;
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private TransactionDetailsCache transactionDetailsCache;
+
+    @Mock
+    private TransactionStatusMetrics transactionStatusMetrics;
+
+    private InMemoryTracing tracing;
+    private GatewayExecutorImpl gatewayExecutor;
+
+    @BeforeEach
+    void setUp() {
+        tracing = new InMemoryTracing();
+        gatewayExecutor = new GatewayExecutorImpl(new GatewayProperties(), new SimpleMeterRegistry(),
+                tracing.observationRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatewayExecutor.shutdown();
+        tracing.close();
+    }
+
+    @Test
+    @DisplayName("Метод сервиса с @Observed получает span, вызов Braintree вложен в него")
+    void observedServiceShouldParentGatewaySpan() {
+        when(braintreeGateway.clientToken()).thenReturn(clientTokenGateway);
+        when(clientTokenGateway.generate()).thenReturn("token");
+        CheckoutServiceImpl target = new CheckoutServiceImpl(braintreeGateway, new NumFormatter(), gatewayExecutor,
+                transactionLedger, transactionDetailsCache, transactionStatusMetrics, clientTokenPool());
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addAspect(new TracingConfig().observedAspect(tracing.observationRegistry()));
+        CheckoutService checkoutService = proxyFactory.getProxy();
+
+        assertThat(checkoutService.getNewClientToken()).isEqualTo("token");
+
+        assertThat(tracing.spans()).hasSize(2);
+        SpanData call = tracing.span("braintree client_token");
+        SpanData service = tracing.spans().stream()
+                .filter(span -> span != call)
+                .findFirst()
+                .orElseThrow();
+        assertThat(service.getParentSpanId()).isEqualTo(SpanId.getInvalid());
+        assertThat(call.getParentSpanId()).isEqualTo(service.getSpanId());
+        assertThat(call.getTraceId()).isEqualTo(service.getTraceId());
+    }
+
+    private ClientTokenPool clientTokenPool() {
+        ClientTokenPoolProperties properties = new ClientTokenPoolProperties();
+        properties.setEnabled(false);
+        return new ClientTokenPool(braintreeGateway, gatewayExecutor, properties, new SimpleMeterRegistry());
+    }
+}
@@ -4,6 +4,7 @@ import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
 import com.braintreegateway.TransactionRequest;
 import habittracker.paymentservice.controller.CheckoutController;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.service.CheckoutService;
 import habittracker.paymentservice.service.TransactionService;
 
@@ -20,7 +21,8 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
+import java.time.Instant;
+import java.util.Date;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -61,6 +63,7 @@ class CheckoutControllerUnitTest {
 
         assertThat(viewName).isEqualTo("checkouts/new");
         assertThat(model.getAttribute("clientToken")).isEqualTo(token);
+        assertThat(model.getAttribute("idempotencyKey")).isNotNull();
         assertThatCode(() -> verify(checkoutService, times(1)).getNewClientToken())
                 .doesNotThrowAnyException();
     }
@@ -177,8 +180,14 @@ class CheckoutControllerUnitTest {
         String transactionId = "12345";
         Model model = new ExtendedModelMap();
 
-        Transaction transaction = mock(Transaction.class);
-        when(transactionService.getTransactionByBraintree(transactionId)).thenReturn(transaction);
+        Instant createdAt = Instant.parse("2024-05-01T10:00:00Z");
+        Instant updatedAt = Instant.parse("2024-05-01T10:05:00Z");
+        TransactionDetailsDTO transaction = new TransactionDetailsDTO();
+        transaction.setId(transactionId);
+        transaction.setStatus(Transaction.Status.AUTHORIZED);
+        transaction.setCreatedAt(createdAt);
+        transaction.setUpdatedAt(updatedAt);
+        when(transactionService.getTransactionDetails(transactionId)).thenReturn(transaction);
 
         Transaction.Status[] successStatus = {
                 Transaction.Status.AUTHORIZED,
@@ -190,20 +199,15 @@ class CheckoutControllerUnitTest {
                 Transaction.Status.SUBMITTED_FOR_SETTLEMENT
         };
         when(checkoutService.getTransactionSuccessStatuses()).thenReturn(successStatus);
-        when(transaction.getStatus()).thenReturn(Transaction.Status.AUTHORIZED);
-
-        Calendar createdAt = Calendar.getInstance();
-        Calendar updatedAt = Calendar.getInstance();
-        when(transaction.getCreatedAt()).thenReturn(createdAt);
-        when(transaction.getUpdatedAt()).thenReturn(updatedAt);
 
         String viewName = checkoutController.getTransaction(transactionId, model);
         assertThat(viewName).isEqualTo("checkouts/show");
         assertThat(model.getAttribute("isSuccess")).isEqualTo(true);
         assertThat(model.getAttribute("transaction")).isEqualTo(transaction);
+        assertThat(model.getAttribute("creditCard")).isEqualTo(transaction.getCreditCard());
         assertThat(model.getAttribute("createdAt"))
-                .isEqualTo(DateFormatter.dateToString(createdAt.getTime()));
+                .isEqualTo(DateFormatter.dateToString(Date.from(createdAt)));
         assertThat(model.getAttribute("updatedAt"))
-                .isEqualTo(DateFormatter.dateToString(updatedAt.getTime()));
+                .isEqualTo(DateFormatter.dateToString(Date.from(updatedAt)));
     }
 }
@@ -3,22 +3,38 @@ package habittracker.paymentservice.unit.test.controller;
 import com.braintreegateway.Result;
 import com.braintreegateway.Subscription;
 import com.braintreegateway.SubscriptionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import habittracker.paymentservice.controller.SubscriptionController;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobRequestDTO;
 import habittracker.paymentservice.service.SubscriptionService;
+import habittracker.paymentservice.service.job.SubscriptionJobAction;
+import habittracker.paymentservice.service.job.SubscriptionJobEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 class SubscriptionControllerUnitTest {
@@ -26,6 +42,12 @@ class SubscriptionControllerUnitTest {
     @Mock
     private SubscriptionService subscriptionService;
 
+    @Mock
+    private SubscriptionJobEngine jobEngine;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private SubscriptionController subscriptionController;
 
@@ -42,14 +64,60 @@ class SubscriptionControllerUnitTest {
         assertThat(result).isEqualTo(ResponseEntity.ok(subscriptionList));
     }
 
+    @Test
+    void testStreamAllSubscription() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<SubscriptionInfoDTO> consumer = invocation.getArgument(0);
+            consumer.accept(subscriptionInfo("sub_1"));
+            consumer.accept(subscriptionInfo("sub_2"));
+            return null;
+        }).when(subscriptionService).streamAll(any());
+
+        ResponseEntity<StreamingResponseBody> result = subscriptionController.streamAllSubscription();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(result.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("id").asText()).isEqualTo("sub_1");
+        assertThat(objectMapper.readTree(lines[1]).get("id").asText()).isEqualTo("sub_2");
+    }
+
     @Test
     void testGetSubscriptionById() {
-        Subscription subscription = Mockito.mock(Subscription.class);
-        when(subscriptionService.findSubscriptionById(any())).thenReturn(subscription);
+        SubscriptionInfoDTO subscription = subscriptionInfo("sub_1");
+        when(subscriptionService.getSubscriptionInfo(any())).thenReturn(subscription);
         var result = subscriptionController.getSubscriptionById(any());
         assertThat(result).isEqualTo(ResponseEntity.ok(subscription));
     }
 
+    @Test
+    void testGetSubscriptionsByStatus() {
+        List<SubscriptionInfoDTO> subscriptions = List.of(subscriptionInfo("sub_1"));
+        when(subscriptionService.searchByStatus(Subscription.Status.ACTIVE)).thenReturn(subscriptions);
+        var result = subscriptionController.getSubscriptionsByStatus(Subscription.Status.ACTIVE);
+        assertThat(result).isEqualTo(ResponseEntity.ok(subscriptions));
+    }
+
+    @Test
+    void testGetSubscriptionsByPlan() {
+        List<SubscriptionInfoDTO> subscriptions = List.of(subscriptionInfo("sub_1"));
+        when(subscriptionService.searchByPlanId("plan_1")).thenReturn(subscriptions);
+        var result = subscriptionController.getSubscriptionsByPlan("plan_1");
+        assertThat(result).isEqualTo(ResponseEntity.ok(subscriptions));
+    }
+
+    @Test
+    void testGetSubscriptionsByNextBillingDateWithInvertedRange() {
+        LocalDate from = LocalDate.of(2024, 6, 1);
+        LocalDate to = LocalDate.of(2024, 5, 1);
+        when(subscriptionService.searchByNextBillingDate(from, to))
+                .thenThrow(new IllegalArgumentException("from must not be after to"));
+        var result = subscriptionController.getSubscriptionsByNextBillingDate(from, to);
+        assertThat(result).isEqualTo(ResponseEntity.badRequest().build());
+    }
+
     @Test
     void testGetDefaultSubscriptionRequest() {
         SubscriptionRequest subscriptionRequest = Mockito.mock(SubscriptionRequest.class);
@@ -115,7 +183,7 @@ class SubscriptionControllerUnitTest {
 
     @Test
     void testNullGetSubscriptionById() {
-        when(subscriptionService.findSubscriptionById(any())).thenReturn(null);
+        when(subscriptionService.getSubscriptionInfo(any())).thenReturn(null);
         var result = subscriptionController.getSubscriptionById(any());
         assertThat(result).isEqualTo(ResponseEntity.ok(null));
     }
@@ -169,4 +237,41 @@ class SubscriptionControllerUnitTest {
         var result = subscriptionController.deleteSubscription(new HashMap<>());
         assertThat(result).isEqualTo(ResponseEntity.ok(null));
     }
+
+    @Test
+    void submitJobShouldReturnAccepted() {
+        SubscriptionJobRequestDTO request = new SubscriptionJobRequestDTO();
+        request.setAction(SubscriptionJobAction.CANCEL);
+        request.setPlanId("legacy");
+        SubscriptionJobDTO job = new SubscriptionJobDTO();
+        job.setId("job1");
+        when(jobEngine.submit(request)).thenReturn(job);
+
+        var result = subscriptionController.submitJob(request);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(result.getBody()).isSameAs(job);
+    }
+
+    @Test
+    void submitInvalidJobShouldReturnBadRequest() {
+        SubscriptionJobRequestDTO request = new SubscriptionJobRequestDTO();
+        request.setAction(SubscriptionJobAction.MIGRATE);
+        when(jobEngine.submit(request)).thenThrow(new IllegalArgumentException("no selector"));
+
+        assertThat(subscriptionController.submitJob(request).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getUnknownJobShouldReturnNotFound() {
+        when(jobEngine.find("missing")).thenReturn(Optional.empty());
+
+        assertThat(subscriptionController.getJob("missing").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private SubscriptionInfoDTO subscriptionInfo(String id) {
+        return new SubscriptionInfoDTO(id, "name", "habittracker", "plan", Subscription.Status.ACTIVE,
+                List.of(), new BigDecimal("10.00"), "token", 1, "N/A", "N/A", 1,
+                "N/A", "N/A", "N/A", "N/A");
+    }
 }
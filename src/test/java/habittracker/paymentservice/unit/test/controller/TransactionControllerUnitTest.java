@@ -3,21 +3,39 @@ package habittracker.paymentservice.unit.test.controller;
 import com.braintreegateway.Result;
 import com.braintreegateway.Transaction;
 import habittracker.paymentservice.controller.TransactionController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import habittracker.paymentservice.model.dto.BatchItemResultDTO;
+import habittracker.paymentservice.model.dto.BatchRequestDTO;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import habittracker.paymentservice.model.dto.TransactionPageDTO;
+import habittracker.paymentservice.model.dto.TransactionSearchCriteriaDTO;
 import habittracker.paymentservice.service.TransactionService;
+import habittracker.paymentservice.service.batch.BatchAction;
+import habittracker.paymentservice.service.batch.BatchItemStatus;
+import habittracker.paymentservice.service.batch.TransactionBatchProcessor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
 class TransactionControllerUnitTest {
@@ -25,6 +43,12 @@ class TransactionControllerUnitTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private TransactionBatchProcessor batchProcessor;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private TransactionController transactionController;
 
@@ -41,6 +65,15 @@ class TransactionControllerUnitTest {
         assertThat(result).isEqualTo(ResponseEntity.ok(transaction));
     }
 
+    @Test
+    void testGetTransactionDetails() {
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        details.setId("tx1");
+        when(transactionService.getTransactionDetails("tx1")).thenReturn(details);
+        var result = transactionController.getTransactionDetails("tx1");
+        assertThat(result).isEqualTo(ResponseEntity.ok(details));
+    }
+
     @Test
     void testGetTransactionsBySearchRequest() {
         List<TransactionInfoDTO> transactionList = Mockito.mock(List.class);
@@ -49,6 +82,21 @@ class TransactionControllerUnitTest {
         assertThat(result).isEqualTo(ResponseEntity.ok(transactionList));
     }
 
+    @Test
+    void testSearchTransactions() {
+        TransactionPageDTO page = new TransactionPageDTO(List.of(), null, 0);
+        when(transactionService.searchTransactions(any())).thenReturn(page);
+        var result = transactionController.searchTransactions(new TransactionSearchCriteriaDTO());
+        assertThat(result).isEqualTo(ResponseEntity.ok(page));
+    }
+
+    @Test
+    void testSearchTransactionsWithInvalidCursor() {
+        when(transactionService.searchTransactions(any())).thenThrow(new IllegalArgumentException("bad cursor"));
+        var result = transactionController.searchTransactions(new TransactionSearchCriteriaDTO());
+        assertThat(result).isEqualTo(ResponseEntity.badRequest().build());
+    }
+
     @Test
     void testRefundTransactionByBraintree() {
         Result<Transaction> transaction = Mockito.mock(Result.class);
@@ -107,4 +155,36 @@ class TransactionControllerUnitTest {
         var result = transactionController.cancelTransaction(new HashMap<>());
         assertThat(result).isEqualTo(ResponseEntity.ok(null));
     }
+
+    @Test
+    void testRefundTransactionsStreamsResultPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BatchItemResultDTO> sink = invocation.getArgument(3);
+            sink.accept(new BatchItemResultDTO("b1", "tx1", BatchAction.REFUND, BatchItemStatus.SUCCEEDED,
+                    "rf1", "SUBMITTED_FOR_SETTLEMENT", null));
+            sink.accept(new BatchItemResultDTO("b1", "tx2", BatchAction.REFUND, BatchItemStatus.FAILED,
+                    null, null, "Transaction has already been fully refunded."));
+            return null;
+        }).when(batchProcessor).run(eq("b1"), eq(BatchAction.REFUND), any(), any());
+
+        ResponseEntity<StreamingResponseBody> result =
+                transactionController.refundTransactions(new BatchRequestDTO("b1", List.of("tx1", "tx2")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(result.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(result.getHeaders().getFirst(TransactionController.BATCH_ID_HEADER)).isEqualTo("b1");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("status").asText()).isEqualTo("SUCCEEDED");
+        assertThat(objectMapper.readTree(lines[1]).get("transactionId").asText()).isEqualTo("tx2");
+    }
+
+    @Test
+    void testVoidTransactionsRejectsInvalidBatch() {
+        doThrow(new IllegalArgumentException("too many")).when(batchProcessor)
+                .validate(any(), eq(BatchAction.VOID), any());
+        var result = transactionController.voidTransactions(new BatchRequestDTO(null, List.of("tx1")));
+        assertThat(result).isEqualTo(ResponseEntity.badRequest().build());
+    }
 }
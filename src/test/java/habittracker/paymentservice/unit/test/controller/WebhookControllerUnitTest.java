@@ -0,0 +1,57 @@
+package habittracker.paymentservice.unit.test.controller;
+
+import com.braintreegateway.exceptions.InvalidSignatureException;
+import habittracker.paymentservice.controller.WebhookController;
+import habittracker.paymentservice.service.webhook.WebhookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class WebhookControllerUnitTest {
+
+    @Mock
+    private WebhookService webhookService;
+
+    @InjectMocks
+    private WebhookController webhookController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testReceiveNotificationAccepted() {
+        when(webhookService.accept("signature", "payload")).thenReturn(true);
+        var result = webhookController.receiveNotification("signature", "payload");
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void testReceiveNotificationWhenQueueIsFull() {
+        when(webhookService.accept("signature", "payload")).thenReturn(false);
+        var result = webhookController.receiveNotification("signature", "payload");
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void testReceiveNotificationWithInvalidSignature() {
+        when(webhookService.accept("forged", "payload")).thenThrow(new InvalidSignatureException("no match"));
+        var result = webhookController.receiveNotification("forged", "payload");
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void testVerify() {
+        when(webhookService.verify("challenge")).thenReturn("public_key|answer");
+        var result = webhookController.verify("challenge");
+        assertThat(result).isEqualTo(ResponseEntity.ok("public_key|answer"));
+    }
+}
@@ -0,0 +1,118 @@
+package habittracker.paymentservice.unit.test.controller.filter;
+
+import habittracker.paymentservice.controller.filter.AdmissionFilter;
+import habittracker.paymentservice.service.admission.AdmissionLimiter;
+import habittracker.paymentservice.service.admission.AdmissionProperties;
+import habittracker.paymentservice.service.admission.EndpointClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionFilterUnitTest {
+
+    private static final String CHECKOUT = "/payment/checkouts";
+    private static final String SEARCH = "/api/subscription/search/all";
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionLimiter admissionLimiter;
+    private AdmissionFilter admissionFilter;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        AdmissionProperties.ClassLimit critical = new AdmissionProperties.ClassLimit();
+        critical.setPaths(List.of("/payment/checkouts/**"));
+        critical.setLatencyTarget(Duration.ofSeconds(3));
+        AdmissionProperties.ClassLimit reporting = new AdmissionProperties.ClassLimit();
+        reporting.setPaths(List.of("/api/subscription/search/all/**"));
+        reporting.setInitialLimit(1);
+        reporting.setMinLimit(1);
+        properties.getClasses().put(EndpointClass.CRITICAL, critical);
+        properties.getClasses().put(EndpointClass.REPORTING, reporting);
+        meterRegistry = new SimpleMeterRegistry();
+        admissionLimiter = new AdmissionLimiter(properties, meterRegistry);
+        admissionFilter = new AdmissionFilter(admissionLimiter);
+    }
+
+    @Test
+    @DisplayName("Отчёт сверх лимита получает 429, а оплата в это время проходит")
+    void reportingOverLimitShouldBeShedWhileCheckoutPasses() throws Exception {
+        MockHttpServletResponse secondSearch = new MockHttpServletResponse();
+        MockHttpServletResponse checkout = new MockHttpServletResponse();
+
+        admissionFilter.doFilter(new MockHttpServletRequest("GET", SEARCH), new MockHttpServletResponse(),
+                (request, response) -> {
+                    admissionFilter.doFilter(new MockHttpServletRequest("GET", SEARCH), secondSearch,
+                            (inner, innerResponse) -> { });
+                    admissionFilter.doFilter(new MockHttpServletRequest("POST", CHECKOUT), checkout,
+                            (inner, innerResponse) -> ((MockHttpServletResponse) innerResponse).setStatus(201));
+                });
+
+        assertThat(secondSearch.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(secondSearch.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(checkout.getStatus()).isEqualTo(201);
+        assertThat(meterRegistry.get("payment.admission.rejected").tag("class", "reporting").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("payment.admission.in-flight").tag("class", "reporting").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Потоковый ответ держит слот до завершения асинхронной обработки")
+    void streamingRequestShouldHoldSlotUntilCompletion() throws Exception {
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", SEARCH + "/stream");
+        stream.setAsyncSupported(true);
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+
+        admissionFilter.doFilter(stream, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        assertThat(inFlight(EndpointClass.REPORTING)).isEqualTo(1.0);
+        admissionFilter.doFilter(new MockHttpServletRequest("GET", SEARCH), rejected, (inner, innerResponse) -> { });
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        stream.getAsyncContext().complete();
+
+        assertThat(inFlight(EndpointClass.REPORTING)).isZero();
+    }
+
+    @Test
+    @DisplayName("Медленная оплата сокращает лимиты менее приоритетных классов")
+    void slowCheckoutShouldShrinkLowerClasses() {
+        assertThat(admissionLimiter.tryAcquire(EndpointClass.CRITICAL)).isTrue();
+
+        admissionLimiter.release(EndpointClass.CRITICAL, Duration.ofSeconds(10));
+
+        assertThat(limit(EndpointClass.CRITICAL)).isEqualTo(45);
+        assertThat(limit(EndpointClass.STANDARD)).isEqualTo(45);
+        assertThat(limit(EndpointClass.REPORTING)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Путь относится к классу по шаблону, остальные - к STANDARD")
+    void classifyShouldMatchPatterns() {
+        assertThat(admissionLimiter.classify("/payment/checkouts/tx1")).isEqualTo(EndpointClass.CRITICAL);
+        assertThat(admissionLimiter.classify("/api/subscription/search/all/stream"))
+                .isEqualTo(EndpointClass.REPORTING);
+        assertThat(admissionLimiter.classify("/api/plan/search/all")).isEqualTo(EndpointClass.STANDARD);
+    }
+
+    private double inFlight(EndpointClass endpointClass) {
+        return meterRegistry.get("payment.admission.in-flight").tag("class", endpointClass.name().toLowerCase())
+                .gauge().value();
+    }
+
+    private double limit(EndpointClass endpointClass) {
+        return meterRegistry.get("payment.admission.limit").tag("class", endpointClass.name().toLowerCase())
+                .gauge().value();
+    }
+}
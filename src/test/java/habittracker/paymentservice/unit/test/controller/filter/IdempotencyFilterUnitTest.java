@@ -0,0 +1,180 @@
+package habittracker.paymentservice.unit.test.controller.filter;
+
+import habittracker.paymentservice.controller.filter.IdempotencyFilter;
+import habittracker.paymentservice.service.idempotency.IdempotencyClaim;
+import habittracker.paymentservice.service.idempotency.IdempotencyService;
+import habittracker.paymentservice.service.idempotency.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterUnitTest {
+
+    private static final String PATH = "/api/payment/refund";
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private FilterChain chain;
+
+    @InjectMocks
+    private IdempotencyFilter idempotencyFilter;
+
+    @Test
+    @DisplayName("Запрос без ключа проходит без изменений")
+    void requestWithoutKeyShouldPassThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        idempotencyFilter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    @DisplayName("Первый запрос выполняется, а его ответ сохраняется")
+    void firstRequestShouldBeExecutedAndStored() throws Exception {
+        MockHttpServletRequest request = request("key-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(idempotencyService.claim(eq("key-1"), eq(PATH), anyString()))
+                .thenReturn(IdempotencyClaim.acquired());
+        doAnswer(invocation -> {
+            HttpServletResponse wrapped = invocation.getArgument(1);
+            wrapped.setContentType("application/json");
+            wrapped.getWriter().write("{\"success\":true}");
+            return null;
+        }).when(chain).doFilter(any(), any());
+
+        idempotencyFilter.doFilter(request, response, chain);
+
+        ArgumentCaptor<StoredResponse> stored = ArgumentCaptor.forClass(StoredResponse.class);
+        verify(idempotencyService).complete(eq("key-1"), stored.capture());
+        assertThat(stored.getValue().status()).isEqualTo(200);
+        assertThat(new String(stored.getValue().body())).isEqualTo("{\"success\":true}");
+        assertThat(response.getContentAsString()).isEqualTo("{\"success\":true}");
+    }
+
+    @Test
+    @DisplayName("Повтор отдаёт сохранённый ответ без вызова контроллера")
+    void repeatedRequestShouldReplayStoredResponse() throws Exception {
+        MockHttpServletRequest request = request("key-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        StoredResponse stored = new StoredResponse(PATH, "hash", 200, null, "application/json",
+                "{\"success\":true}".getBytes(), Instant.now());
+        when(idempotencyService.claim(eq("key-1"), eq(PATH), anyString()))
+                .thenReturn(IdempotencyClaim.replay(stored));
+
+        idempotencyFilter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(response.getContentAsString()).isEqualTo("{\"success\":true}");
+    }
+
+    @Test
+    @DisplayName("Повтор во время выполнения первого запроса получает 409")
+    void concurrentRequestShouldGetConflict() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(idempotencyService.claim(eq("key-1"), eq(PATH), anyString()))
+                .thenReturn(IdempotencyClaim.inProgress());
+
+        idempotencyFilter.doFilter(request("key-1"), response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertThat(response.getStatus()).isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("Ключ из скрытого поля формы тоже учитывается")
+    void formParameterShouldBeUsedAsKey() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/payment/checkouts");
+        request.addParameter(IdempotencyFilter.FORM_PARAMETER, "form-key");
+        when(idempotencyService.claim(eq("form-key"), eq("/payment/checkouts"), anyString()))
+                .thenReturn(IdempotencyClaim.inProgress());
+
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        verify(idempotencyService).claim(eq("form-key"), eq("/payment/checkouts"), anyString());
+    }
+
+    @Test
+    @DisplayName("Исключение освобождает ключ для повторной попытки")
+    void failureShouldReleaseKey() throws Exception {
+        MockHttpServletRequest request = request("key-1");
+        when(idempotencyService.claim(eq("key-1"), eq(PATH), anyString()))
+                .thenReturn(IdempotencyClaim.acquired());
+        doThrow(new IllegalStateException("gateway down")).when(chain).doFilter(any(), any());
+
+        assertThatThrownBy(() -> idempotencyFilter.doFilter(request, new MockHttpServletResponse(), chain))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("gateway down");
+
+        verify(idempotencyService).release("key-1");
+        verify(idempotencyService, never()).complete(any(), any());
+    }
+
+    @Test
+    @DisplayName("Отпечаток зависит от тела запроса, а контроллер читает тело как обычно")
+    void fingerprintShouldCoverBody() throws Exception {
+        ArgumentCaptor<String> hashes = ArgumentCaptor.forClass(String.class);
+        when(idempotencyService.claim(eq("key-1"), eq(PATH), hashes.capture()))
+                .thenReturn(IdempotencyClaim.acquired());
+        List<String> bodies = new ArrayList<>();
+        doAnswer(invocation -> {
+            HttpServletRequest forwarded = invocation.getArgument(0);
+            bodies.add(new String(forwarded.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            return null;
+        }).when(chain).doFilter(any(), any());
+
+        idempotencyFilter.doFilter(jsonRequest("{\"id\":\"tx1\"}"), new MockHttpServletResponse(), chain);
+        idempotencyFilter.doFilter(jsonRequest("{\"id\":\"tx1\"}"), new MockHttpServletResponse(), chain);
+        idempotencyFilter.doFilter(jsonRequest("{\"id\":\"tx2\"}"), new MockHttpServletResponse(), chain);
+
+        assertThat(bodies).containsExactly("{\"id\":\"tx1\"}", "{\"id\":\"tx1\"}", "{\"id\":\"tx2\"}");
+        assertThat(hashes.getAllValues().get(0)).isEqualTo(hashes.getAllValues().get(1))
+                .isNotEqualTo(hashes.getAllValues().get(2));
+    }
+
+    private MockHttpServletRequest jsonRequest(String body) {
+        MockHttpServletRequest request = request("key-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private MockHttpServletRequest request(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        return request;
+    }
+}
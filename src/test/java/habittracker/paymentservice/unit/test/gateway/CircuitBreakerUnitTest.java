@@ -0,0 +1,137 @@
+package habittracker.paymentservice.unit.test.gateway;
+
+import habittracker.paymentservice.gateway.CircuitBreaker;
+import habittracker.paymentservice.gateway.GatewayProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        GatewayProperties.Breaker settings = new GatewayProperties.Breaker();
+        settings.setWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(0.5);
+        settings.setOpenDuration(Duration.ofSeconds(30));
+        settings.setHalfOpenProbes(2);
+        circuitBreaker = new CircuitBreaker(settings, clock);
+    }
+
+    @Test
+    @DisplayName("Breaker открывается, когда доля отказов в окне достигает порога")
+    void shouldOpenAtFailureRateThreshold() {
+        call(false);
+        call(true);
+        call(false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Старые исходы вытесняются из окна")
+    void oldOutcomesShouldLeaveWindow() {
+        call(true);
+        call(false);
+        call(false);
+        call(false);
+        call(false);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("После openDuration пробные вызовы закрывают breaker, лишние вызовы отклоняются")
+    void successfulProbesShouldClose() {
+        open();
+        clock.advance(Duration.ofSeconds(31));
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Отказ пробного вызова снова открывает breaker")
+    void failedProbeShouldReopen() {
+        open();
+        clock.advance(Duration.ofSeconds(31));
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void call(boolean failure) {
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        if (failure) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package habittracker.paymentservice.unit.test.gateway;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.ValidationErrors;
+import com.braintreegateway.exceptions.UnexpectedException;
+import habittracker.paymentservice.gateway.GatewayExecutorImpl;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.GatewayPriority;
+import habittracker.paymentservice.gateway.GatewayProperties;
+import habittracker.paymentservice.gateway.GatewayRejectedException;
+import habittracker.paymentservice.gateway.GatewayThrottledException;
+import habittracker.paymentservice.unit.test.support.InMemoryTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GatewayExecutorImplUnitTest {
+
+    private GatewayProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayExecutorImpl gatewayExecutor;
+
+    @BeforeEach
+    void setUp() {
+        GatewayProperties.Limit searchLimit = new GatewayProperties.Limit();
+        searchLimit.setMaxConcurrent(1);
+        searchLimit.setMaxQueued(0);
+        searchLimit.setQueueTimeout(Duration.ofMillis(100));
+
+        GatewayProperties.Limit findLimit = new GatewayProperties.Limit();
+        findLimit.setAdaptiveTimeout(true);
+
+        properties = new GatewayProperties();
+        properties.getLimits().put(GatewayOperation.SEARCH, searchLimit);
+        properties.getLimits().put(GatewayOperation.FIND, findLimit);
+        properties.getCircuitBreaker().setWindowSize(4);
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        properties.getCircuitBreaker().setOpenDuration(Duration.ofMinutes(1));
+        properties.getTimeout().setMax(Duration.ofMillis(200));
+        properties.getTimeout().setMin(Duration.ofMillis(10));
+
+        meterRegistry = new SimpleMeterRegistry();
+        gatewayExecutor = new GatewayExecutorImpl(properties, meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatewayExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Результат вызова возвращается вызывающему потоку")
+    void executeShouldReturnCallResult() {
+        String result = gatewayExecutor.execute(GatewayOperation.SALE, () -> "ok");
+
+        assertThat(result).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("Вызов выполняется на виртуальном потоке")
+    void executeShouldRunOnVirtualThread() {
+        boolean virtual = gatewayExecutor.execute(GatewayOperation.FIND, () -> Thread.currentThread().isVirtual());
+
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    @DisplayName("Исключение Braintree пробрасывается без обёртки")
+    void executeShouldPropagateRuntimeException() {
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.SALE, () -> {
+            throw new IllegalStateException("gateway down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("gateway down");
+    }
+
+    @Test
+    @DisplayName("Время вызова пишется в таймер с исходом: успех, ошибка валидации, исключение")
+    void executeShouldRecordCallOutcome() {
+        gatewayExecutor.execute(GatewayOperation.SALE, () -> "ok");
+        gatewayExecutor.execute(GatewayOperation.SALE, () -> new Result<>(new ValidationErrors()));
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.SALE, () -> {
+            throw new UnexpectedException("gateway down");
+        })).isInstanceOf(UnexpectedException.class);
+
+        for (String outcome : List.of("success", "validation_error", "exception")) {
+            assertThat(meterRegistry.get("payment.gateway.call").tag("operation", "sale").tag("outcome", outcome)
+                    .timer().count()).as(outcome).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Вызов Braintree оформляется дочерним span-ом, контекст трассировки доступен в потоке запроса")
+    void executeShouldTraceCallAsChildSpan() {
+        gatewayExecutor.shutdown();
+        try (InMemoryTracing tracing = new InMemoryTracing()) {
+            gatewayExecutor = new GatewayExecutorImpl(properties, meterRegistry, tracing.observationRegistry());
+            AtomicReference<String> callTraceId = new AtomicReference<>();
+
+            Observation.createNotStarted("payment.service", tracing.observationRegistry())
+                    .contextualName("checkout")
+                    .observe(() -> gatewayExecutor.execute(GatewayOperation.SALE, () -> {
+                        callTraceId.set(Span.current().getSpanContext().getTraceId());
+                        sleep(Duration.ofMillis(50));
+                        return new Result<>(new ValidationErrors());
+                    }));
+
+            SpanData parent = tracing.span("checkout");
+            SpanData call = tracing.span("braintree sale");
+            assertThat(call.getParentSpanId()).isEqualTo(parent.getSpanId());
+            assertThat(call.getTraceId()).isEqualTo(parent.getTraceId()).isEqualTo(callTraceId.get());
+            assertThat(call.getAttributes().get(AttributeKey.stringKey("operation"))).isEqualTo("sale");
+            assertThat(call.getAttributes().get(AttributeKey.stringKey("outcome"))).isEqualTo("validation_error");
+            assertThat(call.getEndEpochNanos() - call.getStartEpochNanos())
+                    .isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+            assertThat(call.getStartEpochNanos()).isGreaterThanOrEqualTo(parent.getStartEpochNanos());
+            assertThat(call.getEndEpochNanos()).isLessThanOrEqualTo(parent.getEndEpochNanos());
+        }
+    }
+
+    @Test
+    @DisplayName("Занятый лимит поиска отклоняет поиск, но не продажи")
+    void busySearchShouldNotBlockSales() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slowSearch = CompletableFuture.supplyAsync(() ->
+                gatewayExecutor.execute(GatewayOperation.SEARCH, () -> {
+                    started.countDown();
+                    await(release);
+                    return "search";
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.SEARCH, () -> "second"))
+                .isInstanceOf(GatewayRejectedException.class);
+        assertThat(gatewayExecutor.execute(GatewayOperation.SALE, () -> "sale")).isEqualTo("sale");
+        assertThat(meterRegistry.get("payment.gateway.rejected").tag("operation", "search").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("payment.gateway.active").tag("operation", "search").gauge().value())
+                .isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(slowSearch.get(5, TimeUnit.SECONDS)).isEqualTo("search");
+    }
+
+    @Test
+    @DisplayName("Исчерпанная квота сразу отклоняет поиск, а продажа берёт оставленный для неё запас")
+    void lowPriorityShouldNotDrainSaleQuota() {
+        properties.getRateLimit().setRatePerSecond(0.1);
+        properties.getRateLimit().setBurst(2);
+        properties.getRateLimit().setLowReserve(0.5);
+        properties.getLimits().get(GatewayOperation.SEARCH).setPriority(GatewayPriority.LOW);
+        properties.getLimits().get(GatewayOperation.SEARCH).setRateWait(Duration.ZERO);
+        GatewayProperties.Limit saleLimit = new GatewayProperties.Limit();
+        saleLimit.setPriority(GatewayPriority.HIGH);
+        saleLimit.setRateWait(Duration.ZERO);
+        properties.getLimits().put(GatewayOperation.SALE, saleLimit);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GatewayExecutorImpl throttled = new GatewayExecutorImpl(properties, registry, ObservationRegistry.NOOP);
+        AtomicInteger calls = new AtomicInteger();
+
+        try {
+            assertThat(throttled.execute(GatewayOperation.SEARCH, () -> "search")).isEqualTo("search");
+            assertThatThrownBy(() -> throttled.execute(GatewayOperation.SEARCH, calls::incrementAndGet))
+                    .isInstanceOf(GatewayThrottledException.class);
+            assertThat(throttled.execute(GatewayOperation.SALE, () -> "sale")).isEqualTo("sale");
+            assertThatThrownBy(() -> throttled.execute(GatewayOperation.SALE, calls::incrementAndGet))
+                    .isInstanceOf(GatewayThrottledException.class);
+        } finally {
+            throttled.shutdown();
+        }
+
+        assertThat(calls).hasValue(0);
+        assertThat(registry.get("payment.gateway.rate.rejected").tag("operation", "search").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Вызов, отклонённый из-за занятого слота, возвращает токен квоты")
+    void rejectedCallShouldReturnToken() throws Exception {
+        properties.getRateLimit().setRatePerSecond(0.1);
+        properties.getRateLimit().setBurst(2);
+        properties.getLimits().get(GatewayOperation.SEARCH).setPriority(GatewayPriority.HIGH);
+        properties.getLimits().get(GatewayOperation.SEARCH).setRateWait(Duration.ZERO);
+        GatewayExecutorImpl throttled = new GatewayExecutorImpl(properties, new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            CompletableFuture<String> slowSearch = CompletableFuture.supplyAsync(() ->
+                    throttled.execute(GatewayOperation.SEARCH, () -> {
+                        started.countDown();
+                        await(release);
+                        return "search";
+                    }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThatThrownBy(() -> throttled.execute(GatewayOperation.SEARCH, () -> "second"))
+                    .isInstanceOf(GatewayRejectedException.class)
+                    .isNotInstanceOf(GatewayThrottledException.class);
+            release.countDown();
+            assertThat(slowSearch.get(5, TimeUnit.SECONDS)).isEqualTo("search");
+
+            assertThat(throttled.execute(GatewayOperation.SEARCH, () -> "third")).isEqualTo("third");
+        } finally {
+            throttled.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Отказы Braintree открывают circuit breaker операции, и следующий вызов отклоняется сразу")
+    void gatewayFailuresShouldOpenCircuit() {
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.REFUND, () -> {
+                throw new UnexpectedException("connection reset");
+            })).isInstanceOf(UnexpectedException.class);
+        }
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.REFUND, calls::incrementAndGet))
+                .isInstanceOf(GatewayRejectedException.class);
+        assertThat(calls).hasValue(0);
+        assertThat(gatewayExecutor.execute(GatewayOperation.SALE, () -> "sale")).isEqualTo("sale");
+        assertThat(meterRegistry.get("payment.gateway.short-circuited").tag("operation", "refund").counter()
+                .count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Ошибка в самом запросе не открывает circuit breaker")
+    void requestErrorsShouldNotOpenCircuit() {
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.REFUND, () -> {
+                throw new IllegalArgumentException("bad request");
+            })).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        assertThat(gatewayExecutor.execute(GatewayOperation.REFUND, () -> "refund")).isEqualTo("refund");
+    }
+
+    @Test
+    @DisplayName("Чтение не ждёт ответа дольше адаптивного таймаута")
+    void slowReadShouldTimeOut() {
+        CountDownLatch release = new CountDownLatch(1);
+        long started = System.nanoTime();
+
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.FIND, () -> {
+            await(release);
+            return "late";
+        })).isInstanceOf(GatewayRejectedException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+        assertThat(meterRegistry.get("payment.gateway.timeouts").tag("operation", "find").counter().count())
+                .isEqualTo(1.0);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Запрос, не дождавшийся ответа, держит слот операции, пока HTTP-запрос не завершится")
+    void timedOutCallShouldHoldSlotUntilDone() {
+        properties.getLimits().get(GatewayOperation.FIND).setMaxConcurrent(1);
+        properties.getLimits().get(GatewayOperation.FIND).setMaxQueued(0);
+        gatewayExecutor.shutdown();
+        meterRegistry = new SimpleMeterRegistry();
+        gatewayExecutor = new GatewayExecutorImpl(properties, meterRegistry, ObservationRegistry.NOOP);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.FIND, () -> {
+            // HTTP-запрос Braintree не прерывается отменой
+            awaitUninterruptibly(release);
+            return "late";
+        })).isInstanceOf(GatewayRejectedException.class);
+
+        assertThat(meterRegistry.get("payment.gateway.active").tag("operation", "find").gauge().value())
+                .isEqualTo(1.0);
+        assertThatThrownBy(() -> gatewayExecutor.execute(GatewayOperation.FIND, () -> "second"))
+                .isInstanceOf(GatewayRejectedException.class);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("payment.gateway.active").tag("operation", "find").gauge().value() > 0
+                && System.nanoTime() < deadline) {
+            sleep(Duration.ofMillis(10));
+        }
+        assertThat(gatewayExecutor.execute(GatewayOperation.FIND, () -> "find")).isEqualTo("find");
+    }
+
+    @Test
+    @DisplayName("Задержавшееся чтение дублируется вторым запросом, и возвращается первый ответ")
+    void slowHedgedReadShouldReturnFirstAnswer() {
+        enableHedging(1.0);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        gatewayExecutor.executeHedged(GatewayOperation.PLAN, () -> "warm-up");
+
+        String result = gatewayExecutor.executeHedged(GatewayOperation.PLAN, () -> {
+            if (calls.incrementAndGet() == 1) {
+                await(release);
+                return "slow";
+            }
+            return "hedge";
+        });
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.get("payment.gateway.hedge.wins").tag("operation", "plan").counter().count())
+                .isEqualTo(1.0);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Без остатка бюджета второй запрос не отправляется")
+    void hedgeShouldRespectBudget() {
+        enableHedging(0.0);
+        AtomicInteger calls = new AtomicInteger();
+        gatewayExecutor.executeHedged(GatewayOperation.PLAN, () -> "warm-up");
+
+        String result = gatewayExecutor.executeHedged(GatewayOperation.PLAN, () -> {
+            calls.incrementAndGet();
+            sleep(Duration.ofMillis(100));
+            return "slow";
+        });
+
+        assertThat(result).isEqualTo("slow");
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("payment.gateway.hedges").tag("operation", "plan").counter().count())
+                .isZero();
+    }
+
+    private void enableHedging(double budgetRatio) {
+        gatewayExecutor.shutdown();
+        properties.getTimeout().setMinSamples(1);
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinDelay(Duration.ofMillis(20));
+        properties.getHedging().setBudgetRatio(budgetRatio);
+        properties.getHedging().setBudgetBurst(1);
+        meterRegistry = new SimpleMeterRegistry();
+        gatewayExecutor = new GatewayExecutorImpl(properties, meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package habittracker.paymentservice.unit.test.gateway;
+
+import com.braintreegateway.ResourceCollection;
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.PagedSearch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PagedSearchUnitTest {
+
+    private final CountingExecutor executor = new CountingExecutor();
+
+    private final List<List<String>> requestedPages = new ArrayList<>();
+
+    @Test
+    @DisplayName("Каждая страница результата загружается отдельным вызовом execute")
+    void eachPageShouldBeSeparateCall() {
+        List<String> ids = IntStream.range(0, 120).mapToObj(i -> "id" + i).toList();
+
+        Iterable<String> found = PagedSearch.of(executor, GatewayOperation.SEARCH, () -> idsOf(ids), this::page);
+        List<String> items = new ArrayList<>();
+        found.forEach(items::add);
+
+        assertThat(items).isEqualTo(ids);
+        assertThat(requestedPages).extracting(List::size).containsExactly(50, 50, 20);
+        // поиск id и три страницы
+        assertThat(executor.calls).containsOnly(GatewayOperation.SEARCH).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("Страницы загружаются по мере обхода, а не заранее")
+    void pagesShouldBeLoadedLazily() {
+        List<String> ids = IntStream.range(0, 60).mapToObj(i -> "id" + i).toList();
+
+        Iterator<String> iterator = PagedSearch.byIds(executor, GatewayOperation.SEARCH, ids, this::page).iterator();
+        assertThat(executor.calls).isEmpty();
+
+        assertThat(iterator.next()).isEqualTo("id0");
+        assertThat(executor.calls).hasSize(1);
+        for (int i = 1; i < 50; i++) {
+            iterator.next();
+        }
+        assertThat(executor.calls).hasSize(1);
+
+        assertThat(iterator.next()).isEqualTo("id50");
+        assertThat(executor.calls).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Пустая страница из удалённых после поиска id пропускается")
+    void emptyPageShouldBeSkipped() {
+        List<String> ids = IntStream.range(0, 60).mapToObj(i -> "id" + i).toList();
+
+        Iterable<String> found = PagedSearch.byIds(executor, GatewayOperation.SEARCH, ids,
+                pageIds -> pageIds.contains("id0") ? collection(List.of()) : page(pageIds));
+        List<String> items = new ArrayList<>();
+        found.forEach(items::add);
+
+        assertThat(items).isEqualTo(ids.subList(50, 60));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResourceCollection<String> idsOf(List<String> ids) {
+        ResourceCollection<String> collection = mock(ResourceCollection.class);
+        when(collection.getIds()).thenReturn(ids);
+        return collection;
+    }
+
+    private ResourceCollection<String> page(List<String> ids) {
+        requestedPages.add(List.copyOf(ids));
+        return collection(List.copyOf(ids));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResourceCollection<String> collection(List<String> items) {
+        ResourceCollection<String> collection = mock(ResourceCollection.class);
+        when(collection.iterator()).thenAnswer(invocation -> items.iterator());
+        return collection;
+    }
+
+    private static final class CountingExecutor implements GatewayExecutor {
+
+        private final List<GatewayOperation> calls = new ArrayList<>();
+
+        @Override
+        public <T> T execute(GatewayOperation operation, Supplier<T> call) {
+            calls.add(operation);
+            return call.get();
+        }
+
+        @Override
+        public <T> T executeHedged(GatewayOperation operation, Supplier<T> call) {
+            return execute(operation, call);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package habittracker.paymentservice.unit.test.gateway;
+
+import habittracker.paymentservice.gateway.TokenBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+
+    private TokenBucket bucket;
+
+    @BeforeEach
+    void setUp() {
+        bucket = new TokenBucket(10, 4, clock);
+    }
+
+    @Test
+    @DisplayName("Запас расходуется без ожидания и восстанавливается со скоростью ratePerSecond")
+    void shouldRefillAtRate() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(bucket.reserve(0, Duration.ZERO)).isEqualTo(Duration.ZERO);
+        }
+        assertThat(bucket.reserve(0, Duration.ZERO)).isNull();
+
+        clock.advance(Duration.ofMillis(100));
+
+        assertThat(bucket.reserve(0, Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(bucket.reserve(0, Duration.ZERO)).isNull();
+    }
+
+    @Test
+    @DisplayName("Вызов с нижней границей не забирает запас, оставленный более приоритетным")
+    void floorShouldKeepReserve() {
+        assertThat(bucket.reserve(2, Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(bucket.reserve(2, Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(bucket.reserve(2, Duration.ZERO)).isNull();
+
+        assertThat(bucket.reserve(0, Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(bucket.available()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Ожидающие вызовы выстраиваются в очередь по времени появления токенов")
+    void reservationsShouldQueue() {
+        for (int i = 0; i < 4; i++) {
+            bucket.reserve(0, Duration.ZERO);
+        }
+
+        assertThat(bucket.reserve(0, Duration.ofSeconds(1))).isEqualTo(Duration.ofMillis(100));
+        assertThat(bucket.reserve(0, Duration.ofSeconds(1))).isEqualTo(Duration.ofMillis(200));
+        assertThat(bucket.reserve(0, Duration.ofMillis(250))).isNull();
+
+        bucket.release();
+
+        assertThat(bucket.reserve(0, Duration.ofMillis(250))).isEqualTo(Duration.ofMillis(200));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package habittracker.paymentservice.unit.test.service;
 
 import com.braintreegateway.BraintreeGateway;
-import com.braintreegateway.ClientTokenGateway;
 import com.braintreegateway.Transaction;
 import com.braintreegateway.TransactionGateway;
 import com.braintreegateway.Result;
@@ -9,24 +8,32 @@ import com.braintreegateway.ValidationError;
 import com.braintreegateway.ValidationErrors;
 import com.braintreegateway.ValidationErrorCode;
 import com.braintreegateway.TransactionRequest;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.service.CheckoutServiceImpl;
+import habittracker.paymentservice.service.cache.ClientTokenPool;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.metrics.TransactionStatusMetrics;
+import habittracker.paymentservice.service.util.AmountParseResult;
 import habittracker.paymentservice.service.util.NumFormatter;
-import org.junit.jupiter.api.BeforeEach;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
-import java.util.Optional;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
@@ -38,12 +45,12 @@ class CheckoutServiceImplUnitTest {
     @Mock
     private NumFormatter numFormatter;
 
-    // Моки для второго теста (BraintreeGateway и ClientTokenGateway)
-    @Mock
-    private BraintreeGateway mockBraintreeGateway;
+    @Spy
+    private DirectGatewayExecutor gatewayExecutor = new DirectGatewayExecutor();
 
+    // Моки для второго теста (BraintreeGateway)
     @Mock
-    private ClientTokenGateway mockClientTokenGateway;
+    private BraintreeGateway mockBraintreeGateway;
 
     @Mock
     private TransactionGateway mockTransactionGateway;
@@ -51,15 +58,22 @@ class CheckoutServiceImplUnitTest {
     @Mock
     private Result<Transaction> expectedResult;
 
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private TransactionDetailsCache transactionDetailsCache;
+
+    @Mock
+    private TransactionStatusMetrics transactionStatusMetrics;
+
+    @Mock
+    private ClientTokenPool clientTokenPool;
+
     // Сервис, который тестируем
     @InjectMocks
     private CheckoutServiceImpl checkoutService;
 
-    @BeforeEach
-    void setUp() {
-        BraintreeData.setGateway(mockBraintreeGateway);
-    }
-
     // Тест 1: Проверка создания TransactionRequest с базовыми параметрами
     @Test
     @DisplayName("Проверка создания TransactionRequest с базовыми параметрами")
@@ -70,13 +84,13 @@ class CheckoutServiceImplUnitTest {
         BigDecimal expectedAmount = new BigDecimal(amount);
 
         // Настройка поведения мока
-        when(numFormatter.stringToNum(amount, BigDecimal.class)).thenReturn(Optional.of(expectedAmount));
+        when(numFormatter.parseAmount(amount)).thenReturn(AmountParseResult.ok(expectedAmount));
 
         //Вызов тестируемого метода
         checkoutService.getNewTransactionRequest(amount, paymentMethodNonce);
 
         // Проверки
-        verify(numFormatter).stringToNum(amount, BigDecimal.class);
+        verify(numFormatter).parseAmount(amount);
     }
 
     // Тест 2: Проверка на ошибку NumberFormatException при некорректном формате суммы
@@ -87,7 +101,8 @@ class CheckoutServiceImplUnitTest {
         String invalidAmount = "invalid";
         String paymentMethodNonce = "fakeNonce";
 
-        when(numFormatter.stringToNum(invalidAmount, BigDecimal.class)).thenReturn(Optional.empty());
+        when(numFormatter.parseAmount(invalidAmount))
+                .thenReturn(AmountParseResult.failed(AmountParseResult.Status.MALFORMED));
 
         // Проверка выброса исключения
         assertThatThrownBy(() -> checkoutService.getNewTransactionRequest(invalidAmount, paymentMethodNonce))
@@ -99,11 +114,8 @@ class CheckoutServiceImplUnitTest {
     @Test
     @DisplayName("Проверка генерации нового клиентского токена")
     void testGetNewClientToken() {
-        BraintreeData.setGateway(mockBraintreeGateway);
-        when(mockBraintreeGateway.clientToken()).thenReturn(mockClientTokenGateway);
-
         String expectedToken = "test-token";
-        when(mockClientTokenGateway.generate()).thenReturn(expectedToken);
+        when(clientTokenPool.take()).thenReturn(expectedToken);
 
         String actualToken = checkoutService.getNewClientToken();
         assertThat(actualToken)
@@ -162,11 +174,31 @@ class CheckoutServiceImplUnitTest {
         TransactionRequest request = new TransactionRequest();
         when(mockBraintreeGateway.transaction()).thenReturn(mockTransactionGateway);
         when(mockTransactionGateway.sale(request)).thenReturn(expectedResult);
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        when(transactionLedger.recordResult(eq(expectedResult), any())).thenReturn(details);
 
         Result<Transaction> result = checkoutService.getTransactionSale(request);
 
         assertThat(result).isSameAs(expectedResult).isNotNull();
 
         verify(mockTransactionGateway, times(1)).sale(request);
+        verify(transactionDetailsCache).put(details);
+        verify(transactionStatusMetrics).recordValidationError();
+    }
+
+    @Test
+    @DisplayName("Статус созданной транзакции учитывается в метриках с классификацией успеха")
+    void testGetTransactionSaleRecordsStatus() {
+        TransactionRequest request = new TransactionRequest();
+        Transaction declined = mock(Transaction.class);
+        when(declined.getStatus()).thenReturn(Transaction.Status.PROCESSOR_DECLINED);
+        when(expectedResult.isSuccess()).thenReturn(false);
+        when(expectedResult.getTransaction()).thenReturn(declined);
+        when(mockBraintreeGateway.transaction()).thenReturn(mockTransactionGateway);
+        when(mockTransactionGateway.sale(request)).thenReturn(expectedResult);
+
+        checkoutService.getTransactionSale(request);
+
+        verify(transactionStatusMetrics).record(Transaction.Status.PROCESSOR_DECLINED, false);
     }
 }
\ No newline at end of file
@@ -7,9 +7,13 @@ import com.braintreegateway.PlanGateway;
 import com.braintreegateway.PlanRequest;
 import com.braintreegateway.Result;
 import com.braintreegateway.exceptions.NotFoundException;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.gateway.GatewayOperation;
+import habittracker.paymentservice.gateway.GatewayRejectedException;
 import habittracker.paymentservice.model.dto.PlanRequestDTO;
 import habittracker.paymentservice.service.PlanServiceImpl;
+import habittracker.paymentservice.service.cache.PlanCatalog;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -50,6 +54,9 @@ class PlanServiceImplUnitTest {
     @Mock
     private List<Plan> expectedListPlan;
 
+    @Mock
+    private PaymentEventPublisher eventPublisher;
+
     @InjectMocks
     private PlanServiceImpl planService;
     private PlanRequestDTO requestDto;
@@ -60,10 +67,11 @@ class PlanServiceImplUnitTest {
     @BeforeEach
     public void setUp() {
         testPlanRequest = new PlanRequest();
-        planService = new PlanServiceImpl();
+        DirectGatewayExecutor gatewayExecutor = new DirectGatewayExecutor();
+        planService = new PlanServiceImpl(new PlanCatalog(braintreeGateway, gatewayExecutor), braintreeGateway,
+                gatewayExecutor, eventPublisher);
         requestDto = new PlanRequestDTO("Basic Plan", BigDecimal.valueOf(9.99), "USD",
                 12, 1, false, 0, null);
-        BraintreeData.setGateway(braintreeGateway);
     }
 
     @Test
@@ -159,6 +167,22 @@ class PlanServiceImplUnitTest {
         assertThat(expectedListPlan).isEqualTo(result);
     }
 
+    @Test
+    @DisplayName("getAllPlans отдаёт каталог, когда вызов Braintree отклонён")
+    void testGetAllPlansFallsBackToCatalog() {
+        when(planMock.getId()).thenReturn("p1");
+        when(planMock.getName()).thenReturn("Basic");
+        when(planGateway.all())
+                .thenReturn(List.of(planMock))
+                .thenThrow(new GatewayRejectedException(GatewayOperation.PLAN, "circuit open"));
+        when(braintreeGateway.plan()).thenReturn(planGateway);
+        planService.getPlanByName("Basic");
+
+        List<Plan> result = planService.getAllPlans();
+
+        assertThat(result).containsExactly(planMock);
+    }
+
     @Test
     @DisplayName("getPlanById should return Plan when found")
     void testGetPlanByIdWhenPlanFound() {
@@ -173,6 +197,22 @@ class PlanServiceImplUnitTest {
         verify(braintreeGateway.plan()).find(planId);
     }
 
+    @Test
+    @DisplayName("getPlanByName -> повторный поиск не обращается к Braintree")
+    void testGetPlanByNameServedFromCatalog() {
+        when(planMock.getId()).thenReturn("planId");
+        when(planMock.getName()).thenReturn("Basic Plan");
+        when(planGateway.all()).thenReturn(List.of(planMock));
+        when(braintreeGateway.plan()).thenReturn(planGateway);
+
+        assertThat(planService.getPlanByName("Basic Plan")).contains(planMock);
+        assertThat(planService.getPlanByName("Basic Plan")).contains(planMock);
+        assertThat(planService.getPlanById("planId")).contains(planMock);
+
+        verify(planGateway).all();
+        verify(planGateway, never()).find(anyString());
+    }
+
     @Test
     @DisplayName("getPlanById shouldn't return Plan")
     void testGetPlanByIdWhenPlanNotFound() {
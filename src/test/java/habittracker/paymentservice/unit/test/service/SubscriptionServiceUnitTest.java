@@ -1,43 +1,56 @@
 package habittracker.paymentservice.unit.test.service;
 
 import com.braintreegateway.Plan;
-import com.braintreegateway.ResourceCollection;
 import com.braintreegateway.Result;
 import com.braintreegateway.Subscription;
 import com.braintreegateway.SubscriptionRequest;
-import com.braintreegateway.SubscriptionSearchRequest;
 import com.braintreegateway.SubscriptionGateway;
 import com.braintreegateway.BraintreeGateway;
 
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
 import habittracker.paymentservice.model.dto.SubscriptionInfoDTO;
 import habittracker.paymentservice.model.dto.SubscriptionRequestDTO;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
 import habittracker.paymentservice.service.PlanServiceImpl;
 import habittracker.paymentservice.service.SubscriptionServiceImpl;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import habittracker.paymentservice.service.util.AmountParseResult;
 import habittracker.paymentservice.service.util.NumFormatter;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.api.AfterEach;
 
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Collections;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,6 +62,18 @@ class SubscriptionServiceUnitTest {
     @Mock
     private NumFormatter numFormatter;
 
+    @Spy
+    private DirectGatewayExecutor gatewayExecutor = new DirectGatewayExecutor();
+
+    @Mock
+    private SubscriptionProjector subscriptionProjector;
+
+    @Mock
+    private SubscriptionProjectionRepository projectionRepository;
+
+    @Mock
+    private PaymentEventPublisher eventPublisher;
+
     @Mock
     private Plan planMock;
 
@@ -61,9 +86,6 @@ class SubscriptionServiceUnitTest {
     @Mock
     private Result<Subscription> expectedResult;
 
-    @Mock
-    private ResourceCollection<Subscription> resourceCollection;
-
     @Mock
     private Subscription subscription;
 
@@ -78,12 +100,6 @@ class SubscriptionServiceUnitTest {
         testSubscriptionRequest = new SubscriptionRequest();
         testsubscriptionRequestDTO = new SubscriptionRequestDTO("TestName", "10", "TestNonce",
                 1, true, 2, Subscription.DurationUnit.MONTH);
-        BraintreeData.setGateway(braintreeGateway);
-    }
-
-    @AfterEach
-    void tearDown() {
-        BraintreeData.setGateway(null);
     }
 
     @ParameterizedTest
@@ -98,8 +114,8 @@ class SubscriptionServiceUnitTest {
 
         when(planMock.getId()).thenReturn("planId");
         when(planService.getPlanByName(testsubscriptionRequestDTO.getName())).thenReturn(Optional.of(planMock));
-        when(numFormatter.stringToNum(testsubscriptionRequestDTO.getStrPrice(), BigDecimal.class))
-                .thenReturn(Optional.of(BigDecimal.valueOf(10)));
+        when(numFormatter.parseAmount(testsubscriptionRequestDTO.getStrPrice()))
+                .thenReturn(AmountParseResult.ok(BigDecimal.valueOf(10)));
 
         var expectedResultSubscription = testSubscriptionRequest
                 .planId("planId")
@@ -175,25 +191,69 @@ class SubscriptionServiceUnitTest {
     }
 
     @Test
-    @DisplayName("searchAllSubscription -> search all subscription")
+    @DisplayName("searchAllSubscription -> подписки читаются из проекции без обращения к Braintree")
     void searchAllSubscription() {
-        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
-        when(subscriptionGateway.search(any(SubscriptionSearchRequest.class))).thenReturn(resourceCollection);
-        when(resourceCollection.iterator())
-                .thenAnswer(invocation -> Collections.singletonList(subscription).iterator());
-
-        when(subscription.getId()).thenReturn("sub_123");
-        when(subscription.getDescription()).thenReturn("Test Subscription");
-        when(subscription.getMerchantAccountId()).thenReturn("habittracker");
-        when(subscription.getPlanId()).thenReturn("plan_456");
-        when(subscription.getStatus()).thenReturn(Subscription.Status.ACTIVE);
-        when(subscription.getPrice()).thenReturn(new BigDecimal("19.99"));
-        when(subscription.getPaymentMethodToken()).thenReturn("token_789");
-        when(subscription.getNumberOfBillingCycles()).thenReturn(12);
+        when(projectionRepository.findAll(any(Sort.class))).thenReturn(List.of(projection("sub_123")));
 
         List<SubscriptionInfoDTO> result = subscriptionService.searchAll();
+
         assertThat(result).hasSize(1).isNotNull();
         assertThat(result.getFirst().getId()).isEqualTo("sub_123");
+        assertThat(result.getFirst().getStatus()).isEqualTo(Subscription.Status.ACTIVE);
+        assertThat(result.getFirst().getTransactions()).isEmpty();
+        verify(braintreeGateway, never()).subscription();
+    }
+
+    @Test
+    @DisplayName("streamAll -> проекция читается страницами по id")
+    void streamAllSubscription() {
+        List<SubscriptionProjection> fullPage = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            fullPage.add(projection(String.format("sub_%03d", i)));
+        }
+        when(projectionRepository.findByIdGreaterThan(eq(""), any(Pageable.class))).thenReturn(fullPage);
+        when(projectionRepository.findByIdGreaterThan(eq("sub_499"), any(Pageable.class)))
+                .thenReturn(List.of(projection("sub_500")));
+
+        List<SubscriptionInfoDTO> received = new ArrayList<>();
+        subscriptionService.streamAll(received::add);
+
+        assertThat(received).hasSize(501);
+        assertThat(received.getLast().getId()).isEqualTo("sub_500");
+    }
+
+    @Test
+    @DisplayName("getSubscriptionInfo -> подписка из проекции отдаётся без обращения к Braintree")
+    void getSubscriptionInfoShouldPreferProjection() {
+        when(projectionRepository.findById("sub_123")).thenReturn(Optional.of(projection("sub_123")));
+
+        assertThat(subscriptionService.getSubscriptionInfo("sub_123").getId()).isEqualTo("sub_123");
+
+        verify(braintreeGateway, never()).subscription();
+    }
+
+    @Test
+    @DisplayName("getSubscriptionInfo -> при промахе подписка читается из Braintree и записывается в проекцию")
+    void getSubscriptionInfoShouldFallBackToGateway() {
+        when(projectionRepository.findById("sub_123")).thenReturn(Optional.empty());
+        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
+        when(subscriptionGateway.find("sub_123")).thenReturn(subscription);
+        when(subscription.getId()).thenReturn("sub_123");
+
+        assertThat(subscriptionService.getSubscriptionInfo("sub_123").getId()).isEqualTo("sub_123");
+
+        verify(subscriptionProjector).project(subscription);
+    }
+
+    @Test
+    @DisplayName("searchByNextBillingDate -> границы дней переводятся в полуинтервал UTC")
+    void searchByNextBillingDateShouldUseHalfOpenRange() {
+        when(projectionRepository.findByNextBillingDateRange(any(), any())).thenReturn(List.of());
+
+        subscriptionService.searchByNextBillingDate(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31));
+
+        verify(projectionRepository).findByNextBillingDateRange(Instant.parse("2024-05-01T00:00:00Z"),
+                Instant.parse("2024-06-01T00:00:00Z"));
     }
 
     @Test
@@ -234,6 +294,36 @@ class SubscriptionServiceUnitTest {
         assertThat(actualResult).usingRecursiveComparison().isEqualTo(expectedResult);
     }
 
+    @Test
+    @DisplayName("cancelSubscription -> успешная отмена публикует событие")
+    void cancelSubscriptionShouldPublishEvent() {
+        when(subscription.getId()).thenReturn("10");
+        when(expectedResult.isSuccess()).thenReturn(true);
+        when(expectedResult.getTarget()).thenReturn(subscription);
+        when(subscriptionGateway.cancel("10")).thenReturn(expectedResult);
+        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
+
+        subscriptionService.cancelSubscription("10");
+
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(eventPublisher).publish(event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.SUBSCRIPTION_CANCELED);
+        assertThat(event.getValue().getResourceId()).isEqualTo("10");
+        verify(subscriptionProjector).project(subscription);
+    }
+
+    @Test
+    @DisplayName("deleteSubscription -> удалённая подписка убирается из проекции")
+    void deleteSubscriptionShouldRemoveProjection() {
+        when(expectedResult.isSuccess()).thenReturn(true);
+        when(subscriptionGateway.delete("customer", "12")).thenReturn(expectedResult);
+        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
+
+        subscriptionService.deleteSubscription("customer", "12");
+
+        verify(subscriptionProjector).remove("12");
+    }
+
     @Test
     @DisplayName("deleteSubscriptionById -> delete subscription by id")
     void deleteSubscriptionById() {
@@ -245,4 +335,14 @@ class SubscriptionServiceUnitTest {
 
         assertThat(actualResult).usingRecursiveComparison().isEqualTo(expectedResult);
     }
+
+    private SubscriptionProjection projection(String id) {
+        SubscriptionProjection projection = new SubscriptionProjection();
+        projection.setId(id);
+        projection.setStatus(Subscription.Status.ACTIVE);
+        projection.setPlanId("plan_456");
+        projection.setPrice(new BigDecimal("19.99"));
+        projection.setNextBillingDate(Instant.parse("2024-05-01T00:00:00Z"));
+        return projection;
+    }
 }
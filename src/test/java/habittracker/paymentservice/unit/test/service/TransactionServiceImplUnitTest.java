@@ -6,28 +6,42 @@ import com.braintreegateway.Transaction;
 import com.braintreegateway.TransactionGateway;
 import com.braintreegateway.Result;
 import com.braintreegateway.TransactionSearchRequest;
-import habittracker.paymentservice.model.BraintreeData;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
 import habittracker.paymentservice.model.dto.TransactionInfoDTO;
+import habittracker.paymentservice.model.dto.TransactionPageDTO;
+import habittracker.paymentservice.model.dto.TransactionSearchCriteriaDTO;
 import habittracker.paymentservice.service.TransactionServiceImpl;
+import habittracker.paymentservice.service.cache.TransactionCacheProperties;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
 import habittracker.paymentservice.service.util.DateFormatter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.mockito.Mockito.doAnswer;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceImplUnitTest {
@@ -47,15 +61,84 @@ class TransactionServiceImplUnitTest {
     @Mock
     private Result<Transaction> mockResult;
 
+    @Mock
+    private TransactionLedger transactionLedger;
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
     @BeforeEach
     public void setUp() {
-        transactionService = new TransactionServiceImpl();
+        transactionService = new TransactionServiceImpl(braintreeGateway, new DirectGatewayExecutor(),
+                transactionLedger, new TransactionDetailsCache(new TransactionCacheProperties()));
+
+        lenient().when(braintreeGateway.transaction()).thenReturn(transactionGateway);
+    }
+
+    @Test
+    @DisplayName("getTransactionDetails -> транзакция из журнала отдаётся без вызова Braintree")
+    void getTransactionDetailsShouldPreferLedger() {
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        details.setId("tx1");
+        when(transactionLedger.find(eq("tx1"), any(Duration.class))).thenReturn(Optional.of(details));
+
+        assertThat(transactionService.getTransactionDetails("tx1")).isSameAs(details);
+
+        verify(transactionGateway, never()).find(any());
+    }
+
+    @Test
+    @DisplayName("getTransactionDetails -> при промахе журнала транзакция берётся из Braintree и записывается")
+    void getTransactionDetailsShouldFallBackToGateway() {
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        when(transactionLedger.find(eq("tx1"), any(Duration.class))).thenReturn(Optional.empty());
+        when(transactionGateway.find("tx1")).thenReturn(mockTransaction);
+        when(transactionLedger.record(mockTransaction)).thenReturn(details);
+
+        assertThat(transactionService.getTransactionDetails("tx1")).isSameAs(details);
+    }
+
+    @Test
+    @DisplayName("getTransactionDetails -> повторное чтение отдаётся из кэша")
+    void getTransactionDetailsShouldBeCached() {
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        details.setId("tx1");
+        details.setStatus(Transaction.Status.SETTLED);
+        when(transactionLedger.find(eq("tx1"), any(Duration.class))).thenReturn(Optional.of(details));
+
+        transactionService.getTransactionDetails("tx1");
+        assertThat(transactionService.getTransactionDetails("tx1")).isSameAs(details);
 
-        BraintreeData.setGateway(braintreeGateway);
-        when(braintreeGateway.transaction()).thenReturn(transactionGateway);
+        verify(transactionLedger, times(1)).find(eq("tx1"), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("refundTransactionByBraintree -> результат возврата попадает в журнал")
+    void refundShouldBeRecordedInLedger() {
+        when(transactionGateway.refund("tx1")).thenReturn(mockResult);
+
+        transactionService.refundTransactionByBraintree("tx1");
+
+        verify(transactionLedger).recordResult(eq(mockResult), any());
+    }
+
+    @Test
+    @DisplayName("refundTransactionByBraintree -> событие о возврате передаётся в журнал вместе с результатом")
+    void refundShouldPublishEvent() {
+        Transaction refund = mock(Transaction.class);
+        when(refund.getId()).thenReturn("refund1");
+        when(refund.getRefundedTransactionId()).thenReturn("tx1");
+        when(mockResult.isSuccess()).thenReturn(true);
+        when(mockResult.getTarget()).thenReturn(refund);
+        when(transactionGateway.refund("tx1")).thenReturn(mockResult);
+
+        transactionService.refundTransactionByBraintree("tx1");
+
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(transactionLedger).recordResult(eq(mockResult), event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.TRANSACTION_REFUND);
+        assertThat(event.getValue().getResourceId()).isEqualTo("refund1");
+        assertThat(event.getValue().getParentId()).isEqualTo("tx1");
     }
 
     @Test
@@ -110,18 +193,18 @@ class TransactionServiceImplUnitTest {
         when(mockTransaction.getStatus()).thenReturn(status);
         when(mockTransaction.getRefundedTransactionId()).thenReturn(refundedTransactionId);
 
-        when(transactionGateway.search(any(TransactionSearchRequest.class))).thenReturn(mockCollection);
-        doAnswer(invocation -> {
-            Consumer<Transaction> consumer = invocation.getArgument(0);
-            consumer.accept(mockTransaction);
-            return null;
-        }).when(mockCollection).forEach(any());
+        ResourceCollection<Transaction> idsCollection = mock(ResourceCollection.class);
+        when(idsCollection.getIds()).thenReturn(List.of(transactionId));
+        when(mockCollection.iterator()).thenAnswer(invocation -> List.of(mockTransaction).iterator());
+        when(transactionGateway.search(any(TransactionSearchRequest.class)))
+                .thenReturn(idsCollection)
+                .thenReturn(mockCollection);
 
         //calling method
         List<TransactionInfoDTO> result = transactionService.getTransactionsBySearchRequest();
 
         //asserting
-        verify(transactionGateway).search(any(TransactionSearchRequest.class));
+        verify(transactionGateway, times(2)).search(any(TransactionSearchRequest.class));
         assertThat(result).as("Transactions not found").hasSize(1).as("Transaction not found").isNotNull();
 
         TransactionInfoDTO transactionInfoDTO = result.getFirst();
@@ -135,6 +218,47 @@ class TransactionServiceImplUnitTest {
         assertThat(transactionInfoDTO.isRefund()).isFalse();
     }
 
+    @Test
+    @DisplayName("searchTransactions -> возвращает одну страницу и курсор на следующую")
+    void testSearchTransactionsReturnsPageAndCursor() {
+        ResourceCollection<Transaction> idsCollection = mock(ResourceCollection.class);
+        when(idsCollection.getIds()).thenReturn(List.of("t1", "t2", "t3"));
+        Transaction second = mock(Transaction.class);
+        when(second.getId()).thenReturn("t2");
+        when(mockTransaction.getId()).thenReturn("t1");
+        when(mockCollection.iterator()).thenAnswer(invocation -> List.of(second, mockTransaction).iterator());
+        when(transactionGateway.search(any(TransactionSearchRequest.class)))
+                .thenReturn(idsCollection)
+                .thenReturn(mockCollection);
+
+        TransactionSearchCriteriaDTO criteria = new TransactionSearchCriteriaDTO();
+        criteria.setPageSize(2);
+        TransactionPageDTO page = transactionService.searchTransactions(criteria);
+
+        // порядок страницы совпадает с порядком id из первого запроса
+        assertThat(page.getItems()).extracting(TransactionInfoDTO::getId).containsExactly("t1", "t2");
+        assertThat(page.getTotalCount()).isEqualTo(3);
+        assertThat(page.getNextCursor()).isNotNull();
+        verify(transactionGateway, times(2)).search(any(TransactionSearchRequest.class));
+    }
+
+    @Test
+    @DisplayName("searchTransactions -> последняя страница не содержит курсора")
+    void testSearchTransactionsLastPage() {
+        ResourceCollection<Transaction> idsCollection = mock(ResourceCollection.class);
+        when(idsCollection.getIds()).thenReturn(List.of("t1"));
+        when(mockTransaction.getId()).thenReturn("t1");
+        when(mockCollection.iterator()).thenAnswer(invocation -> List.of(mockTransaction).iterator());
+        when(transactionGateway.search(any(TransactionSearchRequest.class)))
+                .thenReturn(idsCollection)
+                .thenReturn(mockCollection);
+
+        TransactionPageDTO page = transactionService.searchTransactions(new TransactionSearchCriteriaDTO());
+
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
     @Test
     @DisplayName("voidTransactionById -> void transaction")
     void testVoidTransactionById() {
@@ -0,0 +1,103 @@
+package habittracker.paymentservice.unit.test.service.admission;
+
+import habittracker.paymentservice.service.admission.AdaptiveLimit;
+import habittracker.paymentservice.service.admission.AdmissionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+
+    private AdaptiveLimit limit;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties.ClassLimit settings = new AdmissionProperties.ClassLimit();
+        settings.setInitialLimit(4);
+        settings.setMinLimit(2);
+        settings.setMaxLimit(5);
+        limit = new AdaptiveLimit(settings, 0.75, Duration.ofSeconds(1), clock);
+    }
+
+    @Test
+    @DisplayName("Запросы сверх лимита не допускаются, освобождённый слот снова доступен")
+    void shouldRejectAboveLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release(false);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.getInFlight()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Лимит растёт, пока запросы быстрые и загрузка не меньше половины лимита, но не выше max")
+    void shouldGrowUnderLoad() {
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 4; i++) {
+                limit.tryAcquire();
+            }
+            for (int i = 0; i < 4; i++) {
+                limit.release(false);
+            }
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Перегрузка уменьшает лимит не чаще раза в backoffInterval и не ниже min")
+    void shouldBackOffOncePerInterval() {
+        limit.backOff();
+        limit.backOff();
+        assertThat(limit.getLimit()).isEqualTo(3);
+
+        clock.advance(Duration.ofSeconds(1));
+        limit.backOff();
+        clock.advance(Duration.ofSeconds(1));
+        limit.backOff();
+
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
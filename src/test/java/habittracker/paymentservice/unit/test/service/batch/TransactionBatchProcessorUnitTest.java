@@ -0,0 +1,178 @@
+package habittracker.paymentservice.unit.test.service.batch;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.exceptions.NotFoundException;
+import habittracker.paymentservice.model.dto.BatchItemResultDTO;
+import habittracker.paymentservice.model.entity.BatchOperationItem;
+import habittracker.paymentservice.repository.BatchOperationItemRepository;
+import habittracker.paymentservice.service.TransactionService;
+import habittracker.paymentservice.service.batch.BatchAction;
+import habittracker.paymentservice.service.batch.BatchItemStatus;
+import habittracker.paymentservice.service.batch.BatchProperties;
+import habittracker.paymentservice.service.batch.TransactionBatchProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchProcessorUnitTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private BatchOperationItemRepository repository;
+
+    private BatchProperties properties;
+    private TransactionBatchProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BatchProperties();
+        properties.setParallelism(2);
+        processor = new TransactionBatchProcessor(transactionService, repository, properties);
+    }
+
+    @Test
+    @DisplayName("Ошибка по одной транзакции не останавливает пакет, каждый результат сохраняется")
+    void runShouldReportPartialSuccess() {
+        when(repository.findByBatchIdOrderByUpdatedAt("b1")).thenReturn(List.of());
+        Result<Transaction> refunded = success("rf1");
+        Result<Transaction> declined = declined("Transaction has already been fully refunded.");
+        when(transactionService.refundTransactionByBraintree("tx1")).thenReturn(refunded);
+        when(transactionService.refundTransactionByBraintree("tx2")).thenReturn(declined);
+        when(transactionService.refundTransactionByBraintree("tx3")).thenThrow(new NotFoundException());
+        List<BatchItemResultDTO> results = new ArrayList<>();
+
+        processor.run("b1", BatchAction.REFUND, List.of("tx1", "tx2", "tx3", "tx1", " "), results::add);
+
+        assertThat(results).extracting(BatchItemResultDTO::getTransactionId)
+                .containsExactlyInAnyOrder("tx1", "tx2", "tx3");
+        assertThat(results).filteredOn(result -> result.getTransactionId().equals("tx1")).singleElement()
+                .satisfies(result -> {
+                    assertThat(result.getStatus()).isEqualTo(BatchItemStatus.SUCCEEDED);
+                    assertThat(result.getResultTransactionId()).isEqualTo("rf1");
+                });
+        assertThat(results).filteredOn(result -> result.getStatus() == BatchItemStatus.FAILED)
+                .extracting(BatchItemResultDTO::getMessage)
+                .containsExactlyInAnyOrder("Transaction has already been fully refunded.", "NotFoundException");
+        verify(repository, times(3)).save(any(BatchOperationItem.class));
+    }
+
+    @Test
+    @DisplayName("Одновременно выполняется не больше parallelism операций")
+    void runShouldBoundParallelism() {
+        when(repository.findByBatchIdOrderByUpdatedAt("b1")).thenReturn(List.of());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Result<Transaction> voided = success("tx");
+        when(transactionService.voidTransactionById(anyString())).thenAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return voided;
+        });
+        List<BatchItemResultDTO> results = new ArrayList<>();
+
+        processor.run("b1", BatchAction.VOID, List.of("tx1", "tx2", "tx3", "tx4", "tx5", "tx6"), results::add);
+
+        assertThat(results).hasSize(6).allMatch(result -> result.getStatus() == BatchItemStatus.SUCCEEDED);
+        assertThat(maxActive.get()).isBetween(1, 2);
+    }
+
+    @Test
+    @DisplayName("Повтор пакета пропускает успешные транзакции и повторяет неудавшиеся")
+    void runShouldResumeBatch() {
+        when(repository.findByBatchIdOrderByUpdatedAt("b1")).thenReturn(List.of(
+                item("tx1", BatchAction.REFUND, BatchItemStatus.SUCCEEDED),
+                item("tx2", BatchAction.REFUND, BatchItemStatus.FAILED)));
+        Result<Transaction> refunded = success("rf2");
+        when(transactionService.refundTransactionByBraintree("tx2")).thenReturn(refunded);
+        List<BatchItemResultDTO> results = new ArrayList<>();
+
+        processor.run("b1", BatchAction.REFUND, List.of("tx1", "tx2"), results::add);
+
+        assertThat(results).extracting(BatchItemResultDTO::getStatus)
+                .containsExactly(BatchItemStatus.ALREADY_DONE, BatchItemStatus.SUCCEEDED);
+        verify(transactionService, never()).refundTransactionByBraintree("tx1");
+    }
+
+    @Test
+    @DisplayName("batchId другой операции и слишком большой пакет отклоняются до выполнения")
+    void validateShouldRejectInvalidBatch() {
+        when(repository.findByBatchIdOrderByUpdatedAt("b1"))
+                .thenReturn(List.of(item("tx1", BatchAction.REFUND, BatchItemStatus.SUCCEEDED)));
+        properties.setMaxItems(1);
+
+        assertThatThrownBy(() -> processor.validate("b1", BatchAction.VOID, List.of("tx1")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> processor.validate("b2", BatchAction.VOID, List.of("tx1", "tx2")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Ошибка записи результата клиенту останавливает запуск новых операций")
+    void failingSinkShouldStopBatch() {
+        properties.setParallelism(1);
+        when(repository.findByBatchIdOrderByUpdatedAt("b1")).thenReturn(List.of());
+        Result<Transaction> cancelled = success("tx");
+        when(transactionService.cancelTransactionById(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return cancelled;
+        });
+
+        assertThatThrownBy(() -> processor.run("b1", BatchAction.CANCEL, List.of("tx1", "tx2", "tx3"), result -> {
+            throw new IllegalStateException("client disconnected");
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(transactionService, atMost(2)).cancelTransactionById(anyString());
+    }
+
+    private Result<Transaction> success(String transactionId) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getId()).thenReturn(transactionId);
+        when(transaction.getStatus()).thenReturn(Transaction.Status.SUBMITTED_FOR_SETTLEMENT);
+        Result<Transaction> result = mock(Result.class);
+        when(result.isSuccess()).thenReturn(true);
+        when(result.getTarget()).thenReturn(transaction);
+        return result;
+    }
+
+    private Result<Transaction> declined(String message) {
+        Result<Transaction> result = mock(Result.class);
+        when(result.isSuccess()).thenReturn(false);
+        when(result.getMessage()).thenReturn(message);
+        return result;
+    }
+
+    private BatchOperationItem item(String transactionId, BatchAction action, BatchItemStatus status) {
+        BatchOperationItem item = new BatchOperationItem();
+        item.setId("b1:" + transactionId);
+        item.setBatchId("b1");
+        item.setTransactionId(transactionId);
+        item.setAction(action);
+        item.setStatus(status);
+        item.setUpdatedAt(Instant.parse("2024-05-01T10:00:00Z"));
+        return item;
+    }
+}
@@ -0,0 +1,120 @@
+package habittracker.paymentservice.unit.test.service.cache;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.ClientTokenGateway;
+import habittracker.paymentservice.service.cache.ClientTokenPool;
+import habittracker.paymentservice.service.cache.ClientTokenPoolProperties;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientTokenPoolUnitTest {
+
+    @Mock
+    private BraintreeGateway braintreeGateway;
+
+    @Mock
+    private ClientTokenGateway clientTokenGateway;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+    private final AtomicInteger generated = new AtomicInteger();
+
+    private ClientTokenPoolProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ClientTokenPool pool;
+
+    @BeforeEach
+    void setUp() {
+        when(braintreeGateway.clientToken()).thenReturn(clientTokenGateway);
+        when(clientTokenGateway.generate()).thenAnswer(invocation -> "t" + generated.incrementAndGet());
+        properties = new ClientTokenPoolProperties();
+        properties.setSize(2);
+        properties.setTtl(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new ClientTokenPool(braintreeGateway, new DirectGatewayExecutor(), properties, meterRegistry, clock);
+    }
+
+    @Test
+    @DisplayName("Пополнение заполняет пул до размера, выдача идёт из пула в порядке генерации")
+    void takeShouldServeTokenFromPool() {
+        pool.refill();
+
+        assertThat(generated).hasValue(2);
+        assertThat(meterRegistry.get("payment.client-token.pool.size").gauge().value()).isEqualTo(2);
+        assertThat(pool.take()).isEqualTo("t1");
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isZero();
+    }
+
+    @Test
+    @DisplayName("Истёкший токен не выдаётся, вместо него генерируется новый")
+    void takeShouldSkipExpiredToken() {
+        properties.setSize(1);
+        pool.refill();
+
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(pool.take()).isNotEqualTo("t1");
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.client-token.pool.expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Выключенный пул генерирует токен на каждый запрос")
+    void disabledPoolShouldGenerateEveryToken() {
+        properties.setEnabled(false);
+        pool.refill();
+
+        assertThat(pool.take()).isEqualTo("t1");
+        assertThat(pool.take()).isEqualTo("t2");
+        assertThat(meterRegistry.get("payment.client-token.pool.size").gauge().value()).isZero();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("payment.client-token.pool.requests").tag("result", result).counter().count();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package habittracker.paymentservice.unit.test.service.cache;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.Plan;
+import com.braintreegateway.PlanGateway;
+import habittracker.paymentservice.service.cache.PlanCatalog;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlanCatalogUnitTest {
+
+    @Mock
+    private BraintreeGateway braintreeGateway;
+
+    @Mock
+    private PlanGateway planGateway;
+
+    private PlanCatalog planCatalog;
+
+    @BeforeEach
+    void setUp() {
+        when(braintreeGateway.plan()).thenReturn(planGateway);
+        planCatalog = new PlanCatalog(braintreeGateway, new DirectGatewayExecutor());
+    }
+
+    @Test
+    @DisplayName("Каталог загружается один раз и ищет по имени и по id")
+    void shouldLoadOnceAndLookupByNameAndId() {
+        Plan basic = plan("1", "Basic");
+        Plan pro = plan("2", "Pro");
+        when(planGateway.all()).thenReturn(List.of(basic, pro));
+
+        assertThat(planCatalog.findByName("Pro")).contains(pro);
+        assertThat(planCatalog.findById("1")).contains(basic);
+        assertThat(planCatalog.findByName("Unknown")).isEmpty();
+        assertThat(planCatalog.all()).containsExactlyInAnyOrder(basic, pro);
+
+        verify(planGateway, times(1)).all();
+    }
+
+    @Test
+    @DisplayName("При совпадении имён возвращается первый план, как и при линейном поиске")
+    void shouldKeepFirstPlanForDuplicateNames() {
+        Plan first = plan("1", "Default");
+        Plan second = plan("2", "Default");
+        when(planGateway.all()).thenReturn(List.of(first, second));
+
+        assertThat(planCatalog.findByName("Default")).contains(first);
+    }
+
+    @Test
+    @DisplayName("put обновляет индексы и убирает старое имя переименованного плана")
+    void putShouldReplaceRenamedPlan() {
+        Plan original = plan("1", "Basic");
+        when(planGateway.all()).thenReturn(List.of(original));
+        planCatalog.refresh();
+
+        Plan renamed = plan("1", "Basic v2");
+        planCatalog.put(renamed);
+
+        assertThat(planCatalog.findByName("Basic")).isEmpty();
+        assertThat(planCatalog.findByName("Basic v2")).contains(renamed);
+        assertThat(planCatalog.findById("1")).contains(renamed);
+    }
+
+    @Test
+    @DisplayName("Ошибка планового обновления не сбрасывает загруженный каталог")
+    void scheduledRefreshShouldKeepPreviousSnapshotOnError() {
+        Plan basic = plan("1", "Basic");
+        when(planGateway.all()).thenReturn(List.of(basic)).thenThrow(new IllegalStateException("timeout"));
+        planCatalog.refresh();
+
+        planCatalog.scheduledRefresh();
+
+        assertThat(planCatalog.findByName("Basic")).contains(basic);
+    }
+
+    @Test
+    @DisplayName("Ошибка фонового обновления после invalidate не сбрасывает загруженный каталог")
+    void invalidateShouldSurviveRefreshError() {
+        Plan basic = plan("1", "Basic");
+        when(planGateway.all())
+                .thenReturn(List.of(basic))
+                .thenThrow(new IllegalStateException("timeout"));
+        planCatalog.refresh();
+
+        planCatalog.invalidate();
+        verify(planGateway, timeout(5000).times(2)).all();
+        assertThat(planCatalog.findByName("Basic")).contains(basic);
+    }
+
+    @Test
+    @DisplayName("Список, загруженный до put, не затирает план; invalidate во время обновления перечитывает каталог")
+    void refreshStartedBeforePutShouldBeReloaded() throws Exception {
+        Plan original = plan("1", "Basic");
+        Plan renamed = plan("1", "Basic v2");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(planGateway.all()).thenAnswer(invocation -> {
+            int call = calls.incrementAndGet();
+            if (call == 2) {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return call <= 2 ? List.of(original) : List.of(renamed);
+        });
+        planCatalog.refresh();
+
+        planCatalog.invalidate();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        planCatalog.put(renamed);
+        planCatalog.invalidate();
+        release.countDown();
+
+        // загруженный до put список отброшен и загружен заново, затем повторное обновление после invalidate
+        verify(planGateway, timeout(5000).times(4)).all();
+        assertThat(planCatalog.findByName("Basic")).isEmpty();
+        assertThat(planCatalog.findByName("Basic v2")).contains(renamed);
+    }
+
+    private Plan plan(String id, String name) {
+        Plan plan = mock(Plan.class);
+        when(plan.getId()).thenReturn(id);
+        when(plan.getName()).thenReturn(name);
+        return plan;
+    }
+}
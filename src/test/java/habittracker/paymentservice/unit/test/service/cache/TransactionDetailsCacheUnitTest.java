@@ -0,0 +1,104 @@
+package habittracker.paymentservice.unit.test.service.cache;
+
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
+import habittracker.paymentservice.service.cache.TransactionCacheProperties;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionDetailsCacheUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+
+    private TransactionDetailsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        TransactionCacheProperties properties = new TransactionCacheProperties();
+        properties.setMaxSize(2);
+        properties.setPendingTtl(Duration.ofSeconds(30));
+        properties.setTerminalTtl(Duration.ofHours(1));
+        cache = new TransactionDetailsCache(properties, clock);
+    }
+
+    @Test
+    @DisplayName("Транзакция в процессе живёт в кэше недолго, завершённая - долго")
+    void ttlShouldDependOnStatus() {
+        cache.put(details("pending", Transaction.Status.SUBMITTED_FOR_SETTLEMENT));
+        cache.put(details("settled", Transaction.Status.SETTLED));
+
+        clock.advance(Duration.ofMinutes(1));
+
+        assertThat(cache.get("pending")).isEmpty();
+        assertThat(cache.get("settled")).isPresent();
+    }
+
+    @Test
+    @DisplayName("При переполнении вытесняется давно не читавшаяся транзакция")
+    void shouldEvictLeastRecentlyUsed() {
+        cache.put(details("tx1", Transaction.Status.SETTLED));
+        cache.put(details("tx2", Transaction.Status.SETTLED));
+        cache.get("tx1");
+
+        cache.put(details("tx3", Transaction.Status.SETTLED));
+
+        assertThat(cache.get("tx1")).isPresent();
+        assertThat(cache.get("tx2")).isEmpty();
+        assertThat(cache.get("tx3")).isPresent();
+    }
+
+    @Test
+    @DisplayName("invalidate удаляет транзакцию из кэша")
+    void invalidateShouldRemoveEntry() {
+        cache.put(details("tx1", Transaction.Status.SETTLED));
+
+        cache.invalidate("tx1");
+
+        assertThat(cache.get("tx1")).isEmpty();
+    }
+
+    private TransactionDetailsDTO details(String id, Transaction.Status status) {
+        TransactionDetailsDTO details = new TransactionDetailsDTO();
+        details.setId(id);
+        details.setStatus(status);
+        return details;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package habittracker.paymentservice.unit.test.service.event;
+
+import habittracker.paymentservice.service.event.OutboxRelay;
+import habittracker.paymentservice.service.event.PaymentEventProperties;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayUnitTest {
+
+    private static final String TOPIC = "payment-events";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private PaymentEventProperties properties;
+
+    private OutboxRelay relay;
+
+    private final List<String> deleted = new ArrayList<>();
+
+    private final List<String> released = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentEventProperties();
+        properties.setBatchSize(2);
+        relay = new OutboxRelay(jdbcTemplate, new TransactionTemplate(transactionManager), kafkaTemplate,
+                properties);
+    }
+
+    @Test
+    @DisplayName("Доставленные события удаляются из outbox, недоставленные освобождаются для повтора")
+    void relayShouldDeleteDeliveredOnly() throws SQLException {
+        selectBatches(List.of(row("e1", "tx1"), row("e2", "tx2")));
+        captureUpdates();
+        when(kafkaTemplate.send(TOPIC, "tx1", "{}")).thenReturn(sent());
+        when(kafkaTemplate.send(TOPIC, "tx2", "{}"))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("broker down")));
+
+        relay.relay();
+
+        assertThat(deleted).containsExactly("e1");
+        assertThat(released).containsExactly("e2");
+    }
+
+    @Test
+    @DisplayName("Отправка в Kafka идёт между двумя короткими транзакциями, а не внутри них")
+    void sendShouldHappenOutsideTransaction() throws SQLException {
+        selectBatches(List.of(row("e1", "tx1")));
+        captureUpdates();
+        when(kafkaTemplate.send(TOPIC, "tx1", "{}")).thenReturn(sent());
+
+        relay.relay();
+
+        InOrder inOrder = inOrder(transactionManager, kafkaTemplate);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(kafkaTemplate).send(TOPIC, "tx1", "{}");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Полная пачка запускает следующую выборку в новой транзакции")
+    void fullBatchShouldBeFollowedByNextBatch() throws SQLException {
+        selectBatches(List.of(row("e1", "tx1"), row("e2", "tx2")), List.of(row("e3", "tx3")));
+        captureUpdates();
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), eq("{}"))).thenReturn(sent());
+
+        relay.relay();
+
+        assertThat(deleted).containsExactly("e1", "e2", "e3");
+        assertThat(released).isEmpty();
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Пустой outbox ничего не отправляет")
+    void emptyOutboxShouldSendNothing() throws SQLException {
+        selectBatches(List.of());
+
+        relay.relay();
+
+        verifyNoInteractions(kafkaTemplate);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("Выключенная публикация не читает outbox")
+    void disabledRelayShouldDoNothing() {
+        properties.setEnabled(false);
+
+        relay.relay();
+
+        verifyNoInteractions(jdbcTemplate, kafkaTemplate, transactionManager);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private void selectBatches(List<ResultSet>... batches) throws SQLException {
+        var stubbing = when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(),
+                eq(properties.getBatchSize()), any()));
+        for (List<ResultSet> batch : batches) {
+            stubbing = stubbing.thenAnswer(invocation -> {
+                RowMapper<Object> mapper = invocation.getArgument(1);
+                List<Object> rows = new ArrayList<>();
+                for (ResultSet rs : batch) {
+                    rows.add(mapper.mapRow(rs, rows.size()));
+                }
+                return rows;
+            });
+        }
+    }
+
+    private void captureUpdates() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    String sql = invocation.getArgument(0);
+                    Collection<String> eventIds = invocation.getArgument(1);
+                    (sql.startsWith("DELETE") ? deleted : released).addAll(eventIds);
+                    return new int[0][];
+                });
+    }
+
+    private ResultSet row(String eventId, String key) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("event_id")).thenReturn(eventId);
+        when(rs.getString("topic")).thenReturn(TOPIC);
+        when(rs.getString("event_key")).thenReturn(key);
+        when(rs.getString("payload")).thenReturn("{}");
+        return rs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<SendResult<String, String>> sent() {
+        return CompletableFuture.completedFuture(mock(SendResult.class));
+    }
+}
@@ -0,0 +1,150 @@
+package habittracker.paymentservice.unit.test.service.event;
+
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.service.event.OutboxWriter;
+import habittracker.paymentservice.service.event.PaymentEventProperties;
+import habittracker.paymentservice.service.event.PaymentEventPublisherImpl;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentEventPublisherImplUnitTest {
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    private PaymentEventProperties properties;
+
+    private PaymentEventPublisherImpl publisher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentEventProperties();
+        properties.setQueueCapacity(2);
+        publisher = new PaymentEventPublisherImpl(outboxWriter, properties);
+    }
+
+    @Test
+    @DisplayName("publish пишет событие в outbox сразу")
+    void publishShouldWriteImmediately() {
+        PaymentEventDTO event = event("e1", "sub1");
+
+        publisher.publish(event);
+
+        verify(outboxWriter).insert(List.of(event));
+    }
+
+    @Test
+    @DisplayName("Событие, не записанное из-за ошибки базы, записывается при следующем flush")
+    void failedWriteShouldBeRetried() {
+        PaymentEventDTO first = event("e1", "sub1");
+        PaymentEventDTO second = event("e2", "sub2");
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .doThrow(new DataAccessResourceFailureException("db down"))
+                .doThrow(new DataAccessResourceFailureException("db down"))
+                .doNothing()
+                .when(outboxWriter).insert(any());
+
+        publisher.publish(first);
+        publisher.publish(second);
+        publisher.flush();
+        publisher.flush();
+
+        InOrder inOrder = inOrder(outboxWriter);
+        inOrder.verify(outboxWriter).insert(List.of(first));
+        inOrder.verify(outboxWriter).insert(List.of(second));
+        inOrder.verify(outboxWriter, times(2)).insert(List.of(first, second));
+    }
+
+    @Test
+    @DisplayName("Сверх ёмкости очереди повторов события теряются, а не блокируют запрос")
+    void overflowShouldDropEvents() {
+        doThrow(new DataAccessResourceFailureException("db down")).when(outboxWriter).insert(any());
+
+        publisher.publish(event("e1", "sub1"));
+        publisher.publish(event("e2", "sub2"));
+        publisher.publish(event("e3", "sub3"));
+        publisher.flush();
+
+        verify(outboxWriter).insert(List.of(event("e1", "sub1"), event("e2", "sub2")));
+    }
+
+    @Test
+    @DisplayName("publish не выбрасывает ошибку записи, даже если это не ошибка базы")
+    void publishShouldNeverThrow() {
+        PaymentEventDTO event = event("e1", "sub1");
+        doThrow(new CannotCreateTransactionException("pool exhausted"))
+                .doNothing()
+                .when(outboxWriter).insert(any());
+
+        publisher.publish(event);
+        publisher.flush();
+
+        verify(outboxWriter, times(2)).insert(List.of(event));
+    }
+
+    @Test
+    @DisplayName("Событие, которое не записывается само по себе, отбрасывается и не держит остальные")
+    void poisonEventShouldBeDropped() {
+        PaymentEventDTO poison = event("e1", "sub1");
+        PaymentEventDTO valid = event("e2", "sub2");
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<PaymentEventDTO> events = invocation.getArgument(0);
+            if (calls.incrementAndGet() <= 2) {
+                throw new DataAccessResourceFailureException("db down");
+            }
+            if (events.contains(poison)) {
+                throw new IllegalStateException("not serializable");
+            }
+            return null;
+        }).when(outboxWriter).insert(any());
+
+        publisher.publish(poison);
+        publisher.publish(valid);
+        publisher.flush();
+        publisher.flush();
+
+        verify(outboxWriter).insert(List.of(poison, valid));
+        verify(outboxWriter, times(2)).insert(List.of(poison));
+        verify(outboxWriter, times(2)).insert(List.of(valid));
+        verifyNoMoreInteractions(outboxWriter);
+    }
+
+    @Test
+    @DisplayName("Выключенная публикация ничего не пишет")
+    void disabledPublisherShouldIgnoreEvents() {
+        properties.setEnabled(false);
+
+        publisher.publish(event("e1", "sub1"));
+        publisher.flush();
+
+        verifyNoInteractions(outboxWriter);
+    }
+
+    private PaymentEventDTO event(String eventId, String resourceId) {
+        return new PaymentEventDTO(eventId, PaymentEventType.SUBSCRIPTION_CANCELED, resourceId, null, "CANCELED",
+                null, null, "basic", Instant.parse("2024-05-01T10:00:00Z"));
+    }
+}
@@ -0,0 +1,137 @@
+package habittracker.paymentservice.unit.test.service.idempotency;
+
+import habittracker.paymentservice.model.entity.IdempotencyRecord;
+import habittracker.paymentservice.repository.IdempotencyRecordRepository;
+import habittracker.paymentservice.service.idempotency.IdempotencyClaim;
+import habittracker.paymentservice.service.idempotency.IdempotencyProperties;
+import habittracker.paymentservice.service.idempotency.IdempotencyServiceImpl;
+import habittracker.paymentservice.service.idempotency.StoredResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplUnitTest {
+
+    private static final String KEY = "key-1";
+    private static final String PATH = "/payment/checkouts";
+    private static final String HASH = "hash-1";
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(repository, new IdempotencyProperties());
+    }
+
+    @Test
+    @DisplayName("Свободный ключ занимается одной вставкой")
+    void claimShouldAcquireFreeKey() {
+        when(repository.claim(eq(KEY), eq(PATH), eq(HASH), any(Instant.class))).thenReturn(1);
+
+        assertThat(idempotencyService.claim(KEY, PATH, HASH).outcome()).isEqualTo(IdempotencyClaim.Outcome.ACQUIRED);
+    }
+
+    @Test
+    @DisplayName("Завершённый ответ повторяется из памяти без обращения к базе")
+    void claimShouldReplayCompletedResponseFromCache() {
+        when(repository.findById(KEY)).thenReturn(Optional.empty());
+        StoredResponse response = new StoredResponse(PATH, HASH, 302, "/payment/checkouts/tx1", null, new byte[0],
+                Instant.now());
+        idempotencyService.complete(KEY, response);
+
+        IdempotencyClaim claim = idempotencyService.claim(KEY, PATH, HASH);
+
+        assertThat(claim.outcome()).isEqualTo(IdempotencyClaim.Outcome.REPLAY);
+        assertThat(claim.response()).isEqualTo(response);
+        verify(repository, never()).claim(anyString(), anyString(), anyString(), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Ответ, сохранённый другим инстансом, читается из базы")
+    void claimShouldReplayCompletedRecordFromDatabase() {
+        IdempotencyRecord record = record(IdempotencyRecord.Status.COMPLETED, PATH);
+        record.setResponseStatus(200);
+        record.setResponseBody("{}".getBytes());
+        when(repository.claim(eq(KEY), eq(PATH), eq(HASH), any(Instant.class))).thenReturn(0);
+        when(repository.findById(KEY)).thenReturn(Optional.of(record));
+
+        IdempotencyClaim claim = idempotencyService.claim(KEY, PATH, HASH);
+
+        assertThat(claim.outcome()).isEqualTo(IdempotencyClaim.Outcome.REPLAY);
+        assertThat(claim.response().status()).isEqualTo(200);
+        assertThat(claim.response().body()).isEqualTo("{}".getBytes());
+    }
+
+    @Test
+    @DisplayName("Ключ выполняющегося запроса не выдаётся второй раз")
+    void claimShouldReportInProgress() {
+        when(repository.claim(eq(KEY), eq(PATH), eq(HASH), any(Instant.class))).thenReturn(0);
+        when(repository.findById(KEY)).thenReturn(Optional.of(record(IdempotencyRecord.Status.IN_PROGRESS, PATH)));
+
+        assertThat(idempotencyService.claim(KEY, PATH, HASH).outcome())
+                .isEqualTo(IdempotencyClaim.Outcome.IN_PROGRESS);
+    }
+
+    @Test
+    @DisplayName("Ключ, использованный для другого пути, отклоняется")
+    void claimShouldRejectKeyReusedForAnotherPath() {
+        when(repository.claim(eq(KEY), eq("/api/payment/refund"), eq(HASH), any(Instant.class))).thenReturn(0);
+        when(repository.findById(KEY)).thenReturn(Optional.of(record(IdempotencyRecord.Status.COMPLETED, PATH)));
+
+        assertThat(idempotencyService.claim(KEY, "/api/payment/refund", HASH).outcome())
+                .isEqualTo(IdempotencyClaim.Outcome.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("Ключ, повторённый с другими данными запроса, отклоняется, а не повторяет ответ")
+    void claimShouldRejectKeyReusedWithAnotherBody() {
+        when(repository.findById(KEY)).thenReturn(Optional.empty());
+        idempotencyService.complete(KEY, new StoredResponse(PATH, HASH, 200, null, null, new byte[0],
+                Instant.now()));
+
+        assertThat(idempotencyService.claim(KEY, PATH, "hash-2").outcome())
+                .isEqualTo(IdempotencyClaim.Outcome.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("Незавершённый ключ старше inProgressLease перезанимается повтором")
+    void claimShouldTakeOverAbandonedKey() {
+        IdempotencyRecord record = record(IdempotencyRecord.Status.IN_PROGRESS, PATH);
+        record.setRequestHash(HASH);
+        record.setCreatedAt(Instant.now().minus(Duration.ofMinutes(10)));
+        when(repository.claim(eq(KEY), eq(PATH), eq(HASH), any(Instant.class))).thenReturn(0);
+        when(repository.findById(KEY)).thenReturn(Optional.of(record));
+        when(repository.takeOver(eq(KEY), eq(record.getCreatedAt()), any(Instant.class))).thenReturn(1);
+
+        assertThat(idempotencyService.claim(KEY, PATH, HASH).outcome())
+                .isEqualTo(IdempotencyClaim.Outcome.ACQUIRED);
+    }
+
+    private IdempotencyRecord record(IdempotencyRecord.Status status, String path) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(KEY);
+        record.setRequestPath(path);
+        record.setStatus(status);
+        record.setCreatedAt(Instant.now());
+        return record;
+    }
+}
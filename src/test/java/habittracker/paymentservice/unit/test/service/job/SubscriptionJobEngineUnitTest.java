@@ -0,0 +1,197 @@
+package habittracker.paymentservice.unit.test.service.job;
+
+import com.braintreegateway.Plan;
+import com.braintreegateway.Result;
+import com.braintreegateway.Subscription;
+import habittracker.paymentservice.model.dto.SubscriptionJobDTO;
+import habittracker.paymentservice.model.dto.SubscriptionJobRequestDTO;
+import habittracker.paymentservice.model.entity.SubscriptionJob;
+import habittracker.paymentservice.model.entity.SubscriptionProjection;
+import habittracker.paymentservice.repository.SubscriptionJobRepository;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
+import habittracker.paymentservice.service.PlanService;
+import habittracker.paymentservice.service.SubscriptionService;
+import habittracker.paymentservice.service.job.SubscriptionJobAction;
+import habittracker.paymentservice.service.job.SubscriptionJobEngine;
+import habittracker.paymentservice.service.job.SubscriptionJobProperties;
+import habittracker.paymentservice.service.job.SubscriptionJobState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionJobEngineUnitTest {
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    @Mock
+    private PlanService planService;
+
+    @Mock
+    private SubscriptionJobRepository jobRepository;
+
+    @Mock
+    private SubscriptionProjectionRepository projectionRepository;
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SubscriptionJobEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        SubscriptionJobProperties properties = new SubscriptionJobProperties();
+        properties.setRatePerSecond(0);
+        properties.setPageSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new SubscriptionJobEngine(subscriptionService, planService, jobRepository, projectionRepository,
+                properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Задание отменяет подписки постранично и пропускает уже отменённые")
+    void submitShouldCancelSelectedSubscriptions() throws InterruptedException {
+        SubscriptionJob[] saved = new SubscriptionJob[1];
+        when(jobRepository.save(any(SubscriptionJob.class))).thenAnswer(invocation -> {
+            saved[0] = invocation.getArgument(0);
+            if (saved[0].getState() == SubscriptionJobState.COMPLETED) {
+                finished.countDown();
+            }
+            return saved[0];
+        });
+        when(jobRepository.claim(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(1);
+        when(jobRepository.findById(anyString())).thenAnswer(invocation -> Optional.of(saved[0]));
+        when(projectionRepository.findByPlanIdAndIdGreaterThan(eq("legacy"), eq(""), any(Pageable.class)))
+                .thenReturn(List.of(projection("s1", Subscription.Status.ACTIVE),
+                        projection("s2", Subscription.Status.CANCELED)));
+        when(projectionRepository.findByPlanIdAndIdGreaterThan(eq("legacy"), eq("s2"), any(Pageable.class)))
+                .thenReturn(List.of());
+        Result<Subscription> cancelled = success();
+        when(subscriptionService.cancelSubscription("s1")).thenReturn(cancelled);
+
+        engine.submit(request(SubscriptionJobAction.CANCEL, "legacy"));
+
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        SubscriptionJob job = saved[0];
+        assertThat(job.getCursor()).isEqualTo("s2");
+        assertThat(job.getProcessed()).isEqualTo(2);
+        assertThat(job.getSucceeded()).isEqualTo(1);
+        assertThat(job.getSkipped()).isEqualTo(1);
+        verify(subscriptionService, never()).cancelSubscription("s2");
+        assertThat(meterRegistry.get("payment.subscription.job.items").tag("outcome", "succeeded")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Задание без выборки и перевод на несуществующий план отклоняются")
+    void submitShouldRejectInvalidJob() {
+        when(planService.getPlanById("missing")).thenReturn(Optional.empty());
+        SubscriptionJobRequestDTO migrate = request(SubscriptionJobAction.MIGRATE, "legacy");
+        migrate.setTargetPlanId("missing");
+
+        assertThatThrownBy(() -> engine.submit(request(SubscriptionJobAction.CANCEL, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> engine.submit(migrate)).isInstanceOf(IllegalArgumentException.class);
+        verify(jobRepository, never()).save(any(SubscriptionJob.class));
+    }
+
+    @Test
+    @DisplayName("Перевод на план пропускает подписки, уже переведённые с той же ценой")
+    void submitShouldTakeTargetPriceFromPlan() throws InterruptedException {
+        Plan plan = mock(Plan.class);
+        when(plan.getId()).thenReturn("pro");
+        when(plan.getPrice()).thenReturn(new BigDecimal("10.00"));
+        when(planService.getPlanById("pro")).thenReturn(Optional.of(plan));
+        SubscriptionJob[] saved = new SubscriptionJob[1];
+        when(jobRepository.save(any(SubscriptionJob.class))).thenAnswer(invocation -> {
+            saved[0] = invocation.getArgument(0);
+            if (saved[0].getState() == SubscriptionJobState.COMPLETED) {
+                finished.countDown();
+            }
+            return saved[0];
+        });
+        when(jobRepository.claim(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(1);
+        when(jobRepository.findById(anyString())).thenAnswer(invocation -> Optional.of(saved[0]));
+        SubscriptionProjection migrated = projection("s1", Subscription.Status.ACTIVE);
+        migrated.setPlanId("pro");
+        migrated.setPrice(new BigDecimal("10.0"));
+        when(projectionRepository.findByPlanIdAndIdGreaterThan(eq("legacy"), eq(""), any(Pageable.class)))
+                .thenReturn(List.of(migrated));
+        when(projectionRepository.findByPlanIdAndIdGreaterThan(eq("legacy"), eq("s1"), any(Pageable.class)))
+                .thenReturn(List.of());
+        SubscriptionJobRequestDTO request = request(SubscriptionJobAction.MIGRATE, "legacy");
+        request.setTargetPlanId("pro");
+
+        SubscriptionJobDTO job = engine.submit(request);
+
+        assertThat(job.getTargetPrice()).isEqualByComparingTo("10.00");
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(saved[0].getSkipped()).isEqualTo(1);
+        verify(subscriptionService, never()).updateSubscription(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Отмена задания повторяется, если задание одновременно сохранило прогресс")
+    void cancelShouldRetryOnConcurrentCheckpoint() {
+        SubscriptionJob job = new SubscriptionJob();
+        job.setId("job1");
+        job.setAction(SubscriptionJobAction.CANCEL);
+        job.setState(SubscriptionJobState.RUNNING);
+        when(jobRepository.findById("job1")).thenReturn(Optional.of(job));
+        when(jobRepository.save(job))
+                .thenThrow(new OptimisticLockingFailureException("checkpoint"))
+                .thenReturn(job);
+
+        Optional<SubscriptionJobDTO> cancelled = engine.cancel("job1");
+
+        assertThat(cancelled).map(SubscriptionJobDTO::getState).contains(SubscriptionJobState.CANCELLED);
+        verify(jobRepository, times(2)).save(job);
+    }
+
+    private static SubscriptionJobRequestDTO request(SubscriptionJobAction action, String planId) {
+        SubscriptionJobRequestDTO request = new SubscriptionJobRequestDTO();
+        request.setAction(action);
+        request.setPlanId(planId);
+        return request;
+    }
+
+    private static SubscriptionProjection projection(String id, Subscription.Status status) {
+        SubscriptionProjection projection = new SubscriptionProjection();
+        projection.setId(id);
+        projection.setPlanId("legacy");
+        projection.setStatus(status);
+        projection.setPrice(new BigDecimal("5.00"));
+        return projection;
+    }
+
+    private static Result<Subscription> success() {
+        Result<Subscription> result = mock(Result.class);
+        when(result.isSuccess()).thenReturn(true);
+        return result;
+    }
+}
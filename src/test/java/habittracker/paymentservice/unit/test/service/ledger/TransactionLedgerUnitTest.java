@@ -0,0 +1,281 @@
+package habittracker.paymentservice.unit.test.service.ledger;
+
+import com.braintreegateway.Result;
+import com.braintreegateway.Transaction;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.model.dto.TransactionDetailsDTO;
+import habittracker.paymentservice.model.entity.LedgerTransaction;
+import habittracker.paymentservice.repository.LedgerTransactionRepository;
+import habittracker.paymentservice.service.event.OutboxWriter;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.ledger.LedgerProperties;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionLedgerUnitTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    @Mock
+    private PaymentEventPublisher eventPublisher;
+
+    @Mock
+    private LedgerTransactionRepository repository;
+
+    private TransactionLedger transactionLedger;
+
+    private final List<List<TransactionDetailsDTO>> writtenBatches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        LedgerProperties properties = new LedgerProperties();
+        properties.setBatchSize(2);
+        transactionLedger = new TransactionLedger(jdbcTemplate, new TransactionTemplate(transactionManager),
+                outboxWriter, eventPublisher, repository, properties);
+    }
+
+    @Test
+    @DisplayName("Ещё не сброшенная транзакция читается из очереди без обращения к базе")
+    void findShouldServeUnflushedTransaction() {
+        transactionLedger.record(transaction("tx1", Transaction.Status.SUBMITTED_FOR_SETTLEMENT));
+
+        Optional<TransactionDetailsDTO> found = transactionLedger.find("tx1");
+
+        assertThat(found).isPresent();
+        assertThat(found.get().getStatus()).isEqualTo(Transaction.Status.SUBMITTED_FOR_SETTLEMENT);
+        assertThat(found.get().getAmount()).isEqualByComparingTo("10.00");
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Очередь сбрасывается пачками размера batchSize")
+    void flushShouldWriteInBatches() {
+        captureBatches();
+        transactionLedger.record(transaction("tx1", Transaction.Status.SETTLED));
+        transactionLedger.record(transaction("tx2", Transaction.Status.SETTLED));
+        transactionLedger.record(transaction("tx3", Transaction.Status.VOIDED));
+
+        transactionLedger.flush();
+
+        assertThat(writtenBatches).hasSize(2);
+        assertThat(writtenBatches.get(0)).extracting(TransactionDetailsDTO::getId).containsExactly("tx1", "tx2");
+        assertThat(writtenBatches.get(1)).extracting(TransactionDetailsDTO::getId).containsExactly("tx3");
+
+        when(repository.findById("tx1")).thenReturn(Optional.empty());
+        assertThat(transactionLedger.find("tx1")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Отклонённая продажа тоже попадает в журнал")
+    void recordResultShouldTakeTransactionFromFailedResult() {
+        Result<Transaction> result = mock(Result.class);
+        Transaction declined = transaction("tx1", Transaction.Status.PROCESSOR_DECLINED);
+        when(result.isSuccess()).thenReturn(false);
+        when(result.getTransaction()).thenReturn(declined);
+
+        transactionLedger.recordResult(result);
+
+        assertThat(transactionLedger.find("tx1")).get()
+                .extracting(TransactionDetailsDTO::getStatus)
+                .isEqualTo(Transaction.Status.PROCESSOR_DECLINED);
+    }
+
+    @Test
+    @DisplayName("Ошибка базы не оставляет записи в очереди навсегда")
+    void failedWriteShouldDropPendingEntries() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        when(repository.findById("tx1")).thenReturn(Optional.empty());
+        transactionLedger.record(transaction("tx1", Transaction.Status.SETTLED));
+
+        transactionLedger.flush();
+
+        assertThat(transactionLedger.find("tx1")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Изменение с событием пишется сразу: журнал и outbox в одной транзакции")
+    void recordWithEventShouldWriteImmediately() {
+        captureBatches();
+        Result<Transaction> result = mock(Result.class);
+        Transaction sale = transaction("tx1", Transaction.Status.SUBMITTED_FOR_SETTLEMENT);
+        when(result.isSuccess()).thenReturn(true);
+        when(result.getTarget()).thenReturn(sale);
+        PaymentEventDTO event = event("tx1");
+
+        transactionLedger.recordResult(result, event);
+        transactionLedger.record(transaction("tx2", Transaction.Status.SETTLED));
+
+        verify(jdbcTemplate).update(anyString(), any(PreparedStatementSetter.class));
+        verify(outboxWriter).insert(List.of(event));
+        verify(transactionManager).commit(any());
+        assertThat(writtenBatches).isEmpty();
+
+        transactionLedger.flush();
+
+        assertThat(writtenBatches).hasSize(1);
+        assertThat(writtenBatches.get(0)).extracting(TransactionDetailsDTO::getId).containsExactly("tx2");
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("При ошибке журнала событие передаётся публикатору для повторной записи")
+    void failedLedgerWriteShouldHandEventToPublisher() {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("ledger table locked"));
+        PaymentEventDTO event = event("tx1");
+        Result<Transaction> result = mock(Result.class);
+        Transaction sale = transaction("tx1", Transaction.Status.SETTLED);
+        when(result.isSuccess()).thenReturn(true);
+        when(result.getTarget()).thenReturn(sale);
+
+        transactionLedger.recordResult(result, event);
+
+        verify(transactionManager).rollback(any());
+        verify(outboxWriter, never()).insert(any());
+        verify(eventPublisher).publish(event);
+    }
+
+    @Test
+    @DisplayName("Ошибка outbox откатывает запись журнала, событие передаётся публикатору")
+    void failedOutboxWriteShouldHandEventToPublisher() {
+        doThrow(new DataAccessResourceFailureException("db down")).when(outboxWriter).insert(any());
+        PaymentEventDTO event = event("tx1");
+        Result<Transaction> result = mock(Result.class);
+        Transaction sale = transaction("tx1", Transaction.Status.SETTLED);
+        when(result.isSuccess()).thenReturn(true);
+        when(result.getTarget()).thenReturn(sale);
+
+        transactionLedger.recordResult(result, event);
+
+        verify(transactionManager).rollback(any());
+        verify(eventPublisher).publish(event);
+    }
+
+    @Test
+    @DisplayName("Недоступный пул соединений не выбрасывает ошибку после изменения в Braintree")
+    void failedTransactionBeginShouldHandEventToPublisher() {
+        when(transactionManager.getTransaction(any()))
+                .thenThrow(new CannotCreateTransactionException("pool exhausted"));
+        PaymentEventDTO event = event("tx1");
+        Result<Transaction> result = mock(Result.class);
+        Transaction sale = transaction("tx1", Transaction.Status.SETTLED);
+        when(result.isSuccess()).thenReturn(true);
+        when(result.getTarget()).thenReturn(sale);
+
+        transactionLedger.recordResult(result, event);
+
+        verify(outboxWriter, never()).insert(any());
+        verify(eventPublisher).publish(event);
+    }
+
+    @Test
+    @DisplayName("recordAll пишет пачку сразу и выбрасывает ошибку базы вызывающему")
+    void recordAllShouldWriteSynchronously() {
+        captureBatches();
+
+        transactionLedger.recordAll(List.of(transaction("tx1", Transaction.Status.SETTLED),
+                transaction("tx2", Transaction.Status.VOIDED)));
+
+        assertThat(writtenBatches).hasSize(1);
+        assertThat(writtenBatches.get(0)).extracting(TransactionDetailsDTO::getId).containsExactly("tx1", "tx2");
+        verify(outboxWriter, never()).insert(any());
+
+        doThrow(new DataAccessResourceFailureException("db down")).when(jdbcTemplate)
+                .batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        List<Transaction> batch = List.of(transaction("tx3", Transaction.Status.SETTLED));
+        assertThatThrownBy(() -> transactionLedger.recordAll(batch))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    @DisplayName("Незавершённая транзакция, давно не обновлявшаяся в журнале, считается устаревшей")
+    void findShouldSkipStalePendingEntry() {
+        when(repository.findById("tx1")).thenReturn(Optional.of(
+                entry("tx1", Transaction.Status.SUBMITTED_FOR_SETTLEMENT, Instant.now().minus(Duration.ofMinutes(5)))));
+        when(repository.findById("tx2")).thenReturn(Optional.of(
+                entry("tx2", Transaction.Status.SUBMITTED_FOR_SETTLEMENT, Instant.now())));
+        when(repository.findById("tx3")).thenReturn(Optional.of(entry("tx3", Transaction.Status.SETTLED,
+                Instant.now().minus(Duration.ofDays(5)))));
+
+        assertThat(transactionLedger.find("tx1", Duration.ofSeconds(30))).isEmpty();
+        assertThat(transactionLedger.find("tx2", Duration.ofSeconds(30))).isPresent();
+        assertThat(transactionLedger.find("tx3", Duration.ofSeconds(30))).isPresent();
+    }
+
+    private LedgerTransaction entry(String id, Transaction.Status status, Instant recordedAt) {
+        LedgerTransaction entry = new LedgerTransaction();
+        entry.setId(id);
+        entry.setStatus(status.name());
+        entry.setRecordedAt(recordedAt);
+        return entry;
+    }
+
+    private PaymentEventDTO event(String transactionId) {
+        return new PaymentEventDTO("e-" + transactionId, PaymentEventType.TRANSACTION_SALE, transactionId, null,
+                "SETTLED", new BigDecimal("10.00"), "USD", null, Instant.parse("2024-05-01T10:00:00Z"));
+    }
+
+    private void captureBatches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<TransactionDetailsDTO> batch = invocation.getArgument(1);
+                    writtenBatches.add(new ArrayList<>(batch));
+                    return new int[0][];
+                });
+    }
+
+    private Transaction transaction(String id, Transaction.Status status) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getId()).thenReturn(id);
+        when(transaction.getStatus()).thenReturn(status);
+        when(transaction.getAmount()).thenReturn(new BigDecimal("10.00"));
+        when(transaction.getCreatedAt()).thenReturn(Calendar.getInstance());
+        return transaction;
+    }
+}
@@ -0,0 +1,122 @@
+package habittracker.paymentservice.unit.test.service.projection;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.ResourceCollection;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.SubscriptionGateway;
+import com.braintreegateway.SubscriptionSearchRequest;
+import habittracker.paymentservice.repository.SubscriptionProjectionRepository;
+import habittracker.paymentservice.service.projection.SubscriptionProjectionProperties;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionProjectorUnitTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BraintreeGateway braintreeGateway;
+
+    @Mock
+    private SubscriptionGateway subscriptionGateway;
+
+    @Mock
+    private ResourceCollection<Subscription> collection;
+
+    @Mock
+    private SubscriptionProjectionRepository repository;
+
+    private SubscriptionProjector projector;
+
+    private final List<List<Subscription>> writtenBatches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        SubscriptionProjectionProperties properties = new SubscriptionProjectionProperties();
+        properties.setBatchSize(2);
+        projector = new SubscriptionProjector(jdbcTemplate, braintreeGateway, new DirectGatewayExecutor(),
+                repository, properties);
+    }
+
+    @Test
+    @DisplayName("Полный обход Braintree пишется в проекцию пачками размера batchSize")
+    void rebuildShouldWriteInBatches() {
+        captureBatches();
+        List<Subscription> subscriptions = List.of(subscription("s1"), subscription("s2"), subscription("s3"));
+        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
+        when(subscriptionGateway.search(any(SubscriptionSearchRequest.class))).thenReturn(collection);
+        // один ответ служит и поиском id, и загрузкой страницы по ним
+        when(collection.getIds()).thenReturn(List.of("s1", "s2", "s3"));
+        when(collection.iterator()).thenAnswer(invocation -> subscriptions.iterator());
+
+        int written = projector.rebuild();
+
+        verify(subscriptionGateway, times(2)).search(any(SubscriptionSearchRequest.class));
+
+        assertThat(written).isEqualTo(3);
+        assertThat(writtenBatches).hasSize(2);
+        assertThat(writtenBatches.get(0)).extracting(Subscription::getId).containsExactly("s1", "s2");
+        assertThat(writtenBatches.get(1)).extracting(Subscription::getId).containsExactly("s3");
+    }
+
+    @Test
+    @DisplayName("Ошибка базы при записи подписки не выбрасывается вызывающему")
+    void failedProjectShouldNotPropagate() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        projector.project(subscription("s1"));
+    }
+
+    @Test
+    @DisplayName("Подписка без id не записывается")
+    void subscriptionWithoutIdShouldBeIgnored() {
+        projector.project(mock(Subscription.class));
+        projector.project(null);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void captureBatches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<Subscription> batch = invocation.getArgument(1);
+                    writtenBatches.add(new ArrayList<>(batch));
+                    return new int[0][];
+                });
+    }
+
+    private Subscription subscription(String id) {
+        Subscription subscription = mock(Subscription.class);
+        when(subscription.getId()).thenReturn(id);
+        return subscription;
+    }
+}
@@ -0,0 +1,244 @@
+package habittracker.paymentservice.unit.test.service.sync;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.ResourceCollection;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.SubscriptionGateway;
+import com.braintreegateway.SubscriptionSearchRequest;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.TransactionGateway;
+import com.braintreegateway.TransactionSearchRequest;
+import habittracker.paymentservice.model.entity.SyncWatermark;
+import habittracker.paymentservice.repository.SyncWatermarkRepository;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.projection.SubscriptionProjectionProperties;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import habittracker.paymentservice.service.sync.DeltaSyncJob;
+import habittracker.paymentservice.service.sync.SyncProperties;
+import habittracker.paymentservice.service.sync.SyncResource;
+import habittracker.paymentservice.unit.test.support.DirectGatewayExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeltaSyncJobUnitTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+
+    @Mock
+    private BraintreeGateway braintreeGateway;
+
+    @Mock
+    private TransactionGateway transactionGateway;
+
+    @Mock
+    private SubscriptionGateway subscriptionGateway;
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private TransactionDetailsCache transactionDetailsCache;
+
+    @Mock
+    private SubscriptionProjector subscriptionProjector;
+
+    @Mock
+    private SyncWatermarkRepository watermarkRepository;
+
+    private SyncProperties properties;
+
+    private DeltaSyncJob deltaSyncJob;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SyncProperties();
+        properties.setBatchSize(2);
+        properties.setOverlap(Duration.ofMinutes(5));
+        deltaSyncJob = new DeltaSyncJob(braintreeGateway, new DirectGatewayExecutor(), transactionLedger,
+                transactionDetailsCache, subscriptionProjector, watermarkRepository,
+                new SubscriptionProjectionProperties(), properties, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("Изменённые транзакции пишутся в журнал пачками один раз, watermark сдвигается на начало прохода")
+    void syncShouldWriteChangedTransactions() {
+        when(watermarkRepository.findById(anyString())).thenReturn(Optional.empty());
+        List<List<String>> writtenBatches = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            writtenBatches.add(batch.stream().map(Transaction::getId).toList());
+            return null;
+        }).when(transactionLedger).recordAll(anyList());
+        Transaction tx1 = transaction("tx1");
+        List<ResourceCollection<Transaction>> created = search(List.of(tx1, transaction("tx2"), transaction("tx3")));
+        List<ResourceCollection<Transaction>> submitted = search(List.of(tx1));
+        List<ResourceCollection<Transaction>> settled = search(List.of(transaction("tx4")));
+        List<ResourceCollection<Transaction>> empty = search(List.of());
+        stubTransactionSearches(created, submitted, settled, empty, empty, empty);
+        stubSubscriptionSearches(search(List.of()));
+
+        deltaSyncJob.sync();
+
+        assertThat(writtenBatches).containsExactly(List.of("tx1", "tx2"), List.of("tx3"), List.of("tx4"));
+        verify(transactionDetailsCache).invalidate("tx1");
+        verify(transactionDetailsCache).invalidate("tx4");
+        ArgumentCaptor<SyncWatermark> saved = ArgumentCaptor.forClass(SyncWatermark.class);
+        verify(watermarkRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues()).extracting(SyncWatermark::getResource)
+                .containsExactly(SyncResource.TRANSACTIONS.name(), SyncResource.SUBSCRIPTIONS.name());
+        assertThat(saved.getAllValues()).extracting(SyncWatermark::getWatermark).containsOnly(NOW);
+    }
+
+    @Test
+    @DisplayName("В проекцию попадают новые подписки и подписки со списанием после watermark")
+    void syncShouldProjectCreatedAndChargedSubscriptions() {
+        when(watermarkRepository.findById(anyString()))
+                .thenReturn(Optional.of(new SyncWatermark("any", NOW.minus(Duration.ofMinutes(1)), NOW)));
+        List<List<String>> projectedBatches = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Subscription> batch = invocation.getArgument(0);
+            projectedBatches.add(batch.stream().map(Subscription::getId).toList());
+            return null;
+        }).when(subscriptionProjector).projectAll(anyList());
+        List<ResourceCollection<Transaction>> empty = search(List.of());
+        List<ResourceCollection<Transaction>> charges = search(List.of(charge("c1", "s1"), charge("c2", "s2"),
+                charge("c3", null), charge("c4", "s2")));
+        stubTransactionSearches(empty, empty, empty, empty, empty, charges);
+        // подписки, найденные по списаниям, загружаются страницей по id без отдельного запроса id
+        stubSubscriptionSearches(search(List.of(subscription("s1"))), page(List.of(subscription("s2"))));
+
+        deltaSyncJob.sync();
+
+        assertThat(projectedBatches).containsExactly(List.of("s1"), List.of("s2"));
+        verify(subscriptionGateway, times(3)).search(any(SubscriptionSearchRequest.class));
+        verify(transactionLedger, never()).recordAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Ошибка записи не сдвигает watermark ресурса и не мешает синхронизации остальных")
+    void failedSyncShouldKeepWatermark() {
+        when(watermarkRepository.findById(anyString())).thenReturn(Optional.empty());
+        doThrow(new DataAccessResourceFailureException("db down")).when(transactionLedger).recordAll(anyList());
+        stubTransactionSearches(search(List.of(transaction("tx1"))), search(List.of()));
+        stubSubscriptionSearches(search(List.of()));
+
+        deltaSyncJob.sync();
+
+        ArgumentCaptor<SyncWatermark> saved = ArgumentCaptor.forClass(SyncWatermark.class);
+        verify(watermarkRepository).save(saved.capture());
+        assertThat(saved.getValue().getResource()).isEqualTo(SyncResource.SUBSCRIPTIONS.name());
+    }
+
+    @Test
+    @DisplayName("Выключенная синхронизация не обращается к Braintree")
+    void disabledSyncShouldDoNothing() {
+        properties.setEnabled(false);
+
+        deltaSyncJob.sync();
+
+        verifyNoInteractions(braintreeGateway, watermarkRepository);
+    }
+
+    @SafeVarargs
+    private void stubTransactionSearches(List<ResourceCollection<Transaction>>... searches) {
+        List<ResourceCollection<Transaction>> results = flatten(searches);
+        when(braintreeGateway.transaction()).thenReturn(transactionGateway);
+        var stubbing = when(transactionGateway.search(any(TransactionSearchRequest.class)));
+        for (ResourceCollection<Transaction> result : results) {
+            stubbing = stubbing.thenReturn(result);
+        }
+    }
+
+    @SafeVarargs
+    private void stubSubscriptionSearches(List<ResourceCollection<Subscription>>... searches) {
+        List<ResourceCollection<Subscription>> results = flatten(searches);
+        when(braintreeGateway.subscription()).thenReturn(subscriptionGateway);
+        var stubbing = when(subscriptionGateway.search(any(SubscriptionSearchRequest.class)));
+        for (ResourceCollection<Subscription> result : results) {
+            stubbing = stubbing.thenReturn(result);
+        }
+    }
+
+    @SafeVarargs
+    private <T> List<T> flatten(List<T>... lists) {
+        List<T> all = new ArrayList<>();
+        for (List<T> list : lists) {
+            all.addAll(list);
+        }
+        return all;
+    }
+
+    /**
+     * Ответы Braintree на один поиск: сначала id, затем, если что-то найдено, страница по этим id.
+     */
+    private <T> List<ResourceCollection<T>> search(List<T> items) {
+        ResourceCollection<T> collection = collection(items);
+        return items.isEmpty() ? List.of(collection) : List.of(collection, collection);
+    }
+
+    private <T> List<ResourceCollection<T>> page(List<T> items) {
+        return List.of(collection(items));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResourceCollection<T> collection(List<T> items) {
+        List<String> ids = items.stream()
+                .map(item -> item instanceof Transaction transaction
+                        ? transaction.getId()
+                        : ((Subscription) item).getId())
+                .toList();
+        ResourceCollection<T> collection = mock(ResourceCollection.class);
+        lenient().when(collection.getIds()).thenReturn(ids);
+        lenient().when(collection.iterator()).thenAnswer(invocation -> items.iterator());
+        return collection;
+    }
+
+    private Transaction transaction(String id) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getId()).thenReturn(id);
+        return transaction;
+    }
+
+    private Transaction charge(String id, String subscriptionId) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getId()).thenReturn(id);
+        when(transaction.getSubscriptionId()).thenReturn(subscriptionId);
+        return transaction;
+    }
+
+    private Subscription subscription(String id) {
+        Subscription subscription = mock(Subscription.class);
+        when(subscription.getId()).thenReturn(id);
+        return subscription;
+    }
+}
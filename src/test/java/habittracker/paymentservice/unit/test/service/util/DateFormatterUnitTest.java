@@ -4,7 +4,13 @@ import habittracker.paymentservice.service.util.DateFormatter;
 import org.junit.jupiter.api.Test;
 
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -64,4 +70,41 @@ class DateFormatterUnitTest {
                 .isInstanceOf(NullPointerException.class)
                 .hasMessage("date must not be null");
     }
+
+    @Test
+    void dateToStringShouldFormatCalendarLikeItsDate() {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(1633020293000L);
+
+        String formattedDate = DateFormatter.dateToString(calendar);
+
+        assertThat(formattedDate).isEqualTo(DateFormatter.dateToString(calendar.getTime()));
+    }
+
+    @Test
+    void dateToStringShouldFormatInstantInDefaultZone() {
+        Instant instant = Instant.ofEpochMilli(1633020293000L);
+
+        String formattedDate = DateFormatter.dateToString(instant);
+
+        String expectedDate = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z").format(Date.from(instant));
+        assertThat(formattedDate).isEqualTo(expectedDate);
+    }
+
+    @Test
+    void dateToStringShouldFormatInstantInGivenZone() {
+        Instant instant = Instant.parse("2021-09-30T16:44:53Z");
+
+        assertThat(DateFormatter.dateToString(instant, ZoneId.of("Europe/Moscow")))
+                .isEqualTo("2021-09-30 19:44:53 +0300");
+        assertThat(DateFormatter.dateToString(instant, ZoneId.of("UTC")))
+                .isEqualTo("2021-09-30 16:44:53 +0000");
+    }
+
+    @Test
+    void dateToStringShouldFormatZonedDateTimeInItsZone() {
+        ZonedDateTime dateTime = ZonedDateTime.of(2024, 2, 29, 23, 5, 0, 0, ZoneId.of("America/New_York"));
+
+        assertThat(DateFormatter.dateToString(dateTime)).isEqualTo("2024-02-29 23:05:00 -0500");
+    }
 }
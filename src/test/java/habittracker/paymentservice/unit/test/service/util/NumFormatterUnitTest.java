@@ -1,9 +1,12 @@
 package habittracker.paymentservice.unit.test.service.util;
 
+import habittracker.paymentservice.service.util.AmountParseResult;
 import habittracker.paymentservice.service.util.NumFormatter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -96,4 +99,49 @@ class NumFormatterUnitTest {
         Optional<Integer> result = numFormatter.stringToNum("abc123", Integer.class);
         assertThat(result).isEmpty();
     }
+
+    @ParameterizedTest
+    @CsvSource({
+            "10, 10",
+            "10.5, 10.5",
+            "'  0.99 ', 0.99",
+            "1234567.00, 1234567.00",
+            "999999999999999.99, 999999999999999.99"
+    })
+    @DisplayName("Корректная сумма разбирается с тем же масштабом, что и new BigDecimal")
+    void parseAmountShouldParseValidAmount(String input, String expected) {
+        AmountParseResult result = numFormatter.parseAmount(input);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.amount()).isEqualTo(new BigDecimal(expected));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "abc, MALFORMED",
+            "-10.00, MALFORMED",
+            "+10, MALFORMED",
+            "1e3, MALFORMED",
+            "1.2.3, MALFORMED",
+            ".50, MALFORMED",
+            "10., MALFORMED",
+            "'10,50', MALFORMED",
+            "10.005, TOO_MANY_FRACTION_DIGITS",
+            "1000000000000000, TOO_LARGE"
+    })
+    @DisplayName("Некорректная сумма возвращает причину отказа без исключения")
+    void parseAmountShouldRejectInvalidAmount(String input, AmountParseResult.Status expected) {
+        AmountParseResult result = numFormatter.parseAmount(input);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.status()).isEqualTo(expected);
+        assertThat(result.toOptional()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Пустая строка и null - EMPTY")
+    void parseAmountShouldReturnEmptyForBlankInput() {
+        assertThat(numFormatter.parseAmount(null).status()).isEqualTo(AmountParseResult.Status.EMPTY);
+        assertThat(numFormatter.parseAmount("   ").status()).isEqualTo(AmountParseResult.Status.EMPTY);
+    }
 }
@@ -0,0 +1,40 @@
+package habittracker.paymentservice.unit.test.service.util;
+
+import habittracker.paymentservice.service.util.SearchCursor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchCursorUnitTest {
+
+    @Test
+    @DisplayName("Курсор кодируется и декодируется без потерь")
+    void encodeDecodeRoundTrip() {
+        SearchCursor cursor = SearchCursor.first(42).next(20);
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode(), 42);
+
+        assertThat(decoded.offset()).isEqualTo(20);
+        assertThat(decoded.snapshot().toEpochMilli()).isEqualTo(cursor.snapshot().toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("Курсор другого запроса отклоняется")
+    void decodeShouldRejectForeignCursor() {
+        String token = SearchCursor.first(42).next(20).encode();
+
+        assertThatThrownBy(() -> SearchCursor.decode(token, 7))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Повреждённый курсор отклоняется")
+    void decodeShouldRejectGarbage() {
+        assertThatThrownBy(() -> SearchCursor.decode("not a cursor!", 42))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SearchCursor.decode("djE6YWJj", 42))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
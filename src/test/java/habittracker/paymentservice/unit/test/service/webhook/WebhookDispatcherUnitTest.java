@@ -0,0 +1,119 @@
+package habittracker.paymentservice.unit.test.service.webhook;
+
+import com.braintreegateway.Transaction;
+import com.braintreegateway.WebhookNotification;
+import habittracker.paymentservice.service.webhook.WebhookDispatcher;
+import habittracker.paymentservice.service.webhook.WebhookNotificationHandler;
+import habittracker.paymentservice.service.webhook.WebhookProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebhookDispatcherUnitTest {
+
+    private final WebhookNotificationHandler handler = mock(WebhookNotificationHandler.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WebhookDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Уведомления по одной транзакции обрабатываются в порядке получения")
+    void notificationsForSameResourceShouldKeepOrder() throws InterruptedException {
+        List<WebhookNotification> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(20);
+        doAnswer(invocation -> {
+            handled.add(invocation.getArgument(0));
+            done.countDown();
+            return null;
+        }).when(handler).handle(any());
+        dispatcher = new WebhookDispatcher(handler, properties(4, 100), meterRegistry);
+
+        List<WebhookNotification> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            WebhookNotification notification = notification("tx1");
+            sent.add(notification);
+            assertThat(dispatcher.submit(notification)).isTrue();
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handled).containsExactlyElementsOf(sent);
+    }
+
+    @Test
+    @DisplayName("При заполненной очереди уведомление отклоняется без ожидания")
+    void fullQueueShouldRejectImmediately() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(handler).handle(any());
+        dispatcher = new WebhookDispatcher(handler, properties(1, 1), meterRegistry);
+
+        assertThat(dispatcher.submit(notification("tx1"))).isTrue();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.submit(notification("tx2"))).isTrue();
+
+        assertThat(dispatcher.submit(notification("tx3"))).isFalse();
+        assertThat(meterRegistry.get("payment.webhook.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Ошибка обработки не останавливает обработчик")
+    void failedNotificationShouldNotStopWorker() throws InterruptedException {
+        WebhookNotification broken = notification("tx1");
+        WebhookNotification next = notification("tx1");
+        CountDownLatch handled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == broken) {
+                throw new IllegalStateException("db down");
+            }
+            handled.countDown();
+            return null;
+        }).when(handler).handle(any());
+        dispatcher = new WebhookDispatcher(handler, properties(1, 10), meterRegistry);
+
+        dispatcher.submit(broken);
+        dispatcher.submit(next);
+
+        assertThat(handled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private WebhookProperties properties(int partitions, int queueCapacity) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setPartitions(partitions);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+        return properties;
+    }
+
+    private WebhookNotification notification(String transactionId) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getId()).thenReturn(transactionId);
+        WebhookNotification notification = mock(WebhookNotification.class);
+        when(notification.getKind()).thenReturn(WebhookNotification.Kind.TRANSACTION_SETTLED);
+        when(notification.getTransaction()).thenReturn(transaction);
+        return notification;
+    }
+}
@@ -0,0 +1,138 @@
+package habittracker.paymentservice.unit.test.service.webhook;
+
+import com.braintreegateway.BraintreeGateway;
+import com.braintreegateway.Environment;
+import com.braintreegateway.Subscription;
+import com.braintreegateway.Transaction;
+import com.braintreegateway.WebhookNotification;
+import habittracker.paymentservice.model.dto.PaymentEventDTO;
+import habittracker.paymentservice.service.cache.TransactionCacheProperties;
+import habittracker.paymentservice.service.cache.TransactionDetailsCache;
+import habittracker.paymentservice.service.event.PaymentEventPublisher;
+import habittracker.paymentservice.service.event.PaymentEventType;
+import habittracker.paymentservice.service.ledger.TransactionLedger;
+import habittracker.paymentservice.service.projection.SubscriptionProjector;
+import habittracker.paymentservice.service.webhook.WebhookNotificationHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookNotificationHandlerUnitTest {
+
+    // подпись и разбор уведомлений выполняются локально, сеть не нужна
+    private final BraintreeGateway gateway = new BraintreeGateway(Environment.DEVELOPMENT,
+            "merchant_id", "public_key", "private_key");
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private PaymentEventPublisher eventPublisher;
+
+    @Mock
+    private SubscriptionProjector subscriptionProjector;
+
+    private WebhookNotificationHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new WebhookNotificationHandler(transactionLedger,
+                new TransactionDetailsCache(new TransactionCacheProperties()), eventPublisher, subscriptionProjector);
+    }
+
+    @Test
+    @DisplayName("Расчёт транзакции записывается в журнал вместе с событием")
+    void settledTransactionShouldBeRecordedWithEvent() {
+        handler.handle(sample(WebhookNotification.Kind.TRANSACTION_SETTLED, "tx1"));
+
+        ArgumentCaptor<Transaction> transaction = ArgumentCaptor.forClass(Transaction.class);
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(transactionLedger).record(transaction.capture(), event.capture());
+        assertThat(transaction.getValue().getId()).isEqualTo("tx1");
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.TRANSACTION_SETTLED);
+        assertThat(event.getValue().getResourceId()).isEqualTo("tx1");
+        verify(eventPublisher, never()).publish(any());
+    }
+
+    @Test
+    @DisplayName("Списание по подписке записывает её последнюю транзакцию в журнал")
+    void subscriptionChargeShouldRecordLatestTransaction() {
+        handler.handle(sample(WebhookNotification.Kind.SUBSCRIPTION_CHARGED_SUCCESSFULLY, "sub1"));
+
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(transactionLedger).record(any(Transaction.class), event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.SUBSCRIPTION_CHARGED);
+        assertThat(event.getValue().getResourceId()).isEqualTo("sub1");
+    }
+
+    @Test
+    @DisplayName("Отмена подписки без транзакций публикует только событие")
+    void subscriptionCancelShouldPublishEvent() {
+        handler.handle(sample(WebhookNotification.Kind.SUBSCRIPTION_CANCELED, "sub1"));
+
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(eventPublisher).publish(event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.SUBSCRIPTION_CANCELED);
+        verifyNoInteractions(transactionLedger);
+        ArgumentCaptor<Subscription> subscription = ArgumentCaptor.forClass(Subscription.class);
+        verify(subscriptionProjector).project(subscription.capture());
+        assertThat(subscription.getValue().getId()).isEqualTo("sub1");
+    }
+
+    @Test
+    @DisplayName("Спор публикуется событием по оспоренной транзакции")
+    void disputeShouldPublishTransactionEvent() {
+        WebhookNotification notification = sample(WebhookNotification.Kind.DISPUTE_OPENED, "dispute1");
+
+        handler.handle(notification);
+
+        ArgumentCaptor<PaymentEventDTO> event = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(eventPublisher).publish(event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(PaymentEventType.TRANSACTION_DISPUTED);
+        assertThat(event.getValue().getResourceId()).isEqualTo(notification.getDispute().getTransaction().getId());
+    }
+
+    @Test
+    @DisplayName("Повторная доставка уведомления даёт то же событие")
+    void redeliveryShouldKeepEventId() {
+        Map<String, String> sample = gateway.webhookTesting()
+                .sampleNotification(WebhookNotification.Kind.SUBSCRIPTION_CANCELED, "sub1");
+
+        handler.handle(parse(sample));
+        handler.handle(parse(sample));
+
+        ArgumentCaptor<PaymentEventDTO> events = ArgumentCaptor.forClass(PaymentEventDTO.class);
+        verify(eventPublisher, times(2)).publish(events.capture());
+        assertThat(events.getAllValues().get(0).getEventId()).isEqualTo(events.getAllValues().get(1).getEventId());
+    }
+
+    @Test
+    @DisplayName("Служебное уведомление ничего не меняет")
+    void checkNotificationShouldBeIgnored() {
+        handler.handle(sample(WebhookNotification.Kind.CHECK, null));
+
+        verifyNoInteractions(transactionLedger, eventPublisher, subscriptionProjector);
+    }
+
+    private WebhookNotification sample(WebhookNotification.Kind kind, String id) {
+        return parse(gateway.webhookTesting().sampleNotification(kind, id));
+    }
+
+    private WebhookNotification parse(Map<String, String> sample) {
+        return gateway.webhookNotification().parse(sample.get("bt_signature"), sample.get("bt_payload"));
+    }
+}
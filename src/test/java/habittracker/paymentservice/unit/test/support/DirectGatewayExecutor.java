@@ -0,0 +1,22 @@
+package habittracker.paymentservice.unit.test.support;
+
+import habittracker.paymentservice.gateway.GatewayExecutor;
+import habittracker.paymentservice.gateway.GatewayOperation;
+
+import java.util.function.Supplier;
+
+/**
+ * Выполняет вызовы Braintree в текущем потоке без лимитов - для unit-тестов сервисов.
+ */
+public class DirectGatewayExecutor implements GatewayExecutor {
+
+    @Override
+    public <T> T execute(GatewayOperation operation, Supplier<T> call) {
+        return call.get();
+    }
+
+    @Override
+    public <T> T executeHedged(GatewayOperation operation, Supplier<T> call) {
+        return call.get();
+    }
+}
@@ -0,0 +1,51 @@
+package habittracker.paymentservice.unit.test.support;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+
+import java.util.List;
+
+/**
+ * Трассировка OpenTelemetry с экспортом завершённых span-ов в память - для проверки структуры
+ * и длительности span-ов без коллектора. Span экспортируется синхронно при завершении.
+ */
+public class InMemoryTracing implements AutoCloseable {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+    public InMemoryTracing() {
+        OtelTracer tracer = new OtelTracer(tracerProvider.get("payment-service"), new OtelCurrentTraceContext(),
+                event -> { });
+        observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+    }
+
+    public ObservationRegistry observationRegistry() {
+        return observationRegistry;
+    }
+
+    public List<SpanData> spans() {
+        return exporter.getFinishedSpanItems();
+    }
+
+    public SpanData span(String name) {
+        return spans().stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Нет span-а " + name + " среди " + spans()));
+    }
+
+    @Override
+    public void close() {
+        tracerProvider.close();
+    }
+}